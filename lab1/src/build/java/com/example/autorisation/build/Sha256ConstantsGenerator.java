@@ -0,0 +1,109 @@
+package com.example.autorisation.build;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Генератор констант SHA-256, запускаемый на этапе generate-sources.
+ * Вычисляет начальные значения хеша и константы раундов так же, как описано в стандарте,
+ * и записывает их в исходный файл {@code com/example/autorisation/crypto/Sha256Constants.java},
+ * чтобы Sha256Hasher не искал простые числа и не считал корни при загрузке класса.
+ * <p>
+ * Запускается как однофайловая программа ({@code java Sha256ConstantsGenerator.java <каталог>}).
+ */
+public final class Sha256ConstantsGenerator {
+
+    private static final String PACKAGE = "com.example.autorisation.crypto";
+    private static final String CLASS_NAME = "Sha256Constants";
+
+    private Sha256ConstantsGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Использование: Sha256ConstantsGenerator <каталог сгенерированных исходников>");
+        }
+        Path file = Path.of(args[0]).resolve(PACKAGE.replace('.', '/')).resolve(CLASS_NAME + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, render(), StandardCharsets.UTF_8);
+    }
+
+    //дробную часть квадратных корней первых 8 простых и умножаем на 2^32, чтобы получить 32‑битные слова.
+    public static int[] initialHashes() {
+        int[] primes = firstPrimes(8);
+        int[] hashes = new int[8];
+        for (int i = 0; i < primes.length; i++) {
+            double sqrt = Math.sqrt(primes[i]);
+            double fractional = sqrt - Math.floor(sqrt);
+            hashes[i] = (int) (long) (fractional * (1L << 32));
+        }
+        return hashes;
+    }
+
+    //берем дробные части кубических корней первых 64 простых и умножаем на 2^32
+    public static int[] roundConstants() {
+        int[] primes = firstPrimes(64);
+        int[] constants = new int[64];
+        for (int i = 0; i < primes.length; i++) {
+            double cbrt = Math.cbrt(primes[i]);
+            double fractional = cbrt - Math.floor(cbrt);
+            constants[i] = (int) (long) (fractional * (1L << 32));
+        }
+        return constants;
+    }
+
+    //вычисление первых n простых чисел
+    private static int[] firstPrimes(int count) {
+        int[] primes = new int[count];
+        int found = 0;
+        int candidate = 2;
+        while (found < count) {
+            boolean isPrime = true;
+            for (int i = 0; i < found; i++) {
+                int prime = primes[i];
+                if ((long) prime * prime > candidate) {
+                    break;
+                }
+                if (candidate % prime == 0) {
+                    isPrime = false;
+                    break;
+                }
+            }
+            if (isPrime) {
+                primes[found++] = candidate;
+            }
+            candidate++;
+        }
+        return primes;
+    }
+
+    static String render() {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(PACKAGE).append(";\n\n");
+        out.append("/**\n");
+        out.append(" * Константы SHA-256, сгенерированные Sha256ConstantsGenerator на этапе сборки.\n");
+        out.append(" * Файл создаётся заново при каждой сборке, править его вручную не нужно.\n");
+        out.append(" */\n");
+        out.append("final class ").append(CLASS_NAME).append(" {\n\n");
+        appendArray(out, "INITIAL_HASHES", initialHashes());
+        appendArray(out, "ROUND_CONSTANTS", roundConstants());
+        out.append("    private ").append(CLASS_NAME).append("() {\n    }\n}\n");
+        return out.toString();
+    }
+
+    private static void appendArray(StringBuilder out, String name, int[] values) {
+        out.append("    static final int[] ").append(name).append(" = {");
+        for (int i = 0; i < values.length; i++) {
+            if (i % 8 == 0) {
+                out.append("\n        ");
+            } else {
+                out.append(' ');
+            }
+            out.append(String.format(Locale.ROOT, "0x%08X,", values[i]));
+        }
+        out.append("\n    };\n\n");
+    }
+}
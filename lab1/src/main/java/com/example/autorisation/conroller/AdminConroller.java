@@ -24,9 +24,8 @@ public class AdminConroller {
     }
 
     @GetMapping
-    public String home(@AuthenticationPrincipal Admin currentAdmin, Model model) {
-        model.addAttribute("admin", currentAdmin);
-        return "admin-form";
+    public String home() {
+        return "redirect:/admin/users";
     }
     @GetMapping("/edit")
     public String editRestriction(@AuthenticationPrincipal Admin currentAdmin,Model model) {
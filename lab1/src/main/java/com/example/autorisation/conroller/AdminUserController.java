@@ -2,7 +2,11 @@ package com.example.autorisation.conroller;
 
 import com.example.autorisation.entity.User;
 import com.example.autorisation.service.UserService;
+import com.example.autorisation.service.UserService.Navigation;
+import com.example.autorisation.service.UserService.UserPage;
+import com.example.autorisation.service.UserService.UserSort;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
@@ -10,6 +14,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 
@@ -17,6 +22,9 @@ import java.util.Objects;
 @RequestMapping("/admin/users")
 public class AdminUserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserService userService;
 
     public AdminUserController(UserService userService) {
@@ -24,8 +32,32 @@ public class AdminUserController {
     }
 
     @GetMapping
-    public String index(Model model) {
-        model.addAttribute("users", userService.getAllUsers());
+    public String index(@RequestParam(value = "sort", required = false) String sort,
+                        @RequestParam(value = "direction", required = false) String direction,
+                        @RequestParam(value = "after", required = false) Long after,
+                        @RequestParam(value = "before", required = false) Long before,
+                        @RequestParam(value = "last", defaultValue = "false") boolean last,
+                        @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                        @RequestParam(value = "expiring", required = false) Integer expiring,
+                        Model model) {
+        Navigation navigation = last ? Navigation.LAST
+                : after != null ? Navigation.NEXT
+                : before != null ? Navigation.PREVIOUS
+                : Navigation.FIRST;
+        int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        // фильтр «истекает в ближайшие N дней» включает и уже истёкшие пароли
+        LocalDateTime expiresBefore = expiring == null ? null : LocalDateTime.now().plusDays(Math.max(0, expiring));
+        UserPage page = userService.getUserPage(
+                UserSort.fromString(sort),
+                Sort.Direction.fromOptionalString(direction).orElse(Sort.Direction.ASC),
+                navigation,
+                after != null ? after : before,
+                expiresBefore,
+                pageSize);
+        model.addAttribute("page", page);
+        model.addAttribute("size", pageSize);
+        model.addAttribute("expiring", expiring);
+        model.addAttribute("users", page.users());
         return "admin-form";
     }
 
@@ -57,5 +89,11 @@ public class AdminUserController {
         return "user-edit-form";
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public String handleBadRequest(IllegalArgumentException e, RedirectAttributes attrs) {
+        attrs.addFlashAttribute("error", e.getMessage());
+        return "redirect:/admin/users";
+    }
+
 
 }
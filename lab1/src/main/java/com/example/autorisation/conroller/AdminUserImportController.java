@@ -0,0 +1,76 @@
+package com.example.autorisation.conroller;
+
+import com.example.autorisation.service.UserImportService;
+import com.example.autorisation.service.UserImportService.ImportFormat;
+import com.example.autorisation.service.UserImportService.ImportResult;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Массовый импорт пользователей. Данные передаются телом запроса (text/csv или application/json,
+ * кодировка UTF-8) либо файлом в multipart-форме; ответ — отчёт с числом добавленных
+ * пользователей и ошибками по строкам.
+ */
+@RestController
+@RequestMapping("/admin/users/import")
+public class AdminUserImportController {
+
+    private final UserImportService importService;
+
+    public AdminUserImportController(UserImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ImportResult importBody(HttpServletRequest request) throws IOException {
+        ImportFormat format = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? ImportFormat.JSON
+                : ImportFormat.CSV;
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return importService.importUsers(reader, format);
+        }
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportResult importFile(@RequestParam("file") MultipartFile file,
+                                   @RequestParam(value = "format", required = false) String format) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите файл для импорта.");
+        }
+        ImportFormat importFormat = format != null ? ImportFormat.fromString(format) : detectFormat(file.getOriginalFilename());
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return importService.importUsers(reader, importFormat);
+        }
+    }
+
+    private static ImportFormat detectFormat(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith(".json") ? ImportFormat.JSON : ImportFormat.CSV;
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось прочитать данные импорта. Повторите попытку позже."));
+    }
+}
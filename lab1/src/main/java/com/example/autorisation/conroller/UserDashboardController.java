@@ -1,7 +1,7 @@
 package com.example.autorisation.conroller;
 
-import com.example.autorisation.entity.User;
 import com.example.autorisation.crypto.Sha256PasswordEncoder;
+import com.example.autorisation.security.UserPrincipal;
 import com.example.autorisation.service.UserService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
@@ -26,13 +26,13 @@ public class UserDashboardController {
     }
 
     @GetMapping
-    public String home(@AuthenticationPrincipal User currentUser, Model model) {
+    public String home(@AuthenticationPrincipal UserPrincipal currentUser, Model model) {
         model.addAttribute("user", currentUser);
         return "user-form";
     }
 
     @PostMapping("/password")
-    public String changePassword(@AuthenticationPrincipal User currentUser,
+    public String changePassword(@AuthenticationPrincipal UserPrincipal currentUser,
                                  @RequestParam("password") String password,
                                  @RequestParam("confirmPassword") String confirmPassword,
                                  @RequestParam("currentPassword") String currentPassword,
@@ -46,12 +46,12 @@ public class UserDashboardController {
             return "redirect:/user";
 
         }
-        else if (currentUser.isRestriction() && password.length() < currentUser.getLength()) {
+        else if (currentUser.restriction() && password.length() < currentUser.length()) {
             redirectAttributes.addFlashAttribute("error",
-                    "Пароль должен содержать не менее " + currentUser.getLength() + " символов");
+                    "Пароль должен содержать не менее " + currentUser.length() + " символов");
             return "redirect:/user";
         }
-        else if (currentUser.isRestriction() && !Restriction(password)) {
+        else if (currentUser.restriction() && !Restriction(password)) {
             redirectAttributes.addFlashAttribute("error",
                     "Пароль должен содержать чередование цифр и знаков арифметических операций");
             return "redirect:/user";
@@ -60,7 +60,7 @@ public class UserDashboardController {
             redirectAttributes.addFlashAttribute("error", "Пароли не совпадают");
             return "redirect:/user";
         }
-        userService.updatePassword(currentUser.getId(), password);
+        userService.updatePassword(currentUser.id(), password);
         redirectAttributes.addFlashAttribute("message", "Пароль успешно обновлен");
         return "redirect:/user";
     }
@@ -1,5 +1,8 @@
 package com.example.autorisation.crypto;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +32,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class DatabaseEncryptionService{
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseEncryptionService.class);
     private static final byte[] SQLITE_HEADER = "SQLite format 3\u0000".getBytes(StandardCharsets.US_ASCII);
+    // Файлы-спутники SQLite в режиме WAL: журнал упреждающей записи и индекс разделяемой памяти
+    private static final String[] WAL_SIDECAR_SUFFIXES = {"-wal", "-shm"};
 
     private final Path encryptedPath;
     private final Path decryptedPath;
@@ -36,12 +41,14 @@ public class DatabaseEncryptionService{
     private final byte[] iv;
     private final Object lock = new Object();
     private final AtomicBoolean databaseJustCreated = new AtomicBoolean(false);
+    private final MeterRegistry meterRegistry;
 
-    public DatabaseEncryptionService(@Value("${app.db.encrypted-path}") String encryptedPath, @Value("${app.db.decrypted-path}") String decryptedPath, @Value("${app.db.des.key}") String keyHex, @Value("${app.db.des.iv}") String ivHex){
+    public DatabaseEncryptionService(@Value("${app.db.encrypted-path}") String encryptedPath, @Value("${app.db.decrypted-path}") String decryptedPath, @Value("${app.db.des.key}") String keyHex, @Value("${app.db.des.iv}") String ivHex, MeterRegistry meterRegistry){
         this.encryptedPath = resolvePath(encryptedPath);
         this.decryptedPath = resolvePath(decryptedPath);
         this.key = decodeHex("app.db.des.key", keyHex);
         this.iv = decodeHex("app.db.des.iv", ivHex);
+        this.meterRegistry = meterRegistry;
     }
 
     // Метод для подготовки базы данных при запуске приложения
@@ -56,6 +63,8 @@ public class DatabaseEncryptionService{
                         wipeAndDelete(tempDecrypted);
                         ensureParentExists(tempDecrypted);
                         transformFile(encryptedPath, tempDecrypted, Cipher.DECRYPT_MODE);
+                        // WAL от прошлого аварийного запуска относится к старому файлу и испортил бы новый
+                        wipeWalSidecars(decryptedPath);
                         moveWithRetry(tempDecrypted, decryptedPath);
                         ensureValidSqliteDatabaseOrRecreate(decryptedPath);
                     } finally {
@@ -103,6 +112,7 @@ public class DatabaseEncryptionService{
     // Метод для инициализации новой пустой SQLite-базы данных.
     private void initializeEmptyDatabase(Path target) throws IOException {
         wipeAndDelete(target);
+        wipeWalSidecars(target);
         ensureParentExists(target);
         try {
             Class.forName("org.sqlite.JDBC");
@@ -128,6 +138,7 @@ public class DatabaseEncryptionService{
                     return;
                 }
                 LOGGER.info("Шифруем БД {} в {}.", decryptedPath, encryptedPath);
+                checkpointWal(decryptedPath);
                 ensureParentExists(encryptedPath);
                 Path encryptedTemp = encryptedPath.resolveSibling(encryptedPath.getFileName().toString() + ".tmp");
                 try {
@@ -137,12 +148,33 @@ public class DatabaseEncryptionService{
                     wipeAndDelete(encryptedTemp);
                 }
                 wipeAndDelete(decryptedPath);
+                wipeWalSidecars(decryptedPath);
             } catch (IOException | GeneralSecurityException e) {
                 LOGGER.error("Не удалось зашифровать базу данных при завершении работы.", e);
             }
         }
     }
 
+    // Переносим все страницы из WAL в основной файл и возвращаем режим журнала DELETE,
+    // чтобы шифровался самодостаточный файл, а -wal и -shm не оставались на диске в открытом виде.
+    // Пул соединений к этому моменту уже закрыт, поэтому checkpoint не ждёт читателей.
+    private void checkpointWal(Path database) throws IOException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            statement.execute("PRAGMA journal_mode = DELETE");
+        } catch (SQLException e) {
+            throw new IOException("Не удалось выполнить checkpoint WAL для " + database, e);
+        }
+    }
+
+    // Удаляем файлы-спутники WAL рядом с базой, перезаписывая их нулями
+    private void wipeWalSidecars(Path database) throws IOException {
+        for (String suffix : WAL_SIDECAR_SUFFIXES) {
+            wipeAndDelete(createTempSibling(database, suffix));
+        }
+    }
+
     // Флаг, который указывает, была ли база создана на этом запуске.
     // Возвращает true ровно один раз после создания.
     public boolean consumeDatabaseJustCreatedFlag() {
@@ -150,6 +182,28 @@ public class DatabaseEncryptionService{
     }
     // Метод для шифрования и расшифрования файла с использованием DES в режиме OFB
     private void transformFile(Path source, Path target, int cipherMode) throws GeneralSecurityException, IOException {
+        String operation = cipherMode == Cipher.ENCRYPT_MODE ? "encrypt" : "decrypt";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            long bytes = transformFileContent(source, target, cipherMode);
+            Counter.builder("auth.db.crypto.bytes")
+                    .description("Объём данных БД, прошедших через DES/OFB")
+                    .baseUnit("bytes")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .increment(bytes);
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("auth.db.crypto")
+                    .description("Длительность шифрования/расшифрования файла БД")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private long transformFileContent(Path source, Path target, int cipherMode) throws GeneralSecurityException, IOException {
         Cipher cipher = Cipher.getInstance("DES/OFB/NoPadding");
         SecretKeySpec keySpec = new SecretKeySpec(key, "DES");
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
@@ -162,10 +216,13 @@ public class DatabaseEncryptionService{
              CipherOutputStream cipherOut = new CipherOutputStream(output, cipher)) {
 
             byte[] buffer = new byte[4096];
+            long total = 0;
             int read;
             while ((read = input.read(buffer)) != -1) {
                 cipherOut.write(buffer, 0, read);
+                total += read;
             }
+            return total;
         }
     }
     //
@@ -1,12 +1,12 @@
 package com.example.autorisation.crypto;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
-import javax.sql.DataSource;
-
 @Configuration
 public class EncryptedDataSourceConfig {
     private final DatabaseEncryptionService encryptionService;
@@ -17,14 +17,18 @@ public class EncryptedDataSourceConfig {
         this.environment = environment;
     }
 
+    // Пул и прагмы SQLite задаются свойствами spring.datasource.hikari.* (см. application.properties):
+    // прагмы из data-source-properties драйвер выполняет при открытии каждого соединения.
+    // Пул закрывается раньше, чем encryptOnShutdown шифрует файл, — бин зависит от сервиса шифрования.
     @Bean
-    public DataSource dataSource() {
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource() {
         encryptionService.ensureDatabaseReady();
 
         String url = environment.getRequiredProperty("spring.datasource.url");
         String driverClassName = environment.getProperty("spring.datasource.driver-class-name");
 
-        DataSourceBuilder<?> builder = DataSourceBuilder.create();
+        DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create().type(HikariDataSource.class);
         if (driverClassName != null && !driverClassName.isBlank()) {
             builder.driverClassName(driverClassName);
         }
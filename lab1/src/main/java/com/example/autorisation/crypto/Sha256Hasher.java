@@ -9,68 +9,10 @@ public final class Sha256Hasher {
 
 
     //1 Этап. Константы. Инициализационные хеши и константы раундов.
-    private static final int[] INITIAL_HASHES = computeInitialHashes();
-    private static final int[] ROUND_CONSTANTS = computeRoundConstants();
-    //дробную часть квадратных корней первых 8 простых и умножаем на 2^32, чтобы получить 32‑битные слова.
-    private static int[] computeInitialHashes() {
-        int[] primes = firstPrimes(8);
-        int[] hashes = new int[8];
-        for (int i = 0; i < primes.length; i++) {
-            double sqrt = Math.sqrt(primes[i]);
-            double fractional = sqrt - Math.floor(sqrt); //оставляет только дробную часть корня простого числа
-            long word = (long) (fractional * (1L << 32)); //fractional * (1L << 32) умножает дробную часть на 2^32 и отбрасываем дробнукю часть с помощью long
-            hashes[i] = (int) word;
-        }
-
-        return hashes;
-
-    }
-
-    //берем дробные части кубических корней первых 64 простых и умножаем на 2^32
-    private static int[] computeRoundConstants() {
-        int[] primes = firstPrimes(64);
-        int[] constants = new int[64];
-
-        for (int i = 0; i < primes.length; i++) {
-            double cbrt = Math.cbrt(primes[i]);
-            double fractional = cbrt - Math.floor(cbrt);
-            long word = (long) (fractional * (1L << 32));
-            constants[i] = (int) word;
-        }
-
-        return constants;
-
-    }
-    //вычисление первых n простых чисел
-    private static int[] firstPrimes(int count) {
-
-            int[] primes = new int[count];
-            int found = 0;
-            int candidate = 2;
-
-            while (found < count) {
-                boolean isPrime = true;
-
-                for (int i = 0; i < found; i++) {
-                    int prime = primes[i];
-                    if ((long) prime * prime > candidate) {
-                        break;
-                    }
-                    if (candidate % prime == 0) {
-                        isPrime = false;
-                        break;
-                    }
-                }
-
-                if (isPrime) {
-                    primes[found++] = candidate;
-                }
-
-                candidate++;
-            }
-
-            return primes;
-        }
+    //Дробные части квадратных (для хешей) и кубических (для раундов) корней первых простых чисел, умноженные на 2^32.
+    //Вычисляются при сборке, см. src/build/java/com/example/autorisation/build/Sha256ConstantsGenerator.java.
+    private static final int[] INITIAL_HASHES = Sha256Constants.INITIAL_HASHES;
+    private static final int[] ROUND_CONSTANTS = Sha256Constants.ROUND_CONSTANTS;
 
 
 
@@ -10,7 +10,10 @@ import java.util.Collection;
 import java.util.Collections;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_username", columnList = "username"),
+        @Index(name = "idx_users_password_expires_at", columnList = "password_expires_at")
+})
     public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,6 +26,13 @@ import java.util.Collections;
     private int month;
     @Column(name = "password_expires_at")
     private LocalDateTime passwordExpiresAt;
+    // Срок пароля истёк; выставляется пакетно PasswordExpirySweeper, сбрасывается при смене пароля
+    @Column(name = "password_expired", columnDefinition = "boolean default 0")
+    private boolean passwordExpired;
+    // Растёт при каждом изменении строки; по нему сессия узнаёт, что снимок UserPrincipal устарел
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0")
+    private long version;
 
 
 
@@ -99,6 +109,22 @@ import java.util.Collections;
         this.passwordExpiresAt = passwordExpiresAt;
     }
 
+    public boolean isPasswordExpired() {
+        return passwordExpired;
+    }
+
+    public void setPasswordExpired(boolean passwordExpired) {
+        this.passwordExpired = passwordExpired;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @PrePersist
     private void onCreate() {
         blocked = false;
@@ -126,12 +152,10 @@ import java.util.Collections;
         return !blocked;
     }
 
+    // Срок сравнивается и напрямую: флаг выставляется проходом PasswordExpirySweeper с задержкой до его интервала
     @Override
     public boolean isCredentialsNonExpired() {
-        if (!restriction) {
-            return true;
-        }
-        return passwordExpiresAt == null || passwordExpiresAt.isAfter(LocalDateTime.now());
+        return !restriction || !passwordExpired && (passwordExpiresAt == null || passwordExpiresAt.isAfter(LocalDateTime.now()));
     }
 
     @Override
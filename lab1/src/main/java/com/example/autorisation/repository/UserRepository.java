@@ -1,10 +1,44 @@
 package com.example.autorisation.repository;
 
 import com.example.autorisation.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    Optional<UserSummary> findSummaryById(Long id);
+
+    /** Страница списка по ключу (keyset): условие на ключ предыдущей страницы вместо OFFSET. */
+    Window<UserSummary> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+    /** То же, но только пароли со сроком до {@code until}; условие идёт по индексу password_expires_at. */
+    Window<UserSummary> findByPasswordExpiresAtLessThanEqual(LocalDateTime until, ScrollPosition position, Sort sort,
+                                                             Limit limit);
+
+    /**
+     * Помечает одним UPDATE все пароли, срок которых наступил к {@code now}; возвращает число строк.
+     * Версия строк увеличивается на единицу, как при сохранении сущности.
+     */
+    @Transactional
+    @Modifying
+    @Query("update versioned User u set u.passwordExpired = true "
+            + "where u.passwordExpired = false and u.passwordExpiresAt <= :now")
+    int markExpiredPasswords(@Param("now") LocalDateTime now);
+
+    /** Строки, которые пометит {@link #markExpiredPasswords} с тем же {@code until}, с их текущими версиями. */
+    List<UserVersion> findByPasswordExpiredFalseAndPasswordExpiresAtLessThanEqual(LocalDateTime until);
+
+    long countByPasswordExpiredFalseAndPasswordExpiresAtLessThanEqual(LocalDateTime until);
 }
@@ -0,0 +1,17 @@
+package com.example.autorisation.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка пользователей в панели администратора: только отображаемые поля,
+ * без хэша пароля. Заполняется запросом напрямую, минуя загрузку сущностей.
+ */
+public record UserSummary(Long id,
+                          String username,
+                          boolean blocked,
+                          boolean restriction,
+                          int length,
+                          int month,
+                          LocalDateTime passwordExpiresAt,
+                          boolean passwordExpired) {
+}
@@ -0,0 +1,5 @@
+package com.example.autorisation.repository;
+
+/** Идентификатор и версия строки users — всё, что нужно для оповещения сессий об изменении. */
+public record UserVersion(Long id, long version) {
+}
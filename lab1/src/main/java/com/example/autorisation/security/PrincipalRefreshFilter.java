@@ -0,0 +1,78 @@
+package com.example.autorisation.security;
+
+import com.example.autorisation.entity.User;
+import com.example.autorisation.repository.UserRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Обновляет {@link UserPrincipal} в сессии, когда строка пользователя изменилась после входа.
+ * Пока версия снимка совпадает с известной {@link PrincipalVersionRegistry}, запрос к БД не выполняется.
+ * Если пользователя удалили или заблокировали, сессия завершается сразу, не дожидаясь повторного входа;
+ * так же завершается сессия, чей id после удаления выдан другому пользователю (имя в строке другое).
+ * Фильтр создаётся в {@link SecurityConfig} и не является бином, чтобы не попасть в цепочку сервлета дважды.
+ */
+public class PrincipalRefreshFilter extends OncePerRequestFilter {
+
+    private final UserRepository userRepository;
+    private final PrincipalVersionRegistry versionRegistry;
+    private final SecurityContextRepository securityContextRepository = new HttpSessionSecurityContextRepository();
+
+    public PrincipalRefreshFilter(UserRepository userRepository, PrincipalVersionRegistry versionRegistry) {
+        this.userRepository = userRepository;
+        this.versionRegistry = versionRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long latest = versionRegistry.latest(principal.id());
+        if (latest <= principal.version()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Optional<User> fresh = userRepository.findById(principal.id())
+                .filter(user -> user.getUsername().equals(principal.username()));
+        if (fresh.isEmpty() || fresh.get().isBlocked()) {
+            SecurityContextHolder.clearContext();
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                session.invalidate();
+            }
+            response.sendRedirect(request.getContextPath() + (fresh.isEmpty() ? "/login?userNotFound" : "/login?blocked"));
+            return;
+        }
+        User user = fresh.get();
+        versionRegistry.reloaded(user.getId(), latest, user.getVersion());
+
+        UserPrincipal refreshed = UserPrincipal.of(user);
+        UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.authenticated(
+                refreshed, null, refreshed.getAuthorities());
+        token.setDetails(authentication.getDetails());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(token);
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+        filterChain.doFilter(request, response);
+    }
+}
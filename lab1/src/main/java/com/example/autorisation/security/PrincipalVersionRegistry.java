@@ -0,0 +1,53 @@
+package com.example.autorisation.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Последние известные версии строк users, изменённых после запуска приложения.
+ * Все изменения пользователей идут через это приложение, поэтому сессии достаточно сравнить
+ * версию своего {@link UserPrincipal} с записью здесь: строку перечитывают, только если
+ * её версия выросла или пользователь удалён.
+ */
+@Component
+public class PrincipalVersionRegistry {
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    /** Строка изменена и теперь имеет версию {@code version}. */
+    public void changed(Long userId, long version) {
+        versions.merge(userId, version, Math::max);
+    }
+
+    /**
+     * Новая строка. SQLite может выдать повторно id удалённого пользователя; метка удаления при этом
+     * сохраняется, иначе сессия прежнего владельца id с версией снимка не ниже новой осталась бы
+     * действующей. Сессии по такому id перечитывают строку на каждом запросе и сверяют имя.
+     */
+    public void created(Long userId, long version) {
+        versions.merge(userId, version, Math::max);
+    }
+
+    public void removed(Long userId) {
+        versions.put(userId, DELETED);
+    }
+
+    /**
+     * Строку перечитали и получили версию {@code version}. Если здесь записана оценка больше
+     * (после пакетного UPDATE), верной считается БД; запись заменяется, только если её никто
+     * не изменил за время чтения. Метка удаления не заменяется никогда.
+     */
+    public void reloaded(Long userId, long expected, long version) {
+        if (version < expected && expected != DELETED) {
+            versions.replace(userId, expected, version);
+        }
+    }
+
+    /** Последняя известная версия строки; 0, если после запуска строка не менялась. */
+    public long latest(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.autorisation.security;
 
 import com.example.autorisation.crypto.Sha256PasswordEncoder;
+import com.example.autorisation.repository.UserRepository;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -9,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 
 @Configuration
@@ -33,11 +35,18 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http,
                                                    LoginSuccessHandler loginSuccessHandler,
                                                    AuthenticationFailureHandler loginFailureHandler,
-                                                   DaoAuthenticationProvider authenticationProvider) throws Exception {
+                                                   DaoAuthenticationProvider authenticationProvider,
+                                                   UserRepository userRepository,
+                                                   PrincipalVersionRegistry principalVersionRegistry) throws Exception {
         http
                 .authenticationProvider(authenticationProvider)
+                .addFilterBefore(new PrincipalRefreshFilter(userRepository, principalVersionRegistry),
+                        AuthorizationFilter.class)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/login", "/css/**", "/js/**", "/error").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // метрики входа (число и исходы попыток) видны только администратору
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                         .requestMatchers("/admin/**", "/admins").hasRole("ADMIN")
                         .requestMatchers("/user/**").hasRole("USER")
                         .anyRequest().authenticated()
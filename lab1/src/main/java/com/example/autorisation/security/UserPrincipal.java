@@ -0,0 +1,69 @@
+package com.example.autorisation.security;
+
+import com.example.autorisation.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Неизменяемый снимок учётной записи пользователя, который хранится в сессии вместо сущности.
+ * {@code version} — версия строки users на момент снимка: пока {@link PrincipalVersionRegistry}
+ * не знает более новой версии, запрос обслуживается без обращения к БД.
+ */
+public record UserPrincipal(Long id,
+                            String username,
+                            String passwordHash,
+                            boolean blocked,
+                            boolean restriction,
+                            int length,
+                            int month,
+                            LocalDateTime passwordExpiresAt,
+                            boolean passwordExpired,
+                            long version) implements UserDetails {
+
+    public static UserPrincipal of(User user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(), user.isBlocked(),
+                user.isRestriction(), user.getLength(), user.getMonth(), user.getPasswordExpiresAt(),
+                user.isPasswordExpired(), user.getVersion());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+    }
+
+    @Override
+    public String getPassword() {
+        return passwordHash;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return !blocked;
+    }
+
+    // Срок сравнивается и напрямую: флаг выставляется проходом PasswordExpirySweeper с задержкой до его интервала
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return !restriction || !passwordExpired && (passwordExpiresAt == null || passwordExpiresAt.isAfter(LocalDateTime.now()));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return !blocked;
+    }
+
+    @Override
+    public String toString() { // без хэша пароля: снимок попадает в логи вместе с Authentication
+        return "UserPrincipal[id=" + id + ", username=" + username + ", version=" + version + "]";
+    }
+}
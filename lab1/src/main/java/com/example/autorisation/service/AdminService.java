@@ -4,6 +4,9 @@ import com.example.autorisation.entity.Admin;
 import com.example.autorisation.entity.User;
 import com.example.autorisation.repository.AdminRepository;
 import com.example.autorisation.repository.UserRepository;
+import com.example.autorisation.security.UserPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -27,16 +30,31 @@ public class AdminService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public List<Admin> getAllUsers() {
         return adminRepository.findAll();
     }
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return adminRepository.findByUsername(username)
-                .map(admin -> (UserDetails) admin)
-                .orElseGet(() -> userRepository.findByUsername(username)
-                        .map(user -> (UserDetails) user)
-                        .orElseThrow(() -> new UsernameNotFoundException(username)));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "not_found";
+        try {
+            UserDetails details = adminRepository.findByUsername(username)
+                    .map(admin -> (UserDetails) admin)
+                    .orElseGet(() -> userRepository.findByUsername(username)
+                            .map(user -> (UserDetails) UserPrincipal.of(user))
+                            .orElseThrow(() -> new UsernameNotFoundException(username)));
+            outcome = details instanceof Admin ? "admin" : "user";
+            return details;
+        } finally {
+            sample.stop(Timer.builder("auth.user.lookup")
+                    .description("Время поиска учетной записи при входе")
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
     }
 
     public Admin getAdminById(Long id) {
@@ -0,0 +1,68 @@
+package com.example.autorisation.service;
+
+import com.example.autorisation.repository.UserRepository;
+import com.example.autorisation.repository.UserVersion;
+import com.example.autorisation.security.PrincipalVersionRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Периодически помечает истёкшие пароли пользователей одним UPDATE по индексу password_expires_at.
+ * Вход не ждёт прохода: {@link com.example.autorisation.security.UserPrincipal#isCredentialsNonExpired()}
+ * сравнивает срок с текущим временем сам, а флаг нужен списку пользователей и открытым сессиям —
+ * новые версии строк передаются в {@link PrincipalVersionRegistry}, чтобы сессии обновили снимок.
+ * Число паролей, истекающих в ближайшее время, публикуется метрикой; сами учётные записи
+ * администратор видит постранично в списке пользователей с фильтром по сроку.
+ */
+@Service
+public class PasswordExpirySweeper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordExpirySweeper.class);
+
+    private final UserRepository userRepository;
+    private final PrincipalVersionRegistry principalVersionRegistry;
+    private final Duration warnBefore;
+    private final Counter expiredCounter;
+    private final AtomicLong expiringSoon = new AtomicLong();
+
+    public PasswordExpirySweeper(UserRepository userRepository,
+                                 PrincipalVersionRegistry principalVersionRegistry,
+                                 @Value("${app.users.password-expiry.warn-before}") Duration warnBefore,
+                                 MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.principalVersionRegistry = principalVersionRegistry;
+        this.warnBefore = warnBefore;
+        this.expiredCounter = Counter.builder("auth.users.password.expired")
+                .description("Пароли, помеченные истёкшими")
+                .register(meterRegistry);
+        Gauge.builder("auth.users.password.expiring", expiringSoon, AtomicLong::get)
+                .description("Пароли, срок которых истекает в ближайшее время")
+                .register(meterRegistry);
+    }
+
+    // Без общей транзакции: сессии оповещаются только после фиксации UPDATE, иначе успели бы перечитать старую строку
+    @Scheduled(fixedDelayString = "${app.users.password-expiry.sweep-interval}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserVersion> expiring = userRepository.findByPasswordExpiredFalseAndPasswordExpiresAtLessThanEqual(now);
+        if (!expiring.isEmpty()) {
+            int expired = userRepository.markExpiredPasswords(now);
+            // update versioned увеличил версию каждой строки на единицу; ошибка оценки исправится при перечитывании
+            expiring.forEach(user -> principalVersionRegistry.changed(user.id(), user.version() + 1));
+            expiredCounter.increment(expired);
+            LOGGER.info("Срок пароля истёк у {} пользователей.", expired);
+        }
+        expiringSoon.set(userRepository.countByPasswordExpiredFalseAndPasswordExpiresAtLessThanEqual(
+                now.plus(warnBefore)));
+    }
+}
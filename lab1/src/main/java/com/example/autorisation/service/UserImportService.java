@@ -0,0 +1,286 @@
+package com.example.autorisation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Массовое добавление пользователей из CSV или JSON. Все строки проверяются до записи;
+ * существующие имена ищутся одним запросом IN на порцию имён, а новые записи вставляются
+ * пакетами JDBC в одной транзакции — на SQLite это одна синхронизация с диском на весь
+ * импорт вместо одной на пользователя. Ошибочные строки пропускаются и перечисляются
+ * в отчёте, остальные добавляются. Вставка каждой строки повторно проверяет имя
+ * (insert ... where not exists): пользователь, созданный параллельно после проверки,
+ * попадает в отчёт как существующий, а не прерывает импорт.
+ * <p>
+ * Как и при создании через форму, пароль у новых пользователей пустой. Кроме имени
+ * строка может задавать blocked, restriction, length и month.
+ */
+@Service
+public class UserImportService {
+    private static final int MAX_ROWS = 50_000;
+    private static final int BATCH_SIZE = 500;
+    /** Параметров в одном IN; старые сборки SQLite допускают не более 999 на запрос. */
+    private static final int LOOKUP_CHUNK = 500;
+    private static final List<String> COLUMNS = List.of("username", "blocked", "restriction", "length", "month");
+    private static final String INSERT_SQL = "insert into users (username, password, blocked, restriction, length, month, "
+            + "password_expires_at, password_expired, version) select ?, null, ?, ?, ?, ?, null, 0, 0 "
+            + "where not exists (select 1 from users where username = ?)";
+    private static final String EXISTS_ERROR = "Пользователь с таким именем уже существует";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UserImportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional
+    public ImportResult importUsers(Reader reader, ImportFormat format) throws IOException {
+        List<ImportRow> rows = format == ImportFormat.JSON ? parseJson(reader) : parseCsv(reader);
+        List<RowError> errors = new ArrayList<>();
+        List<ImportRow> valid = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (row.error() != null) {
+                errors.add(new RowError(row.row(), row.username(), row.error()));
+            } else if (!seen.add(row.username())) {
+                errors.add(new RowError(row.row(), row.username(), "Имя повторяется в файле"));
+            } else {
+                valid.add(row);
+            }
+        }
+
+        Set<String> existing = findExisting(valid.stream().map(ImportRow::username).toList());
+        List<ImportRow> accepted = new ArrayList<>();
+        for (ImportRow row : valid) {
+            if (existing.contains(row.username())) {
+                errors.add(new RowError(row.row(), row.username(), EXISTS_ERROR));
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, accepted, BATCH_SIZE, (statement, row) -> {
+            statement.setString(1, row.username());
+            statement.setBoolean(2, row.blocked());
+            statement.setBoolean(3, row.restriction());
+            statement.setInt(4, row.length());
+            statement.setInt(5, row.month());
+            statement.setString(6, row.username());
+        });
+        int created = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                ImportRow row = accepted.get(index++);
+                if (count == 0) { // имя занято после проверки существующих
+                    errors.add(new RowError(row.row(), row.username(), EXISTS_ERROR));
+                } else {
+                    created++;
+                }
+            }
+        }
+        errors.sort((a, b) -> Integer.compare(a.row(), b.row()));
+        return new ImportResult(rows.size(), created, errors);
+    }
+
+    private Set<String> findExisting(List<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < usernames.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = usernames.subList(from, Math.min(usernames.size(), from + LOOKUP_CHUNK));
+            existing.addAll(namedJdbcTemplate.queryForList("select username from users where username in (:names)",
+                    new MapSqlParameterSource("names", chunk), String.class));
+        }
+        return existing;
+    }
+
+    /**
+     * CSV с заголовком из имён колонок (username обязателен, порядок любой) или без него —
+     * тогда колонки идут в порядке username, blocked, restriction, length, month.
+     * Разделитель — запятая или точка с запятой; значения могут быть в двойных кавычках.
+     */
+    private List<ImportRow> parseCsv(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<ImportRow> rows = new ArrayList<>();
+        List<String> header = COLUMNS;
+        char delimiter = 0;
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (delimiter == 0) {
+                delimiter = line.indexOf(';') >= 0 ? ';' : ',';
+                List<String> cells = splitCsv(line, delimiter);
+                if (cells.stream().anyMatch(cell -> cell.trim().equalsIgnoreCase("username"))) {
+                    header = cells.stream().map(cell -> cell.trim().toLowerCase(Locale.ROOT)).toList();
+                    continue;
+                }
+            }
+            checkRowLimit(rows.size());
+            List<String> cells = splitCsv(line, delimiter);
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < Math.min(header.size(), cells.size()); i++) {
+                values.put(header.get(i), cells.get(i).trim());
+            }
+            rows.add(toRow(lineNumber, values));
+        }
+        return rows;
+    }
+
+    private static List<String> splitCsv(String line, char delimiter) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /** JSON-массив объектов с полями username, blocked, restriction, length, month. */
+    private List<ImportRow> parseJson(Reader reader) throws IOException {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(reader);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON: ожидается массив объектов пользователей.");
+        }
+        if (root == null || !root.isArray()) {
+            throw new IllegalArgumentException("Некорректный JSON: ожидается массив объектов пользователей.");
+        }
+        List<ImportRow> rows = new ArrayList<>();
+        for (int i = 0; i < root.size(); i++) {
+            checkRowLimit(rows.size());
+            JsonNode node = root.get(i);
+            Map<String, String> values = new HashMap<>();
+            if (node.isObject()) {
+                for (String column : COLUMNS) {
+                    JsonNode value = node.get(column);
+                    if (value != null && !value.isNull()) {
+                        values.put(column, value.asText().trim());
+                    }
+                }
+            }
+            rows.add(toRow(i + 1, values));
+        }
+        return rows;
+    }
+
+    private static void checkRowLimit(int rows) {
+        if (rows >= MAX_ROWS) {
+            throw new IllegalArgumentException("За один импорт можно добавить не более " + MAX_ROWS + " пользователей.");
+        }
+    }
+
+    private static ImportRow toRow(int row, Map<String, String> values) {
+        String username = values.getOrDefault("username", "");
+        try {
+            if (username.isEmpty()) {
+                throw new IllegalArgumentException("Не задано имя пользователя");
+            }
+            return new ImportRow(row, username, parseFlag(values.get("blocked"), "blocked"),
+                    parseFlag(values.get("restriction"), "restriction"),
+                    parseCount(values.get("length"), "length"), parseCount(values.get("month"), "month"), null);
+        } catch (IllegalArgumentException e) {
+            return new ImportRow(row, username, false, false, 0, 0, e.getMessage());
+        }
+    }
+
+    private static boolean parseFlag(String value, String column) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "да" -> true;
+            case "false", "0", "no", "нет" -> false;
+            default -> throw new IllegalArgumentException("Некорректное значение " + column + ": " + value);
+        };
+    }
+
+    private static int parseCount(String value, String column) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Значение " + column + " должно быть неотрицательным целым: " + value);
+        }
+    }
+
+    private record ImportRow(int row, String username, boolean blocked, boolean restriction, int length, int month,
+                             String error) {
+    }
+
+    /**
+     * @param row номер строки CSV (с учётом заголовка) или элемента JSON-массива, начиная с 1
+     */
+    public record RowError(int row, String username, String error) {
+    }
+
+    public record ImportResult(int total, int created, List<RowError> errors) {
+    }
+
+    public enum ImportFormat {
+        CSV, JSON;
+
+        public static ImportFormat fromString(String value) {
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Не указан формат импорта (csv/json).");
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "json" -> JSON;
+                default -> throw new IllegalArgumentException("Некорректный формат. Используйте csv или json.");
+            };
+        }
+    }
+}
@@ -2,12 +2,22 @@ package com.example.autorisation.service;
 
 import com.example.autorisation.entity.User;
 import com.example.autorisation.repository.UserRepository;
+import com.example.autorisation.repository.UserSummary;
+import com.example.autorisation.security.PrincipalVersionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 public class UserService {
@@ -15,6 +25,8 @@ public class UserService {
     private UserRepository userRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private PrincipalVersionRegistry principalVersionRegistry;
 
     public User getUserById(Long id) {
         return userRepository.findById(id).orElse(null);
@@ -27,6 +39,7 @@ public class UserService {
                 user.setUsername(existing.getUsername());
                 user.setPassword(existing.getPassword());
                 user.setPasswordExpiresAt(existing.getPasswordExpiresAt());
+                user.setVersion(existing.getVersion());
                 if (user.isRestriction() && user.getMonth() > 0 ){
                     LocalDateTime expiresAt = user.getMonth() > 0
                             ? LocalDateTime.now().plusMonths(user.getMonth())
@@ -36,11 +49,18 @@ public class UserService {
                 if (user.getMonth() == 0){
                     user.setPasswordExpiresAt(null);
                 }
+                user.setPasswordExpired(isExpired(user.getPasswordExpiresAt()));
 
             }
         }
 
-        userRepository.save(user);
+        boolean created = user.getId() == null;
+        User saved = userRepository.save(user);
+        if (created) {
+            principalVersionRegistry.created(saved.getId(), saved.getVersion());
+        } else {
+            principalVersionRegistry.changed(saved.getId(), saved.getVersion());
+        }
     }
     public boolean usernameExists (String username) {
         return userRepository.findByUsername(username).isPresent();
@@ -57,14 +77,119 @@ public class UserService {
                 ? LocalDateTime.now().plusMonths(existing.getMonth())
                 : null;
         existing.setPasswordExpiresAt(expiresAt);
-        userRepository.save(existing);
+        existing.setPasswordExpired(false);
+        User saved = userRepository.save(existing);
+        principalVersionRegistry.changed(saved.getId(), saved.getVersion());
+    }
+
+    // Тот же критерий, что у PasswordExpirySweeper, чтобы правка админа не ждала следующего прохода
+    private static boolean isExpired(LocalDateTime expiresAt) {
+        return expiresAt != null && !expiresAt.isAfter(LocalDateTime.now());
     }
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        principalVersionRegistry.removed(id);
+    }
+
+    /**
+     * Страница списка пользователей для панели администратора. Страницы выбираются по ключу
+     * (значение поля сортировки и id крайней строки соседней страницы), поэтому переход
+     * к любой из них, включая первую и последнюю, не требует пропуска предыдущих строк.
+     * Последняя и предыдущая страницы читаются в обратном порядке сортировки и разворачиваются.
+     *
+     * @param anchorId id первой строки текущей страницы для PREVIOUS или последней для NEXT
+     * @param expiresBefore если задано, в список попадают только пароли со сроком не позже этой даты
+     */
+    public UserPage getUserPage(UserSort sort, Sort.Direction direction, Navigation navigation, Long anchorId,
+                                LocalDateTime expiresBefore, int size) {
+        Map<String, Object> anchor = null;
+        if (navigation == Navigation.NEXT || navigation == Navigation.PREVIOUS) {
+            anchor = anchorId == null ? null : userRepository.findSummaryById(anchorId)
+                    .map(user -> sort.keyOf(user))
+                    .orElse(null);
+            if (anchor == null) { // строку удалили — начинаем с начала списка
+                navigation = Navigation.FIRST;
+            }
+        }
+        boolean reversed = navigation == Navigation.LAST || navigation == Navigation.PREVIOUS;
+        Sort order = sort.order(reversed ? opposite(direction) : direction);
+        ScrollPosition position = anchor == null ? ScrollPosition.keyset() : ScrollPosition.forward(anchor);
+        Window<UserSummary> window = expiresBefore == null
+                ? userRepository.findBy(position, order, Limit.of(size))
+                : userRepository.findByPasswordExpiresAtLessThanEqual(expiresBefore, position, order, Limit.of(size));
+
+        if (window.isEmpty() && anchor != null) { // соседняя страница исчезла после удаления строк
+            return getUserPage(sort, direction, navigation == Navigation.NEXT ? Navigation.LAST : Navigation.FIRST,
+                    null, expiresBefore, size);
+        }
+        List<UserSummary> users = new ArrayList<>(window.getContent());
+        if (reversed) {
+            Collections.reverse(users);
+        }
+        boolean more = window.hasNext();
+        return switch (navigation) {
+            case FIRST -> new UserPage(users, sort, direction, false, more);
+            case NEXT -> new UserPage(users, sort, direction, true, more);
+            case PREVIOUS -> new UserPage(users, sort, direction, more, true);
+            case LAST -> new UserPage(users, sort, direction, more, false);
+        };
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    private static Sort.Direction opposite(Sort.Direction direction) {
+        return direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    public record UserPage(List<UserSummary> users, UserSort sort, Sort.Direction direction,
+                           boolean hasPrevious, boolean hasNext) {
+
+        public Long firstId() {
+            return users.isEmpty() ? null : users.get(0).id();
+        }
+
+        public Long lastId() {
+            return users.isEmpty() ? null : users.get(users.size() - 1).id();
+        }
+    }
+
+    public enum Navigation {
+        FIRST, PREVIOUS, NEXT, LAST
+    }
+
+    /** Поля, по которым возможна сортировка; id добавляется вторым ключом для однозначного порядка. */
+    public enum UserSort {
+        USERNAME("username"),
+        ID("id");
+
+        private final String property;
+
+        UserSort(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        Sort order(Sort.Direction direction) {
+            Sort order = Sort.by(direction, property);
+            return this == ID ? order : order.and(Sort.by(direction, "id"));
+        }
+
+        Map<String, Object> keyOf(UserSummary user) {
+            return this == ID ? Map.of("id", user.id()) : Map.of(property, user.username(), "id", user.id());
+        }
+
+        public static UserSort fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return USERNAME;
+            }
+            for (UserSort sort : values()) {
+                if (sort.property.equals(value.trim().toLowerCase(Locale.ROOT))) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестное поле сортировки: " + value);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.example.autorisation.crypto;
+
+import com.example.autorisation.build.Sha256ConstantsGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class Sha256ConstantsTest {
+
+    @Test
+    void generatedConstantsMatchDerivation() {
+        assertArrayEquals(Sha256ConstantsGenerator.initialHashes(), Sha256Constants.INITIAL_HASHES);
+        assertArrayEquals(Sha256ConstantsGenerator.roundConstants(), Sha256Constants.ROUND_CONSTANTS);
+    }
+
+    @Test
+    void hasherMatchesJdkImplementation() throws NoSuchAlgorithmException {
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+        Sha256Hasher hasher = new Sha256Hasher();
+        MessageDigest reference = MessageDigest.getInstance("SHA-256");
+
+        for (byte[] message : new byte[][]{new byte[0], "abc".getBytes(StandardCharsets.US_ASCII), random}) {
+            assertArrayEquals(reference.digest(message), hasher.digest(message));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.autorisation.repository;
+
+import com.example.autorisation.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тот же SQLite-диалект, что и в приложении: встроенная тестовая база не подменяет источник данных
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/user-repository-test.db",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTest {
+
+    // повторяющееся имя проверяет второй ключ сортировки (id) на границе страниц
+    private static final String[] USERNAMES = {"fedor", "boris", "anna", "elena", "boris", "clara", "dmitry"};
+    private static final Sort BY_USERNAME = Sort.by(Sort.Direction.ASC, "username").and(Sort.by(Sort.Direction.ASC, "id"));
+    private static final Sort BY_USERNAME_DESC = Sort.by(Sort.Direction.DESC, "username").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void keysetPagesOfSummariesScrollForwardAndBack() {
+        List<String> expected = List.of("anna", "boris", "boris", "clara", "dmitry", "elena", "fedor");
+        save();
+
+        List<UserSummary> forward = new ArrayList<>();
+        Window<UserSummary> page = userRepository.findBy(ScrollPosition.keyset(), BY_USERNAME, Limit.of(3));
+        forward.addAll(page.getContent());
+        while (page.hasNext()) {
+            UserSummary last = page.getContent().get(page.size() - 1);
+            page = userRepository.findBy(ScrollPosition.forward(keyOf(last)), BY_USERNAME, Limit.of(3));
+            forward.addAll(page.getContent());
+        }
+        assertEquals(expected, forward.stream().map(UserSummary::username).toList());
+        assertEquals(7, forward.stream().map(UserSummary::id).distinct().count());
+
+        // назад: обратный порядок от первой строки последней страницы, результат разворачивается
+        Window<UserSummary> lastPage = userRepository.findBy(ScrollPosition.keyset(), BY_USERNAME_DESC, Limit.of(3));
+        List<UserSummary> backward = new ArrayList<>(lastPage.getContent());
+        Collections.reverse(backward);
+        assertEquals(forward.subList(4, 7), backward);
+        assertTrue(lastPage.hasNext());
+
+        Window<UserSummary> previous = userRepository.findBy(ScrollPosition.forward(keyOf(backward.get(0))),
+                BY_USERNAME_DESC, Limit.of(3));
+        List<UserSummary> previousUsers = new ArrayList<>(previous.getContent());
+        Collections.reverse(previousUsers);
+        assertEquals(forward.subList(1, 4), previousUsers);
+        assertTrue(previous.hasNext());
+    }
+
+    @Test
+    void summaryCarriesDisplayedFields() {
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 1, 2, 3, 4, 5);
+        User user = new User(null, "anna", "hash", true, true, 12, 3, expiresAt);
+        Long id = userRepository.saveAndFlush(user).getId();
+
+        UserSummary summary = userRepository.findSummaryById(id).orElseThrow();
+
+        assertEquals(new UserSummary(id, "anna", true, true, 12, 3, expiresAt, false), summary);
+        Window<UserSummary> page = userRepository.findBy(ScrollPosition.keyset(), BY_USERNAME, Limit.of(10));
+        assertEquals(List.of(summary), page.getContent());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    void expiringFilterPagesOnlyPasswordsDueByTheDate() {
+        LocalDateTime until = LocalDateTime.of(2030, 6, 1, 0, 0);
+        String[] usernames = {"anna", "boris", "clara", "dmitry", "elena", "fedor"};
+        LocalDateTime[] dates = {until.minusDays(10), null, until, until.plusSeconds(1), until.minusYears(1),
+                until.minusDays(1)};
+        for (int i = 0; i < usernames.length; i++) {
+            userRepository.save(new User(null, usernames[i], "hash", false, true, 8, 1, dates[i]));
+        }
+        userRepository.flush();
+
+        Window<UserSummary> first = userRepository.findByPasswordExpiresAtLessThanEqual(until, ScrollPosition.keyset(),
+                BY_USERNAME, Limit.of(2));
+        UserSummary last = first.getContent().get(1);
+        Window<UserSummary> second = userRepository.findByPasswordExpiresAtLessThanEqual(until,
+                ScrollPosition.forward(keyOf(last)), BY_USERNAME, Limit.of(2));
+
+        assertEquals(List.of("anna", "clara"), first.stream().map(UserSummary::username).toList());
+        assertTrue(first.hasNext());
+        assertEquals(List.of("elena", "fedor"), second.stream().map(UserSummary::username).toList());
+        assertFalse(second.hasNext());
+    }
+
+    private void save() {
+        for (String username : USERNAMES) {
+            userRepository.save(new User(null, username, "hash", false, false, 0, 0, null));
+        }
+        userRepository.flush();
+    }
+
+    private static Map<String, Object> keyOf(UserSummary user) {
+        return Map.of("username", user.username(), "id", user.id());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.autorisation.security;
+
+import com.example.autorisation.entity.User;
+import com.example.autorisation.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrincipalRefreshFilterTest {
+
+    private static final Long ID = 5L;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PrincipalVersionRegistry versions = new PrincipalVersionRegistry();
+    private final PrincipalRefreshFilter filter = new PrincipalRefreshFilter(userRepository, versions);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sessionOfDeletedUserEndsWhenIdIsReissued() throws Exception {
+        // удалённый пользователь успел сменить пароль трижды, новый владелец id начинает с версии 0
+        versions.removed(ID);
+        versions.created(ID, 0);
+        when(userRepository.findById(ID)).thenReturn(Optional.of(user("boris", 0)));
+        MockHttpSession session = new MockHttpSession();
+        MockHttpServletRequest request = request(session, principal("anna", 3));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("/login?userNotFound", response.getRedirectedUrl());
+        assertNull(chain.getRequest());
+        assertTrue(session.isInvalid());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(Long.MAX_VALUE, versions.latest(ID));
+    }
+
+    @Test
+    void newOwnerOfReissuedIdKeepsSessionAndMarkerStays() throws Exception {
+        versions.removed(ID);
+        versions.created(ID, 0);
+        when(userRepository.findById(ID)).thenReturn(Optional.of(user("boris", 0)));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request(new MockHttpSession(), principal("boris", 0)), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        UserPrincipal refreshed = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals("boris", refreshed.username());
+        // метка удаления не снимается: сессия прежнего владельца id ещё может прийти с запросом
+        assertEquals(Long.MAX_VALUE, versions.latest(ID));
+    }
+
+    @Test
+    void reloadCorrectsVersionEstimateButChangesOnlyGrow() {
+        versions.changed(ID, 4);
+        versions.changed(ID, 2);
+        assertEquals(4, versions.latest(ID));
+
+        versions.reloaded(ID, 4, 3);
+        assertEquals(3, versions.latest(ID));
+        versions.reloaded(ID, 4, 1); // запись уже изменена другим чтением
+        assertEquals(3, versions.latest(ID));
+    }
+
+    private static User user(String username, long version) {
+        User user = new User(ID, username, "hash", false, false, 0, 0, null);
+        user.setVersion(version);
+        return user;
+    }
+
+    private static UserPrincipal principal(String username, long version) {
+        return UserPrincipal.of(user(username, version));
+    }
+
+    private static MockHttpServletRequest request(MockHttpSession session, UserPrincipal principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user");
+        request.setSession(session);
+        return request;
+    }
+}
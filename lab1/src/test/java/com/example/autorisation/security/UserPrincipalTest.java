@@ -0,0 +1,38 @@
+package com.example.autorisation.security;
+
+import com.example.autorisation.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserPrincipalTest {
+
+    @Test
+    void passwordPastItsDateIsExpiredBeforeTheSweep() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime[] dates = {null, now.plusDays(1), now.minusSeconds(1), now.minusDays(30)};
+        boolean[] expected = {true, true, false, false};
+
+        for (int i = 0; i < dates.length; i++) {
+            for (boolean flagged : new boolean[]{false, true}) {
+                User user = new User(1L, "anna", "hash", false, true, 8, 1, dates[i]);
+                user.setPasswordExpired(flagged);
+                String message = "expires " + dates[i] + ", flagged " + flagged;
+                assertEquals(expected[i] && !flagged, user.isCredentialsNonExpired(), message);
+                assertEquals(expected[i] && !flagged, UserPrincipal.of(user).isCredentialsNonExpired(), message);
+            }
+        }
+    }
+
+    @Test
+    void passwordWithoutRestrictionNeverExpires() {
+        User user = new User(1L, "anna", "hash", false, false, 0, 0, LocalDateTime.now().minusDays(1));
+        user.setPasswordExpired(true);
+
+        assertTrue(user.isCredentialsNonExpired());
+        assertTrue(UserPrincipal.of(user).isCredentialsNonExpired());
+    }
+}
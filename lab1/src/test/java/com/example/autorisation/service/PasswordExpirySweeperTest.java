@@ -0,0 +1,95 @@
+package com.example.autorisation.service;
+
+import com.example.autorisation.entity.User;
+import com.example.autorisation.repository.UserRepository;
+import com.example.autorisation.security.PrincipalVersionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/password-expiry-test.db",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PasswordExpirySweeperTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void sweepMarksDuePasswordsOnceAndNotifiesSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        Long overdue = save("overdue", now.minusDays(1), false);
+        Long justDue = save("just-due", now.minusMinutes(1), false);
+        Long soon = save("soon", now.plusDays(3), false);
+        Long later = save("later", now.plusDays(30), false);
+        Long unlimited = save("unlimited", null, false);
+        Long flagged = save("flagged", now.minusDays(2), true);
+        entityManager.clear();
+
+        PrincipalVersionRegistry versions = new PrincipalVersionRegistry();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        PasswordExpirySweeper sweeper = new PasswordExpirySweeper(userRepository, versions, Duration.ofDays(7), meters);
+        sweeper.sweep();
+        entityManager.clear();
+
+        for (Long id : new Long[]{overdue, justDue}) {
+            User user = userRepository.findById(id).orElseThrow();
+            assertTrue(user.isPasswordExpired(), user.getUsername());
+            assertEquals(1, user.getVersion(), user.getUsername());
+            assertEquals(1, versions.latest(id), user.getUsername());
+        }
+        for (Long id : new Long[]{soon, later, unlimited, flagged}) {
+            User user = userRepository.findById(id).orElseThrow();
+            assertEquals(id.equals(flagged), user.isPasswordExpired(), user.getUsername());
+            assertEquals(0, user.getVersion(), user.getUsername());
+            assertEquals(0, versions.latest(id), user.getUsername());
+        }
+        assertEquals(2, meters.get("auth.users.password.expired").counter().count());
+        assertEquals(1, meters.get("auth.users.password.expiring").gauge().value());
+
+        // повторный проход не находит новых истёкших паролей и версии не меняет
+        sweeper.sweep();
+        entityManager.clear();
+        assertEquals(2, meters.get("auth.users.password.expired").counter().count());
+        assertEquals(1, userRepository.findById(overdue).orElseThrow().getVersion());
+        assertFalse(userRepository.findById(soon).orElseThrow().isPasswordExpired());
+    }
+
+    @Test
+    void bulkUpdateSkipsFlaggedAndFutureRowsAndRaisesVersions() {
+        LocalDateTime now = LocalDateTime.now();
+        Long due = save("due", now.minusHours(1), false);
+        Long flagged = save("flagged", now.minusHours(1), true);
+        Long future = save("future", now.plusHours(1), false);
+        entityManager.clear();
+
+        assertEquals(1, userRepository.countByPasswordExpiredFalseAndPasswordExpiresAtLessThanEqual(now));
+        assertEquals(1, userRepository.markExpiredPasswords(now));
+        entityManager.clear();
+
+        assertEquals(1, userRepository.findById(due).orElseThrow().getVersion());
+        assertEquals(0, userRepository.findById(flagged).orElseThrow().getVersion());
+        assertFalse(userRepository.findById(future).orElseThrow().isPasswordExpired());
+        assertEquals(0, userRepository.markExpiredPasswords(now));
+    }
+
+    private Long save(String username, LocalDateTime expiresAt, boolean expired) {
+        User user = new User(null, username, "hash", false, true, 8, 1, expiresAt);
+        user.setPasswordExpired(expired);
+        return entityManager.persistAndFlush(user).getId();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.autorisation.service;
+
+import com.example.autorisation.service.UserImportService.ImportFormat;
+import com.example.autorisation.service.UserImportService.ImportResult;
+import com.example.autorisation.service.UserImportService.RowError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportServiceTest {
+
+    private static final String EXISTS = "Пользователь с таким именем уже существует";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvHeaderMayReorderColumnsAndQuoteCells() throws IOException {
+        JdbcTemplate jdbc = database(new JdbcTemplate());
+        String csv = "\uFEFFmonth;username;blocked\n"
+                + "3;\"ivan;petrov\";да\n"
+                + "\n"
+                + ";\"say \"\"hi\"\"\";0\n";
+
+        ImportResult result = service(jdbc).importUsers(new StringReader(csv), ImportFormat.CSV);
+
+        assertEquals(new ImportResult(2, 2, List.of()), result);
+        assertEquals(List.of(
+                Map.of("username", "ivan;petrov", "blocked", 1, "restriction", 0, "length", 0, "month", 3),
+                Map.of("username", "say \"hi\"", "blocked", 0, "restriction", 0, "length", 0, "month", 0)), users(jdbc));
+    }
+
+    @Test
+    void csvWithoutHeaderUsesDefaultColumnOrder() throws IOException {
+        JdbcTemplate jdbc = database(new JdbcTemplate());
+
+        ImportResult result = service(jdbc).importUsers(new StringReader("anna,true,yes,8,2\nboris\n"), ImportFormat.CSV);
+
+        assertEquals(new ImportResult(2, 2, List.of()), result);
+        assertEquals(List.of(
+                Map.of("username", "anna", "blocked", 1, "restriction", 1, "length", 8, "month", 2),
+                Map.of("username", "boris", "blocked", 0, "restriction", 0, "length", 0, "month", 0)), users(jdbc));
+    }
+
+    @Test
+    void jsonArrayOfUsersIsImported() throws IOException {
+        JdbcTemplate jdbc = database(new JdbcTemplate());
+        String json = "[{\"username\": \"anna\", \"restriction\": true, \"length\": 6}, {\"username\": \"boris\", \"month\": null}]";
+
+        ImportResult result = service(jdbc).importUsers(new StringReader(json), ImportFormat.JSON);
+
+        assertEquals(new ImportResult(2, 2, List.of()), result);
+        assertEquals(List.of(
+                Map.of("username", "anna", "blocked", 0, "restriction", 1, "length", 6, "month", 0),
+                Map.of("username", "boris", "blocked", 0, "restriction", 0, "length", 0, "month", 0)), users(jdbc));
+    }
+
+    @Test
+    void malformedJsonIsRejected() {
+        UserImportService service = service(database(new JdbcTemplate()));
+        for (String json : new String[]{"{\"username\": \"anna\"}", "[{\"username\": ", ""}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.importUsers(new StringReader(json), ImportFormat.JSON), json);
+        }
+    }
+
+    @Test
+    void rowErrorsAreReportedAndOtherRowsImported() throws IOException {
+        JdbcTemplate jdbc = database(new JdbcTemplate());
+        jdbc.update("insert into users (username) values ('taken')");
+        String csv = "username,blocked,restriction,length,month\n"
+                + "anna\n"
+                + ",1\n"
+                + "boris,maybe\n"
+                + "clara,0,0,-1\n"
+                + "anna\n"
+                + "taken\n"
+                + "dmitry,0,0,4,x\n"
+                + "elena\n";
+
+        ImportResult result = service(jdbc).importUsers(new StringReader(csv), ImportFormat.CSV);
+
+        assertEquals(8, result.total());
+        assertEquals(2, result.created());
+        assertEquals(List.of(
+                new RowError(3, "", "Не задано имя пользователя"),
+                new RowError(4, "boris", "Некорректное значение blocked: maybe"),
+                new RowError(5, "clara", "Значение length должно быть неотрицательным целым: -1"),
+                new RowError(6, "anna", "Имя повторяется в файле"),
+                new RowError(7, "taken", EXISTS),
+                new RowError(8, "dmitry", "Значение month должно быть неотрицательным целым: x")), result.errors());
+        assertEquals(List.of("taken", "anna", "elena"), jdbc.queryForList("select username from users order by id", String.class));
+    }
+
+    @Test
+    void userCreatedAfterLookupIsReportedAsExisting() throws IOException {
+        // имя занимает параллельный запрос: между поиском существующих и пакетной вставкой
+        JdbcTemplate jdbc = database(new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> setter) {
+                update("insert into users (username) values ('boris')");
+                return super.batchUpdate(sql, batchArgs, batchSize, setter);
+            }
+        });
+
+        ImportResult result = service(jdbc).importUsers(new StringReader("anna\nboris\nclara\n"), ImportFormat.CSV);
+
+        assertEquals(new ImportResult(3, 2, List.of(new RowError(2, "boris", EXISTS))), result);
+        assertEquals(1, jdbc.queryForObject("select count(*) from users where username = 'boris'", Integer.class));
+    }
+
+    private JdbcTemplate database(JdbcTemplate jdbc) {
+        jdbc.setDataSource(new DriverManagerDataSource("jdbc:sqlite:" + directory.resolve("users.db")));
+        jdbc.execute("create table users (id integer primary key autoincrement, username varchar(255), "
+                + "password varchar(255), blocked boolean default 0, restriction boolean default 0, "
+                + "length integer default 0, month integer default 0, password_expires_at timestamp, "
+                + "password_expired boolean default 0, version bigint default 0)");
+        return jdbc;
+    }
+
+    private static UserImportService service(JdbcTemplate jdbc) {
+        return new UserImportService(jdbc, new ObjectMapper());
+    }
+
+    private static List<Map<String, Object>> users(JdbcTemplate jdbc) {
+        return jdbc.queryForList("select username, blocked, restriction, length, month from users order by id");
+    }
+}
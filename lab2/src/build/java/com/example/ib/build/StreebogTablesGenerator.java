@@ -0,0 +1,248 @@
+package com.example.ib.build;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Генератор таблиц ГОСТ Р 34.11-2012 (Стрибог), запускаемый на этапе generate-sources.
+ * Из констант стандарта (итерационные константы C, подстановка π, перестановка τ и матрица
+ * линейного преобразования A) вычисляет итерационные константы в виде байтов и восемь таблиц
+ * T[8][256], объединяющих преобразования S, P и L, и записывает их в исходный файл
+ * {@code com/example/ib/crypto/StreebogTables.java}. Хэшер берёт готовые массивы, поэтому при
+ * загрузке класса ничего не вычисляется.
+ * <p>
+ * Запускается как однофайловая программа ({@code java StreebogTablesGenerator.java <каталог>}),
+ * поэтому зависит только от JDK. Тест StreebogTablesTest сравнивает сгенерированные таблицы
+ * с результатом {@link #transformationTables()}.
+ */
+public final class StreebogTablesGenerator {
+
+    private static final int BLOCK_SIZE = 64;
+    private static final String PACKAGE = "com.example.ib.crypto";
+    private static final String CLASS_NAME = "StreebogTables";
+
+    private static final String[] C_HEX = {
+        "B1085BDA1ECADAE9EBCB2F81C0657C1F2F6A76432E45D016714EB88D7585C4FC4B7CE09192676901A2422A08A460D31505767436CC744D23DD806559F2A64507",
+        "6FA3B58AA99D2F1A4FE39D460F70B5D7F3FEEA720A232B9861D55E0F16B501319AB5176B12D699585CB561C2DB0AA7CA55DDA21BD7CBCD56E679047021B19BB7",
+        "F574DCAC2BCE2FC70A39FC286A3D843506F15E5F529C1F8BF2EA7514B1297B7BD3E20FE490359EB1C1C93A376062DB09C2B6F443867ADB31991E96F50ABA0AB2",
+        "EF1FDFB3E81566D2F948E1A05D71E4DD488E857E335C3C7D9D721CAD685E353FA9D72C82ED03D675D8B71333935203BE3453EAA193E837F1220CBEBC84E3D12E",
+        "4BEA6BACAD4747999A3F410C6CA923637F151C1F1686104A359E35D7800FFFBDBFCD1747253AF5A3DFFF00B723271A167A56A27EA9EA63F5601758FD7C6CFE57",
+        "AE4FAEAE1D3AD3D96FA4C33B7A3039C02D66C4F95142A46C187F9AB49AF08EC6CFFAA6B71C9AB7B40AF21F66C2BEC6B6BF71C57236904F35FA68407A46647D6E",
+        "F4C70E16EEAAC5EC51AC86FEBF240954399EC6C7E6BF87C9D3473E33197A93C90992ABC52D822C3706476983284A05043517454CA23C4AF38886564D3A14D493",
+        "9B1F5B424D93C9A703E7AA020C6E41414EB7F8719C36DE1E89B4443B4DDBC49AF4892BCB929B069069D18D2BD1A5C42F36ACC2355951A8D9A47F0DD4BF02E71E",
+        "378F5A541631229B944C9AD8EC165FDE3A7D3A1B258942243CD955B7E00D0984800A440BDBB2CEB17B2B8A9AA6079C540E38DC92CB1F2A607261445183235ADB",
+        "ABBEDEA680056F52382AE548B2E4F3F38941E71CFF8A78DB1FFFE18A1B3361039FE76702AF69334B7A1E6C303B7652F43698FAD1153BB6C374B4C7FB98459CED",
+        "7BCD9ED0EFC889FB3002C6CD635AFE94D8FA6BBBEBAB076120018021148466798A1D71EFEA48B9CAEFBACD1D7D476E98DEA2594AC06FD85D6BCAA4CD81F32D1B",
+        "378EE767F11631BAD21380B00449B17ACDA43C32BCDF1D77F82012D430219F9B5D80EF9D1891CC86E71DA4AA88E12852FAF417D5D9B21B9948BC924AF11BD720",
+    };
+
+    private static final int[] SBOX_DECIMAL = {
+        252, 238, 221, 17, 207, 110, 49, 22, 251, 196, 250, 218, 35, 197, 4, 77,
+        233, 119, 240, 219, 147, 46, 153, 186, 23, 54, 241, 187, 20, 205, 95, 193,
+        249, 24, 101, 90, 226, 92, 239, 33, 129, 28, 60, 66, 139, 1, 142, 79,
+        5, 132, 2, 174, 227, 106, 143, 160, 6, 11, 237, 152, 127, 212, 211, 31,
+        235, 52, 44, 81, 234, 200, 72, 171, 242, 42, 104, 162, 253, 58, 206, 204,
+        181, 112, 14, 86, 8, 12, 118, 18, 191, 114, 19, 71, 156, 183, 93, 135,
+        21, 161, 150, 41, 16, 123, 154, 199, 243, 145, 120, 111, 157, 158, 178, 177,
+        50, 117, 25, 61, 255, 53, 138, 126, 109, 84, 198, 128, 195, 189, 13, 87,
+        223, 245, 36, 169, 62, 168, 67, 201, 215, 121, 214, 246, 124, 34, 185, 3,
+        224, 15, 236, 222, 122, 148, 176, 188, 220, 232, 40, 80, 78, 51, 10, 74,
+        167, 151, 96, 115, 30, 0, 98, 68, 26, 184, 56, 130, 100, 159, 38, 65,
+        173, 69, 70, 146, 39, 94, 85, 47, 140, 163, 165, 125, 105, 213, 149, 59,
+        7, 88, 179, 64, 134, 172, 29, 247, 48, 55, 107, 228, 136, 217, 231, 137,
+        225, 27, 131, 73, 76, 63, 248, 254, 141, 83, 170, 144, 202, 216, 133, 97,
+        32, 113, 103, 164, 45, 43, 9, 91, 203, 155, 37, 208, 190, 229, 108, 82,
+        89, 166, 116, 210, 230, 244, 180, 192, 209, 102, 175, 194, 57, 75, 99, 182,
+    };
+
+    private static final byte[] TAU = {
+        0, 8, 16, 24, 32, 40, 48, 56, 1, 9, 17, 25, 33, 41, 49, 57,
+        2, 10, 18, 26, 34, 42, 50, 58, 3, 11, 19, 27, 35, 43, 51, 59,
+        4, 12, 20, 28, 36, 44, 52, 60, 5, 13, 21, 29, 37, 45, 53, 61,
+        6, 14, 22, 30, 38, 46, 54, 62, 7, 15, 23, 31, 39, 47, 55, 63,
+    };
+
+    private static final long[] LINEAR_MATRIX = {
+        0x8E20FAA72BA0B470L, 0x47107DDD9B505A38L, 0xAD08B0E0C3282D1CL, 0xD8045870EF14980EL,
+        0x6C022C38F90A4C07L, 0x3601161CF205268DL, 0x1B8E0B0E798C13C8L, 0x83478B07B2468764L,
+        0xA011D380818E8F40L, 0x5086E740CE47C920L, 0x2843FD2067ADEA10L, 0x14AFF010BDD87508L,
+        0x0AD97808D06CB404L, 0x05E23C0468365A02L, 0x8C711E02341B2D01L, 0x46B60F011A83988EL,
+        0x90DAB52A387AE76FL, 0x486DD4151C3DFDB9L, 0x24B86A840E90F0D2L, 0x125C354207487869L,
+        0x092E94218D243CBAL, 0x8A174A9EC8121E5DL, 0x4585254F64090FA0L, 0xACCC9CA9328A8950L,
+        0x9D4DF05D5F661451L, 0xC0A878A0A1330AA6L, 0x60543C50DE970553L, 0x302A1E286FC58CA7L,
+        0x18150F14B9EC46DDL, 0x0C84890AD27623E0L, 0x0642CA05693B9F70L, 0x0321658CBA93C138L,
+        0x86275DF09CE8AAA8L, 0x439DA0784E745554L, 0xAFC0503C273AA42AL, 0xD960281E9D1D5215L,
+        0xE230140FC0802984L, 0x71180A8960409A42L, 0xB60C05CA30204D21L, 0x5B068C651810A89EL,
+        0x456C34887A3805B9L, 0xAC361A443D1C8CD2L, 0x561B0D22900E4669L, 0x2B838811480723BAL,
+        0x9BCF4486248D9F5DL, 0xC3E9224312C8C1A0L, 0xEFFA11AF0964EE50L, 0xF97D86D98A327728L,
+        0xE4FA2054A80B329CL, 0x727D102A548B194EL, 0x39B008152ACB8227L, 0x9258048415EB419DL,
+        0x492C024284FBAEC0L, 0xAA16012142F35760L, 0x550B8E9E21F7A530L, 0xA48B474F9EF5DC18L,
+        0x70A6A56E2440598EL, 0x3853DC371220A247L, 0x1CA76E95091051ADL, 0x0EDD37C48A08A6D8L,
+        0x07E095624504536CL, 0x8D70C431AC02A736L, 0xC83862965601DD1BL, 0x641C314B2B8EE083L,
+    };
+
+    private StreebogTablesGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Использование: StreebogTablesGenerator <каталог сгенерированных исходников>");
+        }
+        Path file = Path.of(args[0]).resolve(PACKAGE.replace('.', '/')).resolve(CLASS_NAME + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, render(), StandardCharsets.UTF_8);
+    }
+
+    /** Итерационные константы C1..C12 в порядке байтов, в котором их использует хэшер. */
+    public static byte[][] iterationConstants() {
+        byte[][] constants = new byte[C_HEX.length][];
+        for (int i = 0; i < C_HEX.length; i++) {
+            constants[i] = hexToBytes(C_HEX[i]);
+        }
+        return constants;
+    }
+
+    public static byte[] sbox() {
+        byte[] sbox = new byte[SBOX_DECIMAL.length];
+        for (int i = 0; i < SBOX_DECIMAL.length; i++) {
+            int decimalValue = SBOX_DECIMAL[i];
+            if (decimalValue < 0 || decimalValue > 255) {
+                throw new IllegalArgumentException("S-box value out of range: " + decimalValue);
+            }
+            sbox[i] = (byte) decimalValue;
+        }
+        return sbox;
+    }
+
+    /**
+     * Таблицы T: T[k][v] — результат преобразования L(P(S(x))) для блока, в котором байт
+     * с номером k слова состояния равен v, а остальные нулевые. Вычисляются прямым
+     * побитовым применением матрицы A, как записано в стандарте.
+     */
+    public static long[][] transformationTables() {
+        byte[] sbox = sbox();
+        long[][] tables = new long[8][256];
+        byte[] block = new byte[BLOCK_SIZE];
+        byte[] spec = new byte[BLOCK_SIZE];
+        byte[] buffer = new byte[BLOCK_SIZE];
+        for (int table = 0; table < 8; table++) {
+            int index = (7 - table) * 8;
+            for (int value = 0; value < 256; value++) {
+                Arrays.fill(block, (byte) 0);
+                block[index] = sbox[value];
+                toSpecOrder(block, spec);
+                pTransform(spec, buffer);
+                lTransform(spec);
+                fromSpecOrder(spec, block);
+                tables[7 - table][value] = readBigEndianLong(block, 0);
+            }
+        }
+        return tables;
+    }
+
+    static String render() {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(PACKAGE).append(";\n\n");
+        out.append("/**\n");
+        out.append(" * Таблицы ГОСТ Р 34.11-2012, сгенерированные StreebogTablesGenerator на этапе сборки.\n");
+        out.append(" * Файл создаётся заново при каждой сборке, править его вручную не нужно.\n");
+        out.append(" */\n");
+        out.append("final class ").append(CLASS_NAME).append(" {\n\n");
+
+        out.append("    static final byte[][] C = {\n");
+        for (byte[] constant : iterationConstants()) {
+            out.append("        {");
+            for (int i = 0; i < constant.length; i++) {
+                if (i % 8 == 0) {
+                    out.append("\n            ");
+                } else {
+                    out.append(' ');
+                }
+                out.append(String.format(Locale.ROOT, "(byte) 0x%02X,", constant[i] & 0xFF));
+            }
+            out.append("\n        },\n");
+        }
+        out.append("    };\n\n");
+
+        out.append("    static final long[][] T = {\n");
+        for (long[] table : transformationTables()) {
+            out.append("        {");
+            for (int i = 0; i < table.length; i++) {
+                if (i % 4 == 0) {
+                    out.append("\n            ");
+                } else {
+                    out.append(' ');
+                }
+                out.append(String.format(Locale.ROOT, "0x%016XL,", table[i]));
+            }
+            out.append("\n        },\n");
+        }
+        out.append("    };\n\n");
+
+        out.append("    private ").append(CLASS_NAME).append("() {\n    }\n}\n");
+        return out.toString();
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < hex.length(); i += 2) {
+            result[i / 2] = (byte) Integer.parseInt(hex.substring(i, i + 2), 16);
+        }
+        return result;
+    }
+
+    private static void pTransform(byte[] block, byte[] buffer) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            buffer[i] = block[TAU[i]];
+        }
+        System.arraycopy(buffer, 0, block, 0, BLOCK_SIZE);
+    }
+
+    private static void lTransform(byte[] block) {
+        for (int chunk = 0; chunk < 8; chunk++) {
+            int offset = chunk * 8;
+            long value = 0L;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (block[offset + i] & 0xFFL);
+            }
+            long transformed = mapWithA(value);
+            for (int i = 0; i < 8; i++) {
+                block[offset + i] = (byte) (transformed >>> (56 - 8 * i));
+            }
+        }
+    }
+
+    private static long mapWithA(long value) {
+        long result = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (((value >>> bit) & 1L) != 0) {
+                result ^= LINEAR_MATRIX[63 - bit];
+            }
+        }
+        return result;
+    }
+
+    private static long readBigEndianLong(byte[] block, int offset) {
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (block[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static void toSpecOrder(byte[] source, byte[] target) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            target[i] = source[BLOCK_SIZE - 1 - i];
+        }
+    }
+
+    private static void fromSpecOrder(byte[] source, byte[] target) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            target[i] = source[BLOCK_SIZE - 1 - i];
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.ib.controller;
 
+import com.example.ib.crypto.HashAlgorithm;
 import com.example.ib.service.FileHashService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -11,10 +13,13 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class HashController {
 
     private final FileHashService fileHashService;
@@ -31,10 +36,15 @@ public class HashController {
 
     @PostMapping(value = "/hash", consumes = "multipart/form-data")
     @ResponseBody
-    public ResponseEntity<Map<String, String>> computeHash(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> computeHash(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "algorithms", required = false) List<String> algorithms) {
         try {
-            String hash = fileHashService.computeHash(file);
-            return ResponseEntity.ok(Map.of("hash", hash));
+            Map<HashAlgorithm, String> hashes = fileHashService.computeHashes(file, algorithms);
+            Map<String, String> byId = new LinkedHashMap<>();
+            hashes.forEach((algorithm, hash) -> byId.put(algorithm.getId(), hash));
+            String primary = hashes.getOrDefault(HashAlgorithm.STREEBOG_512, hashes.values().iterator().next());
+            return ResponseEntity.ok(Map.of("hash", primary, "hashes", byId));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
@@ -0,0 +1,97 @@
+package com.example.ib.controller;
+
+import com.example.ib.service.HashUploadService;
+import com.example.ib.service.HashUploadService.OffsetMismatchException;
+import com.example.ib.service.HashUploadService.SessionNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Протокол возобновляемой загрузки: POST открывает сессию, PUT с параметром offset
+ * передаёт очередную часть, GET возвращает подтверждённое смещение для продолжения,
+ * POST .../complete завершает загрузку и возвращает хэш.
+ */
+@Controller
+@RequestMapping("/hash/uploads")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class HashUploadController {
+
+    private final HashUploadService uploadService;
+
+    public HashUploadController(HashUploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<?> open(@RequestParam(value = "algorithm", required = false) String algorithm) {
+        return handle(() -> ResponseEntity.status(HttpStatus.CREATED).body(uploadService.open(algorithm)));
+    }
+
+    @GetMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<?> status(@PathVariable String id) {
+        return handle(() -> ResponseEntity.ok(uploadService.status(id)));
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> append(@PathVariable String id,
+                                    @RequestParam("offset") long offset,
+                                    HttpServletRequest request) {
+        return handle(() -> ResponseEntity.ok(uploadService.append(id, offset, request.getInputStream())));
+    }
+
+    @PostMapping("/{id}/complete")
+    @ResponseBody
+    public ResponseEntity<?> complete(@PathVariable String id) {
+        return handle(() -> ResponseEntity.ok(uploadService.complete(id)));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<?> abort(@PathVariable String id) {
+        return handle(() -> {
+            uploadService.abort(id);
+            return ResponseEntity.noContent().build();
+        });
+    }
+
+    private ResponseEntity<?> handle(UploadAction action) {
+        try {
+            return action.run();
+        } catch (SessionNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (OffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage(), "offset", e.getExpectedOffset()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Не удалось обработать часть файла. Повторите попытку с последнего смещения."));
+        }
+    }
+
+    @FunctionalInterface
+    private interface UploadAction {
+        ResponseEntity<?> run() throws IOException;
+    }
+}
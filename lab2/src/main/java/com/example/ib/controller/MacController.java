@@ -0,0 +1,56 @@
+package com.example.ib.controller;
+
+import com.example.ib.service.MacService;
+import com.example.ib.service.MacService.BatchVerifyRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MacController {
+
+    private final MacService macService;
+
+    public MacController(MacService macService) {
+        this.macService = macService;
+    }
+
+    @PostMapping(value = "/hmac", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> computeMac(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("keyHex") String keyHex,
+            @RequestParam(value = "algorithm", required = false) String algorithm) {
+        try {
+            return ResponseEntity.ok(Map.of("mac", macService.computeMac(file, keyHex, algorithm)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Не удалось обработать файл. Повторите попытку позже."));
+        }
+    }
+
+    @PostMapping(value = "/hmac/verify", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> verifyBatch(@RequestBody BatchVerifyRequest request) {
+        try {
+            return ResponseEntity.ok(macService.verifyBatch(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Не удалось выполнить проверку. Повторите попытку позже."));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.HashAlgorithm;
+import com.example.ib.service.FileHashService;
+import com.example.ib.service.FileHashService.HashSession;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковое хэширование для реактивного профиля: тело запроса (сам файл, без multipart)
+ * читается частями {@link DataBuffer} и передаётся в сеанс {@link FileHashService},
+ * поток на загрузку не выделяется. Ответ совпадает по формату с {@code POST /hash}.
+ */
+@Controller
+@RequestMapping("/stream")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHashController {
+
+    private final FileHashService fileHashService;
+
+    public ReactiveHashController(FileHashService fileHashService) {
+        this.fileHashService = fileHashService;
+    }
+
+    @PostMapping(value = "/hash", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> computeHash(
+            @RequestParam(value = "algorithms", required = false) List<String> algorithms,
+            @RequestBody Flux<DataBuffer> body) {
+        HashSession session = fileHashService.openSession(algorithms);
+        ChunkReader reader = new ChunkReader();
+        return body.doOnNext(buffer -> {
+                    try {
+                        int length = reader.read(buffer);
+                        session.update(reader.chunk, 0, length);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .then(Mono.fromCallable(session::finish))
+                .map(hashes -> {
+                    Map<String, String> byId = new LinkedHashMap<>();
+                    hashes.forEach((algorithm, hash) -> byId.put(algorithm.getId(), hash));
+                    String primary = hashes.getOrDefault(HashAlgorithm.STREEBOG_512, hashes.values().iterator().next());
+                    return ResponseEntity.ok(Map.of("hash", primary, "hashes", byId));
+                });
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /** Буфер для копирования части запроса; части одного запроса приходят последовательно. */
+    private static final class ChunkReader {
+        private byte[] chunk = new byte[8192];
+
+        int read(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            if (chunk.length < length) {
+                chunk = new byte[length];
+            }
+            buffer.read(chunk, 0, length);
+            return length;
+        }
+    }
+}
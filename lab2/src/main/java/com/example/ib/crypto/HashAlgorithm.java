@@ -0,0 +1,105 @@
+package com.example.ib.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+public enum HashAlgorithm {
+    STREEBOG_512("streebog-512") {
+        @Override
+        DigestLane newLane() {
+            return new StreebogLane(Gost34112012Hasher.DIGEST_SIZE_512);
+        }
+    },
+    STREEBOG_256("streebog-256") {
+        @Override
+        DigestLane newLane() {
+            return new StreebogLane(Gost34112012Hasher.DIGEST_SIZE_256);
+        }
+    },
+    SHA_256("sha-256") {
+        @Override
+        DigestLane newLane() {
+            return new JdkLane("SHA-256");
+        }
+    },
+    SHA_512("sha-512") {
+        @Override
+        DigestLane newLane() {
+            return new JdkLane("SHA-512");
+        }
+    };
+
+    private final String id;
+
+    HashAlgorithm(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    abstract DigestLane newLane();
+
+    public static HashAlgorithm fromString(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Не указан алгоритм хэширования.");
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT).replace("_", "-");
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.id.equals(normalized) || algorithm.id.replace("-", "").equals(normalized)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный алгоритм хэширования: " + value);
+    }
+
+    interface DigestLane {
+        void update(byte[] data, int off, int len);
+
+        byte[] digest();
+    }
+
+    private static final class StreebogLane implements DigestLane {
+        private final Gost34112012Hasher.DigestState state;
+
+        StreebogLane(int digestSize) {
+            state = new Gost34112012Hasher.DigestState(digestSize);
+        }
+
+        @Override
+        public void update(byte[] data, int off, int len) {
+            state.update(data, off, len);
+        }
+
+        @Override
+        public byte[] digest() {
+            byte[] out = new byte[state.getDigestSize()];
+            state.doFinal(out, 0);
+            return out;
+        }
+    }
+
+    private static final class JdkLane implements DigestLane {
+        private final MessageDigest digest;
+
+        JdkLane(String name) {
+            try {
+                digest = MessageDigest.getInstance(name);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Алгоритм " + name + " недоступен в JDK.", e);
+            }
+        }
+
+        @Override
+        public void update(byte[] data, int off, int len) {
+            digest.update(data, off, len);
+        }
+
+        @Override
+        public byte[] digest() {
+            return digest.digest();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ib.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * HMAC на основе ГОСТ Р 34.11-2012 (HMAC_GOSTR3411_2012_256/512, RFC 7836).
+ * Состояния хэш-функции после обработки блоков K xor ipad и K xor opad вычисляются
+ * один раз при создании объекта и копируются для каждого сообщения, поэтому блоки
+ * ключа не обрабатываются повторно. Экземпляр потокобезопасен.
+ */
+public final class HmacStreebog {
+    private static final int BLOCK_SIZE = 64;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5C;
+
+    private final int macSize;
+    private final Gost34112012Hasher.DigestState inner;
+    private final Gost34112012Hasher.DigestState outer;
+
+    private HmacStreebog(byte[] key, int macSize) {
+        this.macSize = macSize;
+        byte[] padded = new byte[BLOCK_SIZE];
+        if (key.length > BLOCK_SIZE) {
+            Gost34112012Hasher.DigestState keyDigest = new Gost34112012Hasher.DigestState(macSize);
+            keyDigest.update(key, 0, key.length);
+            keyDigest.doFinal(padded, 0);
+        } else {
+            System.arraycopy(key, 0, padded, 0, key.length);
+        }
+        byte[] pad = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] = (byte) (padded[i] ^ IPAD);
+        }
+        inner = new Gost34112012Hasher.DigestState(macSize);
+        inner.update(pad, 0, BLOCK_SIZE);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] = (byte) (padded[i] ^ OPAD);
+        }
+        outer = new Gost34112012Hasher.DigestState(macSize);
+        outer.update(pad, 0, BLOCK_SIZE);
+        Arrays.fill(padded, (byte) 0);
+        Arrays.fill(pad, (byte) 0);
+    }
+
+    public static HmacStreebog forKey(byte[] key, int macSize) {
+        if (key == null || key.length == 0) {
+            throw new IllegalArgumentException("Ключ HMAC не может быть пустым.");
+        }
+        return new HmacStreebog(key, macSize);
+    }
+
+    public int getMacSize() {
+        return macSize;
+    }
+
+    public byte[] mac(byte[] data, int off, int len) {
+        Gost34112012Hasher.DigestState state = inner.copy();
+        state.update(data, off, len);
+        return finish(state);
+    }
+
+    public byte[] mac(InputStream inputStream) throws IOException {
+        Gost34112012Hasher.DigestState state = inner.copy();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            state.update(buffer, 0, read);
+        }
+        return finish(state);
+    }
+
+    /** Проверка имитовставки за время, не зависящее от позиции первого расхождения. */
+    public boolean verify(byte[] data, byte[] tag) {
+        if (tag == null || tag.length != macSize) {
+            return false;
+        }
+        return MessageDigest.isEqual(mac(data, 0, data.length), tag);
+    }
+
+    private byte[] finish(Gost34112012Hasher.DigestState state) {
+        byte[] innerHash = new byte[macSize];
+        state.doFinal(innerHash, 0);
+        Gost34112012Hasher.DigestState outerState = outer.copy();
+        outerState.update(innerHash, 0, macSize);
+        byte[] result = new byte[macSize];
+        outerState.doFinal(result, 0);
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.ib.crypto;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Вычисляет несколько хэшей за один проход по входному потоку: каждый прочитанный блок
+ * передаётся во все выбранные алгоритмы. В параллельном режиме алгоритмы обрабатывают
+ * блок на отдельных потоках, пока следующий блок читается из входного потока.
+ * Блоки читаются в массивы в куче: данные приходят из InputStream загрузки, и буфер вне кучи
+ * добавил бы к чтению ещё одно копирование.
+ */
+@Component
+public class MultiDigestHasher {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ExecutorService lanes;
+
+    public MultiDigestHasher() {
+        int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+        AtomicInteger counter = new AtomicInteger();
+        this.lanes = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "digest-lane-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Map<HashAlgorithm, byte[]> digest(InputStream inputStream, List<HashAlgorithm> algorithms, boolean parallel)
+            throws IOException {
+        if (algorithms == null || algorithms.isEmpty()) {
+            throw new IllegalArgumentException("Не выбран ни один алгоритм хэширования.");
+        }
+        Map<HashAlgorithm, HashAlgorithm.DigestLane> states = new EnumMap<>(HashAlgorithm.class);
+        for (HashAlgorithm algorithm : algorithms) {
+            states.computeIfAbsent(algorithm, HashAlgorithm::newLane);
+        }
+        if (parallel && states.size() > 1) {
+            digestParallel(inputStream, states.values());
+        } else {
+            digestSequential(inputStream, states.values());
+        }
+        Map<HashAlgorithm, byte[]> result = new EnumMap<>(HashAlgorithm.class);
+        states.forEach((algorithm, lane) -> result.put(algorithm, lane.digest()));
+        return result;
+    }
+
+    /**
+     * Открывает сеанс вычисления хэшей по частям: данные передаются вызовами
+     * {@link Session#update(byte[], int, int)} по мере поступления, без входного потока.
+     */
+    public Session open(List<HashAlgorithm> algorithms) {
+        if (algorithms == null || algorithms.isEmpty()) {
+            throw new IllegalArgumentException("Не выбран ни один алгоритм хэширования.");
+        }
+        Map<HashAlgorithm, HashAlgorithm.DigestLane> states = new EnumMap<>(HashAlgorithm.class);
+        for (HashAlgorithm algorithm : algorithms) {
+            states.computeIfAbsent(algorithm, HashAlgorithm::newLane);
+        }
+        return new Session(states);
+    }
+
+    private void digestSequential(InputStream inputStream, Iterable<HashAlgorithm.DigestLane> states) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int read;
+        while ((read = inputStream.readNBytes(buffer, 0, CHUNK_SIZE)) > 0) {
+            for (HashAlgorithm.DigestLane lane : states) {
+                lane.update(buffer, 0, read);
+            }
+        }
+    }
+
+    // Двойная буферизация: пока алгоритмы обрабатывают текущий блок, читается следующий.
+    private void digestParallel(InputStream inputStream, Iterable<HashAlgorithm.DigestLane> states) throws IOException {
+        byte[] current = new byte[CHUNK_SIZE];
+        byte[] next = new byte[CHUNK_SIZE];
+        int read = inputStream.readNBytes(current, 0, CHUNK_SIZE);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        while (read > 0) {
+            byte[] chunk = current;
+            int length = read;
+            pending.clear();
+            for (HashAlgorithm.DigestLane lane : states) {
+                pending.add(CompletableFuture.runAsync(() -> lane.update(chunk, 0, length), lanes));
+            }
+            try {
+                read = inputStream.readNBytes(next, 0, CHUNK_SIZE);
+            } finally {
+                awaitAll(pending);
+            }
+            current = next;
+            next = chunk;
+        }
+    }
+
+    private void awaitAll(List<CompletableFuture<Void>> pending) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Ошибка при вычислении хэша.", cause);
+        }
+    }
+
+    /** Сеанс хэширования по частям; не потокобезопасен, части передаются последовательно. */
+    public static final class Session {
+        private final Map<HashAlgorithm, HashAlgorithm.DigestLane> states;
+        private long bytes;
+
+        private Session(Map<HashAlgorithm, HashAlgorithm.DigestLane> states) {
+            this.states = states;
+        }
+
+        public void update(byte[] data, int off, int len) {
+            for (HashAlgorithm.DigestLane lane : states.values()) {
+                lane.update(data, off, len);
+            }
+            bytes += len;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public Map<HashAlgorithm, byte[]> digest() {
+            Map<HashAlgorithm, byte[]> result = new EnumMap<>(HashAlgorithm.class);
+            states.forEach((algorithm, lane) -> result.put(algorithm, lane.digest()));
+            return result;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdownNow();
+    }
+}
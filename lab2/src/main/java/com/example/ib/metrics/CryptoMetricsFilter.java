@@ -0,0 +1,91 @@
+package com.example.ib.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Замеряет полное время обработки запросов к {@code /hash} и {@code /hmac} и фазу записи ответа:
+ * от первого обращения к потоку ответа до завершения цепочки фильтров.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CryptoMetricsFilter extends OncePerRequestFilter {
+
+    private final CryptoMetrics metrics;
+
+    public CryptoMetricsFilter(CryptoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return operationOf(request) == null;
+    }
+
+    private String operationOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/hash")) {
+            return "hash";
+        }
+        if (path.startsWith("/hmac")) {
+            return "hmac";
+        }
+        return null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String operation = operationOf(request);
+        long start = System.nanoTime();
+        TimedResponse timedResponse = new TimedResponse(response);
+        try (CryptoMetrics.InFlight ignored = metrics.begin(operation)) {
+            chain.doFilter(request, timedResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            metrics.recordError(operation, e);
+            throw e;
+        } finally {
+            long end = System.nanoTime();
+            if (timedResponse.firstWrite > 0) {
+                metrics.recordPhase(operation, CryptoMetrics.PHASE_RESPONSE, end - timedResponse.firstWrite);
+            }
+            metrics.recordPhase(operation, CryptoMetrics.PHASE_TOTAL, end - start);
+        }
+    }
+
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private long firstWrite;
+
+        TimedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            markWrite();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            markWrite();
+            return super.getWriter();
+        }
+
+        private void markWrite() {
+            if (firstWrite == 0) {
+                firstWrite = System.nanoTime();
+            }
+        }
+    }
+}
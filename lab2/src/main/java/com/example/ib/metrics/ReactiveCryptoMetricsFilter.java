@@ -0,0 +1,42 @@
+package com.example.ib.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реактивный аналог {@link CryptoMetricsFilter} для {@code /stream/hash}: число запросов в работе,
+ * полное время обработки и ошибки. Время отсчитывается от подписки до завершения ответа.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCryptoMetricsFilter implements WebFilter {
+
+    private static final String OPERATION = "hash";
+
+    private final CryptoMetrics metrics;
+
+    public ReactiveCryptoMetricsFilter(CryptoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().pathWithinApplication().value().startsWith("/stream/hash")) {
+            return chain.filter(exchange);
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            CryptoMetrics.InFlight inFlight = metrics.begin(OPERATION);
+            return chain.filter(exchange)
+                    .doOnError(e -> metrics.recordError(OPERATION, e))
+                    .doFinally(signal -> {
+                        inFlight.close();
+                        metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_TOTAL, System.nanoTime() - start);
+                    });
+        });
+    }
+}
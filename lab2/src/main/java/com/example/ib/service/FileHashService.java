@@ -1,34 +1,146 @@
 package com.example.ib.service;
 
 import com.example.ib.crypto.Gost34112012Hasher;
+import com.example.ib.crypto.HashAlgorithm;
+import com.example.ib.crypto.MultiDigestHasher;
+import com.example.ib.metrics.CryptoMetrics;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class FileHashService {
     private static final long MIN_SIZE_BYTES = 1024;
-    private final Gost34112012Hasher hasher;
+    private static final long PARALLEL_THRESHOLD_BYTES = 8L * 1024 * 1024;
+    private static final String OPERATION = "hash";
+    private final MultiDigestHasher hasher;
+    private final CryptoMetrics metrics;
 
-    public FileHashService(Gost34112012Hasher hasher) {
+    public FileHashService(MultiDigestHasher hasher, CryptoMetrics metrics) {
         this.hasher = hasher;
+        this.metrics = metrics;
     }
 
-    public String computeHash(MultipartFile file) throws IOException {
+    public Map<HashAlgorithm, String> computeHashes(MultipartFile file, List<String> algorithmNames) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Выберите файл для вычисления хэша.");
         }
         if (file.getSize() < MIN_SIZE_BYTES) {
             throw new IllegalArgumentException("Размер файла должен быть не менее 1 КБ.");
         }
-        try (InputStream inputStream = file.getInputStream()) {
-            return hasher.digestHex(inputStream);
+        List<HashAlgorithm> algorithms = parseAlgorithms(algorithmNames);
+        boolean parallel = file.getSize() >= PARALLEL_THRESHOLD_BYTES;
+        long start = System.nanoTime();
+        try (TimedInputStream inputStream = new TimedInputStream(file.getInputStream())) {
+            Map<HashAlgorithm, byte[]> digests = hasher.digest(inputStream, algorithms, parallel);
+            long cryptoNanos = System.nanoTime() - start - inputStream.readNanos;
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_RECEIVE, inputStream.readNanos);
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_CRYPTO, cryptoNanos);
+            metrics.recordBytes(OPERATION, inputStream.bytesRead, cryptoNanos);
+            Map<HashAlgorithm, String> result = new LinkedHashMap<>();
+            digests.forEach((algorithm, digest) -> result.put(algorithm, Gost34112012Hasher.toHex(digest)));
+            return result;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(OPERATION, e);
+            throw e;
         }
     }
 
+    /**
+     * Сеанс хэширования загрузки, поступающей частями (реактивные обработчики):
+     * части передаются в {@link HashSession#update(byte[], int, int)}, результат — {@link HashSession#finish()}.
+     */
+    public HashSession openSession(List<String> algorithmNames) {
+        return new HashSession(hasher.open(parseAlgorithms(algorithmNames)));
+    }
+
+    private List<HashAlgorithm> parseAlgorithms(List<String> algorithmNames) {
+        List<HashAlgorithm> algorithms = new ArrayList<>();
+        if (algorithmNames != null) {
+            for (String name : algorithmNames) {
+                if (name != null && !name.isBlank()) {
+                    algorithms.add(HashAlgorithm.fromString(name));
+                }
+            }
+        }
+        if (algorithms.isEmpty()) {
+            algorithms.add(HashAlgorithm.STREEBOG_512);
+        }
+        return algorithms;
+    }
+
     public long getMinSizeBytes() {
         return MIN_SIZE_BYTES;
     }
+
+    public final class HashSession {
+        private final MultiDigestHasher.Session session;
+        private long cryptoNanos;
+
+        private HashSession(MultiDigestHasher.Session session) {
+            this.session = session;
+        }
+
+        public void update(byte[] data, int off, int len) {
+            long start = System.nanoTime();
+            session.update(data, off, len);
+            cryptoNanos += System.nanoTime() - start;
+        }
+
+        /** Завершает вычисление; к загрузке применяется то же ограничение минимального размера, что и к файлу. */
+        public Map<HashAlgorithm, String> finish() {
+            if (session.getBytes() < MIN_SIZE_BYTES) {
+                IllegalArgumentException error = new IllegalArgumentException("Размер файла должен быть не менее 1 КБ.");
+                metrics.recordError(OPERATION, error);
+                throw error;
+            }
+            long start = System.nanoTime();
+            Map<HashAlgorithm, byte[]> digests = session.digest();
+            cryptoNanos += System.nanoTime() - start;
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_CRYPTO, cryptoNanos);
+            metrics.recordBytes(OPERATION, session.getBytes(), cryptoNanos);
+            Map<HashAlgorithm, String> result = new LinkedHashMap<>();
+            digests.forEach((algorithm, digest) -> result.put(algorithm, Gost34112012Hasher.toHex(digest)));
+            return result;
+        }
+    }
+
+    // Считает время, проведённое в чтении загруженного файла, отдельно от времени хэширования.
+    private static final class TimedInputStream extends FilterInputStream {
+        private long readNanos;
+        private long bytesRead;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int value = super.read();
+            readNanos += System.nanoTime() - start;
+            if (value != -1) {
+                bytesRead++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(b, off, len);
+            readNanos += System.nanoTime() - start;
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
 }
@@ -0,0 +1,303 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.Gost34112012Hasher;
+import com.example.ib.crypto.HashAlgorithm;
+import com.example.ib.metrics.CryptoMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Возобновляемая загрузка файла для вычисления хэша по частям. Каждая часть сразу
+ * подаётся в {@link Gost34112012Hasher.DigestState}, а после неё на диск записывается
+ * снимок состояния хэш-функции и подтверждённое смещение. Сами данные не сохраняются,
+ * поэтому загрузку можно продолжить на любом узле, видящем каталог со снимками.
+ * Состояние в памяти — только кэш снимка: перед каждой операцией оно сверяется с файлом,
+ * который мог обновить другой узел.
+ */
+@Service
+public class HashUploadService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashUploadService.class);
+    private static final String OPERATION = "hash";
+    private static final String STATE_SUFFIX = ".state";
+    private static final byte STATE_VERSION = 1;
+    private static final int STATE_HEADER_SIZE = 1 + Long.BYTES + Long.BYTES;
+    private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f]{32}");
+
+    private final Path directory;
+    private final Duration ttl;
+    private final int maxSessions;
+    private final long maxChunkBytes;
+    private final CryptoMetrics metrics;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public HashUploadService(@Value("${app.hash.upload.dir}") String directory,
+                             @Value("${app.hash.upload.ttl}") Duration ttl,
+                             @Value("${app.hash.upload.max-sessions}") int maxSessions,
+                             @Value("${app.hash.upload.max-chunk-size}") long maxChunkBytes,
+                             CryptoMetrics metrics) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.ttl = ttl;
+        this.maxSessions = maxSessions;
+        this.maxChunkBytes = maxChunkBytes;
+        this.metrics = metrics;
+        Files.createDirectories(this.directory);
+    }
+
+    public UploadStatus open(String algorithmName) throws IOException {
+        HashAlgorithm algorithm = algorithmName == null || algorithmName.isBlank()
+                ? HashAlgorithm.STREEBOG_512
+                : HashAlgorithm.fromString(algorithmName);
+        int digestSize = switch (algorithm) {
+            case STREEBOG_512 -> Gost34112012Hasher.DIGEST_SIZE_512;
+            case STREEBOG_256 -> Gost34112012Hasher.DIGEST_SIZE_256;
+            default -> throw new IllegalArgumentException(
+                    "Возобновляемая загрузка поддерживает только streebog-256 и streebog-512.");
+        };
+        if (countStoredSessions() >= maxSessions) {
+            throw new IllegalStateException("Слишком много незавершённых загрузок. Повторите попытку позже.");
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        UploadSession session = new UploadSession(id, new Gost34112012Hasher.DigestState(digestSize), 0, Instant.now());
+        persist(session);
+        sessions.put(id, session);
+        return status(session);
+    }
+
+    public UploadStatus status(String id) throws IOException {
+        UploadSession session = find(id);
+        synchronized (session) {
+            synchronize(session);
+            return status(session);
+        }
+    }
+
+    /**
+     * Добавляет очередную часть. Смещение должно совпадать с подтверждённым: повторная
+     * отправка уже принятой части или пропуск данных отклоняются. Часть применяется к копии
+     * состояния и фиксируется только после полного чтения, поэтому обрыв соединения
+     * посреди части не портит сессию.
+     */
+    public UploadStatus append(String id, long offset, InputStream chunk) throws IOException {
+        UploadSession session = find(id);
+        synchronized (session) {
+            synchronize(session);
+            if (offset != session.offset) {
+                throw new OffsetMismatchException(session.offset);
+            }
+            Gost34112012Hasher.DigestState next = session.state.copy();
+            byte[] buffer = new byte[64 * 1024];
+            long received = 0;
+            long start = System.nanoTime();
+            int read;
+            while ((read = chunk.read(buffer)) != -1) {
+                received += read;
+                if (received > maxChunkBytes) {
+                    throw new IllegalArgumentException("Часть превышает допустимый размер " + maxChunkBytes + " байт.");
+                }
+                next.update(buffer, 0, read);
+            }
+            long nanos = System.nanoTime() - start;
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_RECEIVE, nanos);
+            metrics.recordBytes(OPERATION, received, nanos);
+
+            // пока часть читалась, другой узел мог принять часть с тем же смещением
+            synchronize(session);
+            if (offset != session.offset) {
+                throw new OffsetMismatchException(session.offset);
+            }
+            UploadSession updated = new UploadSession(id, next, session.offset + received, Instant.now());
+            persist(updated);
+            session.state = updated.state;
+            session.offset = updated.offset;
+            session.touched = updated.touched;
+            return status(session);
+        }
+    }
+
+    public CompletedUpload complete(String id) throws IOException {
+        UploadSession session = find(id);
+        synchronized (session) {
+            synchronize(session);
+            byte[] hash = session.state.digest();
+            discard(id);
+            return new CompletedUpload(Gost34112012Hasher.toHex(hash), session.offset);
+        }
+    }
+
+    public void abort(String id) throws IOException {
+        find(id);
+        discard(id);
+    }
+
+    @Scheduled(fixedDelayString = "${app.hash.upload.cleanup-interval}")
+    public void removeExpired() {
+        Instant threshold = Instant.now().minus(ttl);
+        sessions.values().removeIf(session -> session.touched.isBefore(threshold));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + STATE_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось очистить просроченные загрузки в {}.", directory, e);
+        }
+    }
+
+    private UploadSession find(String id) throws IOException {
+        if (id == null || !SESSION_ID.matcher(id).matches()) {
+            throw new SessionNotFoundException(id);
+        }
+        UploadSession session = sessions.get(id);
+        if (session != null) {
+            return session;
+        }
+        // сессия могла быть начата на другом узле — восстанавливаем её из снимка
+        Path file = stateFile(id);
+        if (!Files.exists(file)) {
+            throw new SessionNotFoundException(id);
+        }
+        UploadSession loaded = load(id, Files.readAllBytes(file));
+        if (loaded.touched.isBefore(Instant.now().minus(ttl))) {
+            Files.deleteIfExists(file);
+            throw new SessionNotFoundException(id);
+        }
+        UploadSession existing = sessions.putIfAbsent(id, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Сверяет кэшированную сессию со снимком на диске по смещению и времени последней части
+     * и перечитывает состояние, если снимок записан другим узлом. Если снимка нет, загрузку
+     * уже завершили или отменили.
+     */
+    private void synchronize(UploadSession session) throws IOException {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(stateFile(session.id));
+        } catch (NoSuchFileException e) {
+            sessions.remove(session.id, session);
+            throw new SessionNotFoundException(session.id);
+        }
+        ByteBuffer header = ByteBuffer.wrap(content);
+        if (content.length > STATE_HEADER_SIZE && header.get() == STATE_VERSION
+                && header.getLong() == session.offset && header.getLong() == session.touched.toEpochMilli()) {
+            return;
+        }
+        UploadSession stored = load(session.id, content);
+        session.state = stored.state;
+        session.offset = stored.offset;
+        session.touched = stored.touched;
+    }
+
+    private void discard(String id) throws IOException {
+        sessions.remove(id);
+        Files.deleteIfExists(stateFile(id));
+    }
+
+    private void persist(UploadSession session) throws IOException {
+        byte[] snapshot = session.state.snapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(STATE_HEADER_SIZE + snapshot.length);
+        buffer.put(STATE_VERSION)
+                .putLong(session.offset)
+                .putLong(session.touched.toEpochMilli())
+                .put(snapshot);
+        Path target = stateFile(session.id);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private UploadSession load(String id, byte[] content) {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (content.length <= STATE_HEADER_SIZE || buffer.get() != STATE_VERSION) {
+            throw new IllegalStateException("Файл состояния загрузки " + id + " повреждён.");
+        }
+        long offset = buffer.getLong();
+        Instant touched = Instant.ofEpochMilli(buffer.getLong());
+        byte[] snapshot = new byte[buffer.remaining()];
+        buffer.get(snapshot);
+        return new UploadSession(id, Gost34112012Hasher.DigestState.restore(snapshot), offset, touched);
+    }
+
+    private long countStoredSessions() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + STATE_SUFFIX)) {
+            long count = 0;
+            for (Path ignored : files) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private Path stateFile(String id) {
+        return directory.resolve(id + STATE_SUFFIX);
+    }
+
+    private UploadStatus status(UploadSession session) {
+        return new UploadStatus(session.id, session.offset, session.touched.plus(ttl));
+    }
+
+    private static final class UploadSession {
+        private final String id;
+        private Gost34112012Hasher.DigestState state;
+        private long offset;
+        private Instant touched;
+
+        UploadSession(String id, Gost34112012Hasher.DigestState state, long offset, Instant touched) {
+            this.id = id;
+            this.state = state;
+            this.offset = offset;
+            this.touched = touched;
+        }
+    }
+
+    public record UploadStatus(String id, long offset, Instant expiresAt) {
+    }
+
+    public record CompletedUpload(String hash, long size) {
+    }
+
+    public static class SessionNotFoundException extends RuntimeException {
+        public SessionNotFoundException(String id) {
+            super("Загрузка " + id + " не найдена или устарела.");
+        }
+    }
+
+    public static class OffsetMismatchException extends RuntimeException {
+        private final long expectedOffset;
+
+        public OffsetMismatchException(long expectedOffset) {
+            super("Ожидалась часть со смещением " + expectedOffset + ".");
+            this.expectedOffset = expectedOffset;
+        }
+
+        public long getExpectedOffset() {
+            return expectedOffset;
+        }
+    }
+}
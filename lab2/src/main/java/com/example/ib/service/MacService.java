@@ -0,0 +1,145 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.Gost34112012Hasher;
+import com.example.ib.crypto.HmacStreebog;
+import com.example.ib.metrics.CryptoMetrics;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class MacService {
+    private static final int MAX_BATCH_ITEMS = 10_000;
+    private static final int MIN_KEY_BYTES = 32;
+    private static final String OPERATION = "hmac";
+
+    private final CryptoMetrics metrics;
+
+    public MacService(CryptoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public String computeMac(MultipartFile file, String keyHex, String algorithmName) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите файл для вычисления имитовставки.");
+        }
+        MacAlgorithm algorithm = MacAlgorithm.fromString(algorithmName);
+        HmacStreebog hmac = metrics.phase(OPERATION, CryptoMetrics.PHASE_KEY,
+                () -> HmacStreebog.forKey(parseKey(keyHex), algorithm.getMacSize()));
+        long start = System.nanoTime();
+        byte[] mac;
+        try (InputStream inputStream = file.getInputStream()) {
+            mac = metrics.phase(OPERATION, CryptoMetrics.PHASE_CRYPTO, () -> hmac.mac(inputStream));
+        }
+        metrics.recordBytes(OPERATION, file.getSize(), System.nanoTime() - start);
+        return Gost34112012Hasher.toHex(mac);
+    }
+
+    public BatchVerifyResult verifyBatch(BatchVerifyRequest request) throws IOException {
+        if (request == null || request.items() == null || request.items().isEmpty()) {
+            throw new IllegalArgumentException("Передайте хотя бы одну пару (данные, имитовставка).");
+        }
+        if (request.items().size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("За один запрос можно проверить не более " + MAX_BATCH_ITEMS + " пар.");
+        }
+        MacAlgorithm algorithm = MacAlgorithm.fromString(request.algorithm());
+        HmacStreebog hmac = metrics.phase(OPERATION, CryptoMetrics.PHASE_KEY,
+                () -> HmacStreebog.forKey(parseKey(request.key()), algorithm.getMacSize()));
+
+        Base64.Decoder base64 = Base64.getDecoder();
+        List<Boolean> results = new ArrayList<>(request.items().size());
+        long bytes = 0;
+        int valid = 0;
+        long start = System.nanoTime();
+        for (BatchItem item : request.items()) {
+            boolean ok = false;
+            if (item != null && item.data() != null && item.tag() != null) {
+                try {
+                    byte[] data = base64.decode(item.data());
+                    bytes += data.length;
+                    ok = hmac.verify(data, decodeHex(item.tag()));
+                } catch (IllegalArgumentException e) {
+                    ok = false; // некорректный base64/hex считается непрошедшей проверкой
+                }
+            }
+            if (ok) {
+                valid++;
+            }
+            results.add(ok);
+        }
+        long cryptoNanos = System.nanoTime() - start;
+        metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_CRYPTO, cryptoNanos);
+        metrics.recordBytes(OPERATION, bytes, cryptoNanos);
+        return new BatchVerifyResult(valid, results.size() - valid, results);
+    }
+
+    private byte[] parseKey(String keyHex) {
+        if (keyHex == null || keyHex.isBlank()) {
+            throw new IllegalArgumentException("Необходимо задать ключ HMAC в шестнадцатеричном виде.");
+        }
+        byte[] key = decodeHex(keyHex);
+        if (key.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("Ключ HMAC должен быть не короче 256 бит (64 hex-символа).");
+        }
+        return key;
+    }
+
+    private byte[] decodeHex(String hex) {
+        String normalized = hex.replaceAll("\\s", "");
+        if (normalized.length() % 2 != 0) {
+            throw new IllegalArgumentException("Hex-строка должна содержать чётное число символов.");
+        }
+        byte[] result = new byte[normalized.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            int high = Character.digit(normalized.charAt(i * 2), 16);
+            int low = Character.digit(normalized.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Используйте hex-цифры 0-9, A-F.");
+            }
+            result[i] = (byte) ((high << 4) | low);
+        }
+        return result;
+    }
+
+    public enum MacAlgorithm {
+        HMAC_STREEBOG_256(Gost34112012Hasher.DIGEST_SIZE_256),
+        HMAC_STREEBOG_512(Gost34112012Hasher.DIGEST_SIZE_512);
+
+        private final int macSize;
+
+        MacAlgorithm(int macSize) {
+            this.macSize = macSize;
+        }
+
+        public int getMacSize() {
+            return macSize;
+        }
+
+        public static MacAlgorithm fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return HMAC_STREEBOG_256;
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "hmac-streebog-256", "streebog-256", "256" -> HMAC_STREEBOG_256;
+                case "hmac-streebog-512", "streebog-512", "512" -> HMAC_STREEBOG_512;
+                default -> throw new IllegalArgumentException(
+                        "Некорректный алгоритм. Используйте hmac-streebog-256 или hmac-streebog-512.");
+            };
+        }
+    }
+
+    public record BatchItem(String data, String tag) {
+    }
+
+    public record BatchVerifyRequest(String algorithm, String key, List<BatchItem> items) {
+    }
+
+    public record BatchVerifyResult(int valid, int invalid, List<Boolean> results) {
+    }
+}
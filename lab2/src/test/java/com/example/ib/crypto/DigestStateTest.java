@@ -0,0 +1,86 @@
+package com.example.ib.crypto;
+
+import com.example.ib.crypto.Gost34112012Hasher.DigestState;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DigestStateTest {
+
+    private static final byte[] DATA = new byte[10_007];
+    // разрезы на границах блока, внутри блока и у конца сообщения
+    private static final int[] CUTS = {0, 1, 63, 64, 65, 1000, 10_006, 10_007};
+
+    static {
+        new Random(11).nextBytes(DATA);
+    }
+
+    @Test
+    void restoredSnapshotContinuesLikeOriginal() throws IOException {
+        for (int digestSize : new int[]{Gost34112012Hasher.DIGEST_SIZE_256, Gost34112012Hasher.DIGEST_SIZE_512}) {
+            byte[] expected = oneShot(digestSize);
+            for (int cut : CUTS) {
+                DigestState state = new DigestState(digestSize);
+                state.update(DATA, 0, cut);
+                DigestState restored = DigestState.restore(state.snapshot());
+                restored.update(DATA, cut, DATA.length - cut);
+                assertArrayEquals(expected, finish(restored), "size " + digestSize + ", cut " + cut);
+            }
+        }
+    }
+
+    @Test
+    void copiesBranchIndependentlyFromSharedPrefix() throws IOException {
+        for (int digestSize : new int[]{Gost34112012Hasher.DIGEST_SIZE_256, Gost34112012Hasher.DIGEST_SIZE_512}) {
+            byte[] expected = oneShot(digestSize);
+            for (int cut : CUTS) {
+                DigestState prefix = new DigestState(digestSize);
+                prefix.update(DATA, 0, cut);
+                DigestState branch = prefix.copy();
+                branch.update(DATA, cut, DATA.length - cut);
+                prefix.update(new byte[]{1, 2, 3}, 0, 3); // изменение оригинала не затрагивает копию
+                assertArrayEquals(expected, finish(branch), "size " + digestSize + ", cut " + cut);
+            }
+        }
+    }
+
+    @Test
+    void intermediateDigestDoesNotResetState() throws IOException {
+        DigestState state = new DigestState();
+        state.update(DATA, 0, 100);
+        state.digest();
+        state.update(DATA, 100, DATA.length - 100);
+        assertArrayEquals(oneShot(Gost34112012Hasher.DIGEST_SIZE_512), state.digest());
+    }
+
+    @Test
+    void restoreRejectsCorruptedSnapshots() {
+        DigestState state = new DigestState();
+        state.update(DATA, 0, 70);
+        byte[] snapshot = state.snapshot();
+
+        byte[] wrongVersion = snapshot.clone();
+        wrongVersion[0] = 2;
+        byte[] wrongLength = Arrays.copyOf(snapshot, snapshot.length - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> DigestState.restore(wrongVersion));
+        assertThrows(IllegalArgumentException.class, () -> DigestState.restore(wrongLength));
+        assertThrows(IllegalArgumentException.class, () -> DigestState.restore(new byte[10]));
+    }
+
+    private static byte[] oneShot(int digestSize) throws IOException {
+        return new Gost34112012Hasher().digest(new ByteArrayInputStream(DATA), digestSize);
+    }
+
+    private static byte[] finish(DigestState state) {
+        byte[] out = new byte[state.getDigestSize()];
+        state.doFinal(out, 0);
+        return out;
+    }
+}
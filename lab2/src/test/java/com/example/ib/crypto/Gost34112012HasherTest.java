@@ -0,0 +1,60 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Gost34112012HasherTest {
+
+    // Примеры 1 и 2 из ГОСТ Р 34.11-2012 (RFC 6986, раздел 10). В стандарте сообщения и хэши
+    // записаны от старшего байта к младшему; здесь они приведены в порядке байт потока.
+    private static final byte[] M1 = "012345678901234567890123456789012345678901234567890123456789012"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] M2 = reverse(HexFormat.of().parseHex(
+            "fbe2e5f0eee3c820fbeafaebef20fffbf0e1e0f0f520e0ed20e8ece0ebe5f0f2"
+                    + "f120fff0eeec20f120faf2fee5e2202ce8f6f3ede220e8e6eee1e8f0f2d1202c"
+                    + "e8f0f2e5e220e5d1"));
+
+    private final Gost34112012Hasher hasher = new Gost34112012Hasher();
+
+    @Test
+    void example1With512BitHash() throws IOException {
+        assertEquals("1B54D01A4AF5B9D5CC3D86D68D285462B19ABC2475222F35C085122BE4BA1FFA"
+                        + "00AD30F8767B3A82384C6574F024C311E2A481332B08EF7F41797891C1646F48",
+                Gost34112012Hasher.toHex(hasher.digest(new ByteArrayInputStream(M1))));
+    }
+
+    @Test
+    void example1With256BitHash() throws IOException {
+        assertEquals("9D151EEFD8590B89DAA6BA6CB74AF9275DD051026BB149A452FD84E5E57B5500",
+                Gost34112012Hasher.toHex(hasher.digest(new ByteArrayInputStream(M1),
+                        Gost34112012Hasher.DIGEST_SIZE_256)));
+    }
+
+    @Test
+    void example2With512BitHash() throws IOException {
+        assertEquals("1E88E62226BFCA6F9994F1F2D51569E0DAF8475A3B0FE61A5300EEE46D961376"
+                        + "035FE83549ADA2B8620FCD7C496CE5B33F0CB9DDDC2B6460143B03DABAC9FB28",
+                Gost34112012Hasher.toHex(hasher.digest(new ByteArrayInputStream(M2))));
+    }
+
+    @Test
+    void example2With256BitHash() throws IOException {
+        assertEquals("9DD2FE4E90409E5DA87F53976D7405B0C0CAC628FC669A741D50063C557E8F50",
+                Gost34112012Hasher.toHex(hasher.digest(new ByteArrayInputStream(M2),
+                        Gost34112012Hasher.DIGEST_SIZE_256)));
+    }
+
+    private static byte[] reverse(byte[] bytes) {
+        byte[] reversed = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+}
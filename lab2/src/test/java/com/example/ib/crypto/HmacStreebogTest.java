@@ -0,0 +1,62 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HmacStreebogTest {
+
+    // RFC 7836, разделы 4.1.1 и 4.1.2: ключ 00 01 .. 1f, данные 01 26 bd b8 78 00 af 21 43 41 45 65 63 78 01 00
+    private static final byte[] KEY = HexFormat.of().parseHex(
+            "000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f");
+    private static final byte[] DATA = HexFormat.of().parseHex("0126bdb87800af214341456563780100");
+
+    @Test
+    void hmac256MatchesRfc7836() {
+        assertEquals("a1aa5f7de402d7b3d323f2991c8d4534013137010a83754fd0af6d7cd4922ed9",
+                HexFormat.of().formatHex(HmacStreebog.forKey(KEY, Gost34112012Hasher.DIGEST_SIZE_256)
+                        .mac(DATA, 0, DATA.length)));
+    }
+
+    @Test
+    void hmac512MatchesRfc7836() {
+        assertEquals("a59bab22ecae19c65fbde6e5f4e9f5d8549d31f037f9df9b905500e171923a77"
+                        + "3d5f1530f2ed7e964cb2eedc29e9ad2f3afe93b2814f79f5000ffc0366c251e6",
+                HexFormat.of().formatHex(HmacStreebog.forKey(KEY, Gost34112012Hasher.DIGEST_SIZE_512)
+                        .mac(DATA, 0, DATA.length)));
+    }
+
+    @Test
+    void streamMacMatchesArrayMacAndKeyIsReusable() throws IOException {
+        byte[] message = new byte[100_001];
+        new Random(3).nextBytes(message);
+        HmacStreebog hmac = HmacStreebog.forKey(KEY, Gost34112012Hasher.DIGEST_SIZE_512);
+        byte[] expected = hmac.mac(message, 0, message.length);
+
+        byte[] fromStream = hmac.mac(new ByteArrayInputStream(message));
+
+        assertArrayEquals(expected, fromStream);
+        assertArrayEquals(expected, hmac.mac(message, 0, message.length));
+    }
+
+    @Test
+    void verifyRejectsTamperedOrTruncatedTag() {
+        HmacStreebog hmac = HmacStreebog.forKey(KEY, Gost34112012Hasher.DIGEST_SIZE_256);
+        byte[] tag = hmac.mac(DATA, 0, DATA.length);
+        assertTrue(hmac.verify(DATA, tag));
+
+        byte[] tampered = tag.clone();
+        tampered[tampered.length - 1] ^= 1;
+        assertFalse(hmac.verify(DATA, tampered));
+        assertFalse(hmac.verify(DATA, Arrays.copyOf(tag, 16)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MultiDigestHasherTest {
+
+    // не кратно ни размеру блока, ни размеру буфера: проверяется и хвост, и неполный блок
+    private static final byte[] DATA = new byte[200_003];
+
+    static {
+        new Random(7).nextBytes(DATA);
+    }
+
+    private final MultiDigestHasher hasher = new MultiDigestHasher();
+
+    @AfterEach
+    void shutdown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void sequentialDigestsMatchReference() throws Exception {
+        assertDigests(false);
+    }
+
+    @Test
+    void parallelDigestsMatchReference() throws Exception {
+        assertDigests(true);
+    }
+
+    @Test
+    void emptyInputMatchesReference() throws Exception {
+        byte[] empty = new byte[0];
+        assertMatchesReference(empty, hasher.digest(new ByteArrayInputStream(empty),
+                List.of(HashAlgorithm.values()), true));
+    }
+
+    @Test
+    void sessionFedInUnevenPartsMatchesReference() throws Exception {
+        MultiDigestHasher.Session session = hasher.open(List.of(HashAlgorithm.values()));
+        int offset = 0;
+        for (int part = 1; offset < DATA.length; part = part * 3 + 1) {
+            int length = Math.min(part, DATA.length - offset);
+            session.update(DATA, offset, length);
+            offset += length;
+        }
+        assertEquals(DATA.length, session.getBytes());
+        assertMatchesReference(DATA, session.digest());
+    }
+
+    private void assertDigests(boolean parallel) throws IOException, NoSuchAlgorithmException {
+        Map<HashAlgorithm, byte[]> digests = hasher.digest(new ByteArrayInputStream(DATA),
+                List.of(HashAlgorithm.values()), parallel);
+        assertMatchesReference(DATA, digests);
+    }
+
+    private static void assertMatchesReference(byte[] data, Map<HashAlgorithm, byte[]> digests)
+            throws IOException, NoSuchAlgorithmException {
+        Gost34112012Hasher streebog = new Gost34112012Hasher();
+        assertArrayEquals(streebog.digest(new ByteArrayInputStream(data)), digests.get(HashAlgorithm.STREEBOG_512));
+        assertArrayEquals(streebog.digest(new ByteArrayInputStream(data), Gost34112012Hasher.DIGEST_SIZE_256),
+                digests.get(HashAlgorithm.STREEBOG_256));
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data), digests.get(HashAlgorithm.SHA_256));
+        assertArrayEquals(MessageDigest.getInstance("SHA-512").digest(data), digests.get(HashAlgorithm.SHA_512));
+    }
+}
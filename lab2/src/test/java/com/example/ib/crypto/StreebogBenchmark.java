@@ -0,0 +1,49 @@
+package com.example.ib.crypto;
+
+import java.util.Random;
+
+/**
+ * Пропускная способность DigestState.update() для Стрибога-256 и Стрибога-512.
+ * Не тест: запускается вручную после сборки (mvn test-compile),
+ *
+ *   java -cp target/classes:target/test-classes com.example.ib.crypto.StreebogBenchmark [МБ] [повторов]
+ *
+ * Каждый замер хэширует один и тот же случайный буфер кусками по 64 КБ, как FileHashService;
+ * первые повторы служат прогревом JIT и в итог не входят.
+ */
+public final class StreebogBenchmark {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int WARMUP_RUNS = 2;
+
+    private StreebogBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        byte[] data = new byte[megabytes * 1024 * 1024];
+        new Random(1).nextBytes(data);
+
+        for (int digestSize : new int[]{Gost34112012Hasher.DIGEST_SIZE_256, Gost34112012Hasher.DIGEST_SIZE_512}) {
+            double total = 0;
+            for (int run = 0; run < WARMUP_RUNS + runs; run++) {
+                long start = System.nanoTime();
+                hash(data, digestSize);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (run >= WARMUP_RUNS) {
+                    total += data.length / seconds / (1024 * 1024);
+                }
+            }
+            System.out.printf("Стрибог-%d: %.1f МБ/с (среднее за %d повторов по %d МБ)%n",
+                    digestSize * 8, total / runs, runs, megabytes);
+        }
+    }
+
+    private static void hash(byte[] data, int digestSize) {
+        Gost34112012Hasher.DigestState state = new Gost34112012Hasher.DigestState(digestSize);
+        for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+            state.update(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+        }
+        state.doFinal(new byte[digestSize], 0);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ib.crypto;
+
+import com.example.ib.build.StreebogTablesGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class StreebogTablesTest {
+
+    @Test
+    void generatedTablesMatchDerivation() {
+        assertArrayEquals(StreebogTablesGenerator.iterationConstants(), StreebogTables.C);
+        assertArrayEquals(StreebogTablesGenerator.transformationTables(), StreebogTables.T);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.Gost34112012Hasher;
+import com.example.ib.metrics.CryptoMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HashUploadServiceTest {
+
+    private static final byte[] DATA = new byte[3000];
+
+    static {
+        new Random(5).nextBytes(DATA);
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nodeWithCachedSessionPicksUpPartsAcceptedElsewhere() throws IOException {
+        HashUploadService first = node();
+        HashUploadService second = node();
+        String id = first.open("streebog-256").id();
+
+        first.append(id, 0, part(0, 1000));
+        second.append(id, 1000, part(1000, 1000));
+        // у первого узла в кэше осталось смещение 1000
+        assertEquals(2000, first.status(id).offset());
+        assertThrows(HashUploadService.OffsetMismatchException.class, () -> first.append(id, 1000, part(1000, 1000)));
+        first.append(id, 2000, part(2000, 1000));
+
+        assertEquals(Gost34112012Hasher.toHex(new Gost34112012Hasher().digest(new ByteArrayInputStream(DATA),
+                        Gost34112012Hasher.DIGEST_SIZE_256)),
+                first.complete(id).hash());
+    }
+
+    @Test
+    void sessionCompletedElsewhereIsGone() throws IOException {
+        HashUploadService first = node();
+        HashUploadService second = node();
+        String id = first.open(null).id();
+        first.append(id, 0, part(0, 100));
+
+        second.complete(id);
+
+        assertThrows(HashUploadService.SessionNotFoundException.class, () -> first.append(id, 100, part(100, 100)));
+        assertThrows(HashUploadService.SessionNotFoundException.class, () -> first.status(id));
+    }
+
+    private HashUploadService node() throws IOException {
+        return new HashUploadService(directory.toString(), Duration.ofHours(1), 16, 1024 * 1024,
+                new CryptoMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static ByteArrayInputStream part(int offset, int length) {
+        return new ByteArrayInputStream(DATA, offset, length);
+    }
+}
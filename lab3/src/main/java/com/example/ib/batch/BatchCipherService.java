@@ -0,0 +1,449 @@
+package com.example.ib.batch;
+
+import com.example.ib.batch.BatchManifest.Entry;
+import com.example.ib.batch.BatchManifest.Status;
+import com.example.ib.buffer.DirectBufferPool;
+import com.example.ib.buffer.PooledBuffer;
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.metrics.CryptoMetrics;
+import com.example.ib.service.MagmaFileCipherService;
+import com.example.ib.service.MagmaFileCipherService.CipherMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Пакетное шифрование и расшифрование дерева каталогов одним ключом в режиме CTR.
+ * <p>
+ * Каждый файл получает собственный непересекающийся диапазон значений счётчика (начало задания
+ * выбирается случайно в младшей половине, дальше диапазоны выдаются подряд по числу блоков файла), поэтому
+ * результат для файла совпадает с {@link MagmaCtrCipher#process(byte[], byte[], long, long, CipherAlgorithm)}
+ * с тем же счётчиком. Файлы обрабатываются пулом фиксированного размера потоково через
+ * {@link FileChannel}, результат пишется во временный файл и переименовывается по готовности.
+ * <p>
+ * Манифест с назначенными счётчиками и состоянием файлов записывается в целевой каталог до
+ * начала работы и периодически обновляется. Повторный запуск с тем же целевым каталогом
+ * продолжает задание: готовые файлы, у которых не изменились размер и время изменения, пропускаются,
+ * остальные получают новые диапазоны счётчика.
+ * Исходный и целевой каталоги должны находиться внутри настроенного корня.
+ */
+@Service
+public class BatchCipherService {
+
+    private static final String OPERATION = "batch";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_FINISHED_JOBS = 50;
+    private static final String PART_SUFFIX = ".part";
+    /**
+     * Начало задания — в младшей половине с запасом 2^62 блоков: старшую половину значений счётчика
+     * назначает пул гаммы ({@link com.example.ib.crypto.MagmaKeystreamPool#checkCallerCounter}).
+     */
+    private static final int COUNTER_RANDOM_SHIFT = 2;
+
+    private final Path root;
+    private final long checkpointIntervalNanos;
+    private final ExecutorService workers;
+    private final MagmaCtrCipher magmaCtrCipher;
+    private final DirectBufferPool bufferPool;
+    private final ObjectMapper objectMapper;
+    private final CryptoMetrics metrics;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+    private final Map<BatchJob, Long> lastCheckpoint = new ConcurrentHashMap<>();
+    private final Set<Path> activeTargets = ConcurrentHashMap.newKeySet();
+
+    public BatchCipherService(@Value("${app.cipher.batch.root}") String root,
+                              @Value("${app.cipher.batch.threads}") int threads,
+                              @Value("${app.cipher.batch.checkpoint-interval}") Duration checkpointInterval,
+                              MagmaCtrCipher magmaCtrCipher,
+                              DirectBufferPool bufferPool,
+                              ObjectMapper objectMapper,
+                              CryptoMetrics metrics) throws IOException {
+        Path directory = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        this.root = directory.toRealPath();
+        this.checkpointIntervalNanos = checkpointInterval.toNanos();
+        this.magmaCtrCipher = magmaCtrCipher;
+        this.bufferPool = bufferPool;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "batch-cipher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Планирует задание, записывает манифест и запускает обработку файлов в фоне.
+     * Ошибки параметров (каталоги, ключ, манифест) выбрасываются сразу как {@link IllegalArgumentException}.
+     */
+    public BatchStatus start(String sourceName, String targetName, CipherMode mode, CipherAlgorithm algorithm,
+                             byte[] key) throws IOException {
+        Path source = resolveDirectory(sourceName, true);
+        Path target = resolveDirectory(targetName, false);
+        if (source.startsWith(target) || target.startsWith(source)) {
+            throw new IllegalArgumentException("Исходный и целевой каталоги не должны быть вложены друг в друга.");
+        }
+        Files.createDirectories(target);
+        if (!target.toRealPath().startsWith(root)) {
+            throw new IllegalArgumentException("Каталог " + targetName + " находится вне корня пакетной обработки.");
+        }
+        if (!activeTargets.add(target)) {
+            throw new IllegalArgumentException("Для каталога " + targetName + " уже выполняется задание.");
+        }
+        try {
+            BatchManifest manifest = mode == CipherMode.ENCRYPT
+                    ? planEncryption(source, target, algorithm, key)
+                    : planDecryption(source, target, key);
+            CipherAlgorithm jobAlgorithm = CipherAlgorithm.fromString(manifest.algorithm());
+            BatchJob job = new BatchJob(UUID.randomUUID().toString(), manifest.operation(), source, target, manifest);
+            writeManifest(job.target, manifest);
+            pruneFinishedJobs();
+            jobs.put(job.id, job);
+            lastCheckpoint.put(job, System.nanoTime());
+            run(job, jobAlgorithm, key.clone());
+            return job.status();
+        } catch (IOException | RuntimeException e) {
+            activeTargets.remove(target);
+            throw e;
+        }
+    }
+
+    public Optional<BatchStatus> status(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(BatchJob::status);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private BatchManifest planEncryption(Path source, Path target, CipherAlgorithm algorithm, byte[] key)
+            throws IOException {
+        String keyCheck = keyCheck(algorithm, key);
+        BatchManifest existing = readManifest(target);
+        Map<String, Entry> previous = Map.of();
+        long nextCounter = random.nextLong() >>> COUNTER_RANDOM_SHIFT;
+        if (existing != null) {
+            if (!"encrypt".equals(existing.operation()) || !algorithm.getId().equals(existing.algorithm())) {
+                throw new IllegalArgumentException("Целевой каталог содержит результат другого задания.");
+            }
+            if (!keyCheck.equals(existing.keyCheck())) {
+                throw new IllegalArgumentException("Целевой каталог содержит результат задания с другим ключом.");
+            }
+            previous = existing.files().stream().collect(Collectors.toMap(Entry::path, Function.identity()));
+            long resumed = Long.parseUnsignedLong(existing.nextCounter(), 16);
+            // задания прежних версий могли начинаться в старшей половине; выданные там диапазоны
+            // не пересекаются с новыми из младшей, поэтому продолжение начинается заново
+            if (resumed >= 0) {
+                nextCounter = resumed;
+            }
+        }
+
+        int blockSize = algorithm.getBlockSize();
+        List<Entry> entries = new ArrayList<>();
+        for (String path : listFiles(source)) {
+            Path file = source.resolve(path);
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file, LinkOption.NOFOLLOW_LINKS).toMillis();
+            Entry done = previous.get(path);
+            // файл, переписанный с тем же размером, отличается временем изменения
+            if (done != null && done.status() == Status.DONE && done.size() == size
+                    && done.modified() != null && done.modified() == modified && outputComplete(target, done)) {
+                entries.add(done);
+                continue;
+            }
+            entries.add(new Entry(path, size, modified, MagmaFileCipherService.formatCounter(nextCounter), Status.PENDING));
+            nextCounter += (size + blockSize - 1) / blockSize;
+        }
+        if (nextCounter < 0) {
+            throw new IllegalArgumentException("Диапазон счётчиков задания исчерпан. Зашифруйте каталог в новый целевой каталог.");
+        }
+        return new BatchManifest(BatchManifest.VERSION, "encrypt", algorithm.getId(), keyCheck,
+                MagmaFileCipherService.formatCounter(nextCounter), List.copyOf(entries));
+    }
+
+    private BatchManifest planDecryption(Path source, Path target, byte[] key) throws IOException {
+        BatchManifest encrypted = readManifest(source);
+        if (encrypted == null || !"encrypt".equals(encrypted.operation())) {
+            throw new IllegalArgumentException("В исходном каталоге нет манифеста пакетного шифрования.");
+        }
+        CipherAlgorithm algorithm = CipherAlgorithm.fromString(encrypted.algorithm());
+        if (!keyCheck(algorithm, key).equals(encrypted.keyCheck())) {
+            throw new IllegalArgumentException("Ключ не совпадает с ключом, которым шифровался каталог.");
+        }
+        BatchManifest existing = readManifest(target);
+        if (existing != null && (!"decrypt".equals(existing.operation())
+                || !encrypted.keyCheck().equals(existing.keyCheck()))) {
+            throw new IllegalArgumentException("Целевой каталог содержит результат другого задания.");
+        }
+        Map<String, Entry> previous = existing == null ? Map.of()
+                : existing.files().stream().collect(Collectors.toMap(Entry::path, Function.identity()));
+
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : encrypted.files()) {
+            if (entry.status() != Status.DONE) {
+                continue; // файл не был зашифрован — расшифровывать нечего
+            }
+            Entry done = previous.get(entry.path());
+            boolean skip = done != null && done.status() == Status.DONE && done.counter().equals(entry.counter())
+                    && outputComplete(target, entry);
+            entries.add(entry.withStatus(skip ? Status.DONE : Status.PENDING));
+        }
+        return new BatchManifest(BatchManifest.VERSION, "decrypt", encrypted.algorithm(), encrypted.keyCheck(),
+                encrypted.nextCounter(), List.copyOf(entries));
+    }
+
+    private void run(BatchJob job, CipherAlgorithm algorithm, byte[] key) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int i = 0; i < job.size(); i++) {
+            if (job.entry(i).status() == Status.DONE) {
+                continue;
+            }
+            int index = i;
+            pending.add(CompletableFuture.runAsync(() -> processFile(job, index, algorithm, key), workers));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            Arrays.fill(key, (byte) 0);
+            try {
+                writeManifest(job.target, job.manifest());
+            } catch (IOException e) {
+                job.recordError(BatchManifest.FILE_NAME, e);
+            }
+            job.finishedAt = System.nanoTime();
+            lastCheckpoint.remove(job);
+            activeTargets.remove(job.target);
+            // состояние меняется последним: увидевший завершение может сразу продолжить задание в том же каталоге
+            job.state = error == null && job.failed.get() == 0 ? BatchJob.State.COMPLETED : BatchJob.State.FAILED;
+        });
+    }
+
+    private void processFile(BatchJob job, int index, CipherAlgorithm algorithm, byte[] key) {
+        Entry entry = job.entry(index);
+        Path input = within(job.source, entry.path());
+        Path output = within(job.target, entry.path());
+        Path part = output.resolveSibling(output.getFileName() + PART_SUFFIX);
+        try {
+            Files.createDirectories(output.getParent());
+            long cryptoNanos = transformFile(input, part, entry, algorithm, key);
+            Files.move(part, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.update(index, Status.DONE);
+            job.completed.incrementAndGet();
+            job.bytes.addAndGet(entry.size());
+            job.cryptoNanos.addAndGet(cryptoNanos);
+            metrics.recordBytes(OPERATION, entry.size(), cryptoNanos);
+        } catch (IOException | RuntimeException e) {
+            job.update(index, Status.FAILED);
+            job.recordError(entry.path(), e);
+            metrics.recordError(OPERATION, e);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // временный файл будет перезаписан при продолжении задания
+            }
+        }
+        checkpoint(job);
+    }
+
+    /**
+     * Потоково преобразует файл: гамма для позиции p берётся из того же места потока,
+     * что и при обработке файла целиком, поэтому размер буфера на результат не влияет.
+     *
+     * @return время, затраченное на шифр, в наносекундах
+     */
+    private long transformFile(Path input, Path output, Entry entry, CipherAlgorithm algorithm, byte[] key)
+            throws IOException {
+        long counter = Long.parseUnsignedLong(entry.counter(), 16);
+        long size = entry.size();
+        BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+        long cryptoNanos = 0;
+        // прямой буфер пула: FileChannel читает и пишет его без промежуточной копии в куче
+        try (PooledBuffer pooled = bufferPool.acquire((int) Math.max(1, Math.min(BUFFER_SIZE, size)));
+             FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            // диапазон счётчика назначен по размеру при планировании; изменившийся файл
+            // залез бы в диапазон следующего, поэтому он не обрабатывается
+            if (in.size() != size) {
+                throw new IOException("Размер файла изменился после планирования задания.");
+            }
+            ByteBuffer buffer = pooled.buffer();
+            int capacity = buffer.limit();
+            long position = 0;
+            while (position < size) {
+                buffer.clear().limit((int) Math.min(capacity, size - position));
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer) < 0) {
+                        throw new IOException("Файл укоротился во время обработки.");
+                    }
+                }
+                buffer.flip();
+                int length = buffer.remaining();
+                long start = System.nanoTime();
+                magmaCtrCipher.transform(cipher, counter, position, buffer);
+                cryptoNanos += System.nanoTime() - start;
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                position += length;
+            }
+            out.force(true);
+        } finally {
+            cipher.destroy();
+        }
+        return cryptoNanos;
+    }
+
+    /** Обновляет манифест на диске не чаще заданного интервала. */
+    private void checkpoint(BatchJob job) {
+        long now = System.nanoTime();
+        Long last = lastCheckpoint.get(job);
+        if (last == null || now - last < checkpointIntervalNanos || !lastCheckpoint.replace(job, last, now)) {
+            return;
+        }
+        try {
+            writeManifest(job.target, job.manifest());
+        } catch (IOException e) {
+            job.recordError(BatchManifest.FILE_NAME, e);
+        }
+    }
+
+    private synchronized void writeManifest(Path directory, BatchManifest manifest) throws IOException {
+        Path file = directory.resolve(BatchManifest.FILE_NAME);
+        Path temp = directory.resolve(BatchManifest.FILE_NAME + PART_SUFFIX);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), manifest);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private BatchManifest readManifest(Path directory) throws IOException {
+        Path file = directory.resolve(BatchManifest.FILE_NAME);
+        try {
+            BatchManifest manifest = objectMapper.readValue(Files.readAllBytes(file), BatchManifest.class);
+            if (manifest.version() != BatchManifest.VERSION || manifest.files() == null) {
+                throw new IllegalArgumentException("Неподдерживаемый формат манифеста в каталоге " + root.relativize(directory) + ".");
+            }
+            return manifest;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private boolean outputComplete(Path target, Entry entry) throws IOException {
+        Path output = within(target, entry.path());
+        return Files.isRegularFile(output, LinkOption.NOFOLLOW_LINKS) && Files.size(output) == entry.size();
+    }
+
+    /** Обычные файлы дерева (без символических ссылок, манифеста и временных файлов) в порядке путей. */
+    private List<String> listFiles(Path source) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            return paths.filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+                    .filter(path -> !path.getFileName().toString().equals(BatchManifest.FILE_NAME))
+                    .filter(path -> !path.getFileName().toString().endsWith(PART_SUFFIX))
+                    .map(path -> source.relativize(path).toString().replace('\\', '/'))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path resolveDirectory(String name, boolean mustExist) throws IOException {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Укажите исходный и целевой каталоги относительно корня пакетной обработки.");
+        }
+        Path path = root.resolve(name.trim()).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Каталог " + name + " находится вне корня пакетной обработки.");
+        }
+        if (Files.exists(path)) {
+            if (!Files.isDirectory(path)) {
+                throw new IllegalArgumentException(name + " не является каталогом.");
+            }
+            if (!path.toRealPath().startsWith(root)) {
+                throw new IllegalArgumentException("Каталог " + name + " находится вне корня пакетной обработки.");
+            }
+        } else if (mustExist) {
+            throw new IllegalArgumentException("Каталог " + name + " не найден.");
+        }
+        return path;
+    }
+
+    /** Путь из манифеста внутри каталога; путь, выходящий за каталог, отклоняется. */
+    private static Path within(Path directory, String relative) {
+        Path path = directory.resolve(relative).normalize();
+        if (!path.startsWith(directory) || path.equals(directory)) {
+            throw new IllegalArgumentException("Недопустимый путь в манифесте: " + relative);
+        }
+        return path;
+    }
+
+    /** Проверочное значение ключа: усечённый SHA-256 от алгоритма и ключа. */
+    private static String keyCheck(CipherAlgorithm algorithm, byte[] key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("ib-batch-key-check:" + algorithm.getId() + ":").getBytes(StandardCharsets.US_ASCII));
+            digest.update(key);
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<BatchJob> finished = jobs.values().stream()
+                .filter(job -> job.state != BatchJob.State.RUNNING)
+                .sorted((a, b) -> Long.compare(a.finishedAt, b.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    public record BatchStatus(String id,
+                              String operation,
+                              String state,
+                              int files,
+                              int completed,
+                              int skipped,
+                              int failed,
+                              long bytes,
+                              long elapsedMillis,
+                              double megabytesPerSecond,
+                              List<String> errors) {
+    }
+}
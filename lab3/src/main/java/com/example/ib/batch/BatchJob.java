@@ -0,0 +1,91 @@
+package com.example.ib.batch;
+
+import com.example.ib.batch.BatchCipherService.BatchStatus;
+import com.example.ib.batch.BatchManifest.Entry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выполняемое пакетное задание: план (записи манифеста) и счётчики прогресса.
+ * Записи меняются рабочими потоками по индексу под блокировкой задания.
+ */
+final class BatchJob {
+
+    private static final int MAX_ERRORS = 20;
+
+    final String id;
+    final String operation;
+    final Path source;
+    final Path target;
+    private final Entry[] entries;
+    private final BatchManifest template;
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    final AtomicInteger completed = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicLong bytes = new AtomicLong();
+    final AtomicLong cryptoNanos = new AtomicLong();
+    final long skipped;
+    final long startedAt = System.nanoTime();
+    volatile long finishedAt;
+    volatile State state = State.RUNNING;
+
+    BatchJob(String id, String operation, Path source, Path target, BatchManifest manifest) {
+        this.id = id;
+        this.operation = operation;
+        this.source = source;
+        this.target = target;
+        this.entries = manifest.files().toArray(Entry[]::new);
+        this.template = manifest;
+        this.skipped = manifest.files().stream().filter(entry -> entry.status() == BatchManifest.Status.DONE).count();
+        this.completed.set((int) skipped);
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    synchronized Entry entry(int index) {
+        return entries[index];
+    }
+
+    synchronized void update(int index, BatchManifest.Status status) {
+        entries[index] = entries[index].withStatus(status);
+    }
+
+    synchronized BatchManifest manifest() {
+        return new BatchManifest(template.version(), template.operation(), template.algorithm(), template.keyCheck(),
+                template.nextCounter(), List.of(entries));
+    }
+
+    void recordError(String path, Exception e) {
+        failed.incrementAndGet();
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(path + ": " + e.getMessage());
+        }
+    }
+
+    BatchStatus status() {
+        long end = state == State.RUNNING ? System.nanoTime() : finishedAt;
+        long elapsedNanos = Math.max(1, end - startedAt);
+        double megabytesPerSecond = bytes.get() / (1024.0 * 1024.0) / (elapsedNanos / 1_000_000_000.0);
+        List<String> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = List.copyOf(errors);
+        }
+        return new BatchStatus(id, operation, state.name().toLowerCase(), entries.length, completed.get(),
+                (int) skipped, failed.get(), bytes.get(), elapsedNanos / 1_000_000,
+                Math.round(megabytesPerSecond * 100) / 100.0, errorsCopy);
+    }
+
+    enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
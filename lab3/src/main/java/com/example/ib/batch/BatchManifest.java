@@ -0,0 +1,38 @@
+package com.example.ib.batch;
+
+import java.util.List;
+
+/**
+ * Манифест пакетного задания, хранящийся в целевом каталоге: для каждого файла — относительный
+ * путь, размер, время изменения исходного файла (мс от эпохи), начальное значение счётчика CTR
+ * и состояние. В манифестах, записанных до появления поля modified, оно отсутствует, и такие
+ * файлы при продолжении задания шифруются заново. Ключ в манифест не пишется,
+ * только проверочное значение, по которому продолжение задания с другим ключом отклоняется.
+ * <p>
+ * nextCounter — первое ещё не выданное значение счётчика: при продолжении задания
+ * незавершённые файлы получают новые диапазоны начиная с него, поэтому гамма,
+ * частично записанная до сбоя, повторно не используется.
+ */
+public record BatchManifest(int version,
+                            String operation,
+                            String algorithm,
+                            String keyCheck,
+                            String nextCounter,
+                            List<Entry> files) {
+
+    public static final String FILE_NAME = ".ib-batch-manifest.json";
+    public static final int VERSION = 1;
+
+    public record Entry(String path, long size, Long modified, String counter, Status status) {
+
+        Entry withStatus(Status newStatus) {
+            return new Entry(path, size, modified, counter, newStatus);
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.ib.buffer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул буферов вне кучи для криптографических операций над файлами, читаемыми и записываемыми
+ * через {@link java.nio.channels.FileChannel} (пакетная обработка): канал заполняет прямой буфер
+ * без промежуточной копии, гамма накладывается на месте, и объём кучи не зависит от размера файла.
+ * Загрузки по HTTP приходят потоком, который читает только в массивы, поэтому они обрабатываются
+ * массивами фиксированного размера: прямой буфер добавил бы там лишнюю копию.
+ * <p>
+ * Буферы выдаются по классам размера (8 КБ, 64 КБ, 1 МБ): запрошенный размер округляется
+ * вверх до ближайшего класса. Память класса выделяется слэбами — прямыми буферами размера
+ * slab-size, нарезанными на буферы класса; слэбы создаются по мере надобности, не более
+ * max-slabs на класс, и живут до остановки приложения. Если свободных буферов нет и лимит
+ * слэбов исчерпан или запрошено больше самого крупного класса, выделяется отдельный прямой
+ * буфер, который освобождает сборщик мусора (ib.buffer.pool.acquisitions с result=overflow).
+ * <p>
+ * Буфер возвращается вызовом {@link PooledBuffer#close()}, содержимое при этом затирается.
+ * Буфер, ставший недостижимым без возврата, считается утечкой: в журнал пишется ошибка
+ * (со стеком выделения, если включён app.buffers.pool.track-allocations), увеличивается
+ * ib.buffer.pool.leaks, а сам буфер в пул не возвращается — на него могла остаться ссылка.
+ */
+@Component
+public class DirectBufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectBufferPool.class);
+    private static final int[] SIZE_CLASSES = {8 * 1024, 64 * 1024, 1024 * 1024};
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final byte[] ZEROS = new byte[8192];
+
+    private final SizeClass[] classes;
+    private final int maxSlabs;
+    private final boolean trackAllocations;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Counter largeAcquisitions;
+    private final AtomicLong leaks = new AtomicLong();
+
+    public DirectBufferPool(@Value("${app.buffers.pool.slab-size}") DataSize slabSize,
+                            @Value("${app.buffers.pool.max-slabs}") int maxSlabs,
+                            @Value("${app.buffers.pool.track-allocations}") boolean trackAllocations,
+                            MeterRegistry registry) {
+        if (maxSlabs < 0) {
+            throw new IllegalArgumentException("Число слэбов не может быть отрицательным.");
+        }
+        this.maxSlabs = maxSlabs;
+        this.trackAllocations = trackAllocations;
+        this.classes = new SizeClass[SIZE_CLASSES.length];
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            int size = SIZE_CLASSES[i];
+            int buffersPerSlab = (int) Math.max(1, Math.min(slabSize.toBytes() / size, Integer.MAX_VALUE / size));
+            classes[i] = new SizeClass(size, buffersPerSlab, registry);
+        }
+        this.largeAcquisitions = acquisitions(registry, "large", "overflow");
+        FunctionCounter.builder("ib.buffer.pool.leaks", leaks, AtomicLong::get)
+                .description("Буферы, ставшие недостижимыми без возврата в пул")
+                .register(registry);
+        Gauge.builder("ib.buffer.pool.outstanding", outstanding, AtomicInteger::get)
+                .description("Выданные и ещё не возвращённые буферы")
+                .register(registry);
+    }
+
+    /**
+     * Выдаёт буфер не меньше size байт: позиция 0, limit = size. Буфер нужно вернуть
+     * вызовом {@link PooledBuffer#close()}, обычно через try-with-resources.
+     */
+    public PooledBuffer acquire(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным.");
+        }
+        SizeClass sizeClass = classFor(size);
+        ByteBuffer buffer = null;
+        if (sizeClass == null) {
+            largeAcquisitions.increment();
+        } else {
+            buffer = sizeClass.poll();
+            (buffer != null ? sizeClass.pooledAcquisitions : sizeClass.overflowAcquisitions).increment();
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(size);
+            sizeClass = null;
+        }
+        buffer.clear().limit(size);
+        outstanding.incrementAndGet();
+        Throwable allocationSite = trackAllocations ? new Throwable("Буфер " + size + " байт выделен здесь") : null;
+        return new PooledBuffer(new PooledBuffer.Lease(this, sizeClass, buffer, size, allocationSite), CLEANER);
+    }
+
+    /** Число выданных и не возвращённых буферов, включая утёкшие. */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public long leaks() {
+        return leaks.get();
+    }
+
+    void release(PooledBuffer.Lease lease) {
+        wipe(lease.buffer);
+        if (lease.sizeClass != null) {
+            lease.sizeClass.offer(lease.buffer);
+        }
+        outstanding.decrementAndGet();
+    }
+
+    void leaked(PooledBuffer.Lease lease) {
+        leaks.incrementAndGet();
+        if (lease.allocationSite != null) {
+            LOGGER.error("Буфер {} байт не возвращён в пул.", lease.size, lease.allocationSite);
+        } else {
+            LOGGER.error("Буфер {} байт не возвращён в пул. Стек выделения сохраняется при "
+                    + "app.buffers.pool.track-allocations=true.", lease.size);
+        }
+    }
+
+    private SizeClass classFor(int size) {
+        for (SizeClass sizeClass : classes) {
+            if (size <= sizeClass.size) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    private static Counter acquisitions(MeterRegistry registry, String size, String result) {
+        return Counter.builder("ib.buffer.pool.acquisitions")
+                .description("Выдачи буферов: из пула или отдельным прямым буфером")
+                .tag("size", size)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static void wipe(ByteBuffer buffer) {
+        buffer.clear();
+        int capacity = buffer.capacity();
+        for (int offset = 0; offset < capacity; offset += ZEROS.length) {
+            buffer.put(offset, ZEROS, 0, Math.min(ZEROS.length, capacity - offset));
+        }
+    }
+
+    private static String label(int size) {
+        return size >= 1024 * 1024 ? size / (1024 * 1024) + "MB" : size / 1024 + "KB";
+    }
+
+    /** Свободные буферы одного класса; поля изменяются под монитором объекта. */
+    final class SizeClass {
+        private final int size;
+        private final int buffersPerSlab;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private final Counter pooledAcquisitions;
+        private final Counter overflowAcquisitions;
+        private int slabs;
+        private int leased;
+
+        private SizeClass(int size, int buffersPerSlab, MeterRegistry registry) {
+            this.size = size;
+            this.buffersPerSlab = buffersPerSlab;
+            String label = label(size);
+            this.pooledAcquisitions = acquisitions(registry, label, "pooled");
+            this.overflowAcquisitions = acquisitions(registry, label, "overflow");
+            Gauge.builder("ib.buffer.pool.capacity", this, SizeClass::capacityBytes)
+                    .description("Память вне кучи, выделенная слэбами пула")
+                    .baseUnit("bytes")
+                    .tag("size", label)
+                    .register(registry);
+            Gauge.builder("ib.buffer.pool.used", this, SizeClass::usedBytes)
+                    .description("Память выданных буферов пула")
+                    .baseUnit("bytes")
+                    .tag("size", label)
+                    .register(registry);
+        }
+
+        private synchronized ByteBuffer poll() {
+            if (free.isEmpty() && slabs < maxSlabs) {
+                ByteBuffer slab = ByteBuffer.allocateDirect(size * buffersPerSlab);
+                for (int i = 0; i < buffersPerSlab; i++) {
+                    free.addLast(slab.slice(i * size, size));
+                }
+                slabs++;
+            }
+            ByteBuffer buffer = free.pollFirst();
+            if (buffer != null) {
+                leased++;
+            }
+            return buffer;
+        }
+
+        // последний возвращённый буфер выдаётся первым: его память ещё в кэше процессора
+        private synchronized void offer(ByteBuffer buffer) {
+            leased--;
+            free.addFirst(buffer);
+        }
+
+        private synchronized double capacityBytes() {
+            return (double) slabs * buffersPerSlab * size;
+        }
+
+        private synchronized double usedBytes() {
+            return (double) leased * size;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ib.buffer;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Буфер, выданный {@link DirectBufferPool}. Не потокобезопасен; после {@link #close()}
+ * пользоваться буфером нельзя — его память получит следующий запрос.
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private final Lease lease;
+    private final Cleaner.Cleanable cleanable;
+
+    PooledBuffer(Lease lease, Cleaner cleaner) {
+        this.lease = lease;
+        this.cleanable = cleaner.register(this, lease);
+    }
+
+    public ByteBuffer buffer() {
+        if (lease.released.get()) {
+            throw new IllegalStateException("Буфер уже возвращён в пул.");
+        }
+        return lease.buffer;
+    }
+
+    /** Возвращает буфер в пул; повторный возврат — ошибка в вызывающем коде. */
+    @Override
+    public void close() {
+        if (!lease.released.compareAndSet(false, true)) {
+            throw new IllegalStateException("Буфер уже возвращён в пул.");
+        }
+        lease.pool.release(lease);
+        cleanable.clean();
+    }
+
+    /**
+     * Состояние выдачи, доступное очистителю: на сам {@link PooledBuffer} не ссылается,
+     * иначе он никогда не стал бы недостижимым.
+     */
+    static final class Lease implements Runnable {
+        final DirectBufferPool pool;
+        final DirectBufferPool.SizeClass sizeClass;
+        final ByteBuffer buffer;
+        final int size;
+        final Throwable allocationSite;
+        final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(DirectBufferPool pool, DirectBufferPool.SizeClass sizeClass, ByteBuffer buffer, int size,
+              Throwable allocationSite) {
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+            this.size = size;
+            this.allocationSite = allocationSite;
+        }
+
+        @Override
+        public void run() {
+            if (!released.get()) {
+                pool.leaked(this);
+            }
+        }
+    }
+}
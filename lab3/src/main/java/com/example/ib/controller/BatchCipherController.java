@@ -0,0 +1,82 @@
+package com.example.ib.controller;
+
+import com.example.ib.batch.BatchCipherService;
+import com.example.ib.batch.BatchCipherService.BatchStatus;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.service.MagmaFileCipherService;
+import com.example.ib.service.MagmaFileCipherService.CipherMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Пакетное шифрование каталогов на сервере. Запуск возвращает 202 и идентификатор задания,
+ * прогресс и скорость обработки доступны по GET /cipher/batch/{id}. Каталоги задаются
+ * относительно корня app.cipher.batch.root; повторный запуск с тем же целевым каталогом
+ * продолжает прерванное задание.
+ */
+@Controller
+@RequestMapping("/cipher/batch")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BatchCipherController {
+
+    private final BatchCipherService batchService;
+    private final MagmaFileCipherService cipherService;
+
+    public BatchCipherController(BatchCipherService batchService, MagmaFileCipherService cipherService) {
+        this.batchService = batchService;
+        this.cipherService = cipherService;
+    }
+
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<BatchStatus> start(
+            @RequestParam("source") String source,
+            @RequestParam("target") String target,
+            @RequestParam("mode") String mode,
+            @RequestParam(value = "keyFile", required = false) MultipartFile keyFile,
+            @RequestParam(value = "keyHex", required = false) String keyHex,
+            @RequestParam(value = "algorithm", required = false) String algorithm) throws IOException {
+        CipherMode cipherMode = CipherMode.fromString(mode);
+        CipherAlgorithm cipherAlgorithm = CipherAlgorithm.fromString(algorithm);
+        byte[] key = cipherService.resolveKey(keyHex, keyFile);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(batchService.start(source, target, cipherMode, cipherAlgorithm, key));
+    }
+
+    @GetMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<?> status(@PathVariable String id) {
+        return batchService.status(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Задание " + id + " не найдено.")));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось запустить задание. Повторите попытку позже."));
+    }
+}
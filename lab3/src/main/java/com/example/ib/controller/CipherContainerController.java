@@ -0,0 +1,147 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.service.AuthenticatedContainerService;
+import com.example.ib.service.AuthenticatedContainerService.ContainerAuthenticationException;
+import com.example.ib.service.AuthenticatedContainerService.Header;
+import com.example.ib.service.MagmaFileCipherService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Шифрование в аутентифицированный контейнер (MGM по фрагментам) и потоковое расшифрование
+ * с проверкой каждого фрагмента. Результат передаётся клиенту по мере обработки.
+ */
+@Controller
+@RequestMapping("/cipher/container")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CipherContainerController {
+
+    private final AuthenticatedContainerService containerService;
+    private final MagmaFileCipherService cipherService;
+
+    public CipherContainerController(AuthenticatedContainerService containerService,
+                                     MagmaFileCipherService cipherService) {
+        this.containerService = containerService;
+        this.cipherService = cipherService;
+    }
+
+    @PostMapping(value = "/encrypt", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> encrypt(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "keyFile", required = false) MultipartFile keyFile,
+            @RequestParam(value = "keyHex", required = false) String keyHex,
+            @RequestParam(value = "algorithm", required = false) String algorithm) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите исходный файл.");
+        }
+        byte[] key = cipherService.resolveKey(keyHex, keyFile);
+        CipherAlgorithm cipherAlgorithm = CipherAlgorithm.fromString(algorithm);
+        InputStream input = file.getInputStream();
+        StreamingResponseBody body = output -> {
+            try (input) {
+                containerService.encrypt(input, output, key, cipherAlgorithm);
+            }
+        };
+        return attachment(baseName(file.getOriginalFilename()) + AuthenticatedContainerService.FILE_EXTENSION, body);
+    }
+
+    @PostMapping(value = "/decrypt", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> decrypt(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "keyFile", required = false) MultipartFile keyFile,
+            @RequestParam(value = "keyHex", required = false) String keyHex) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите файл контейнера.");
+        }
+        byte[] key = cipherService.resolveKey(keyHex, keyFile);
+        InputStream input = file.getInputStream();
+        Header header;
+        try {
+            header = containerService.readHeader(input);
+        } catch (IllegalArgumentException | IOException e) {
+            input.close();
+            throw e;
+        }
+        StreamingResponseBody body = output -> {
+            try (input) {
+                containerService.decrypt(header, input, output, key);
+            }
+        };
+        String name = baseName(file.getOriginalFilename());
+        if (name.toLowerCase().endsWith(AuthenticatedContainerService.FILE_EXTENSION)
+                && name.length() > AuthenticatedContainerService.FILE_EXTENSION.length()) {
+            name = name.substring(0, name.length() - AuthenticatedContainerService.FILE_EXTENSION.length());
+        } else {
+            name = name + ".plain";
+        }
+        return attachment(name, body);
+    }
+
+    /**
+     * Если часть открытого текста уже отправлена, ответ нельзя заменить ошибкой: исключение
+     * пробрасывается дальше, и соединение обрывается без завершающего фрагмента — клиент
+     * видит незавершённую передачу, а не «успешный» усечённый файл.
+     */
+    @ExceptionHandler(ContainerAuthenticationException.class)
+    public ResponseEntity<Map<String, String>> handleAuthentication(ContainerAuthenticationException e,
+                                                                    HttpServletResponse response)
+            throws ContainerAuthenticationException {
+        if (response.isCommitted()) {
+            throw e;
+        }
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось обработать файл. Повторите попытку позже."));
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String fileName, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+
+    private String baseName(String originalName) {
+        if (originalName == null || originalName.isBlank()) {
+            return "data";
+        }
+        String name = Path.of(originalName).getFileName().toString().replaceAll("[\\\\/:*?\"<>|]", "").trim();
+        return name.isBlank() ? "data" : name;
+    }
+}
@@ -1,25 +1,34 @@
 package com.example.ib.controller;
 
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.mode.BlockMode;
 import com.example.ib.service.MagmaFileCipherService;
 import com.example.ib.service.MagmaFileCipherService.CipherMode;
 import com.example.ib.service.MagmaFileCipherService.ProcessedFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.Map;
 
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CipherController {
 
+    /** Счётчик, назначенный пулом гаммы, когда он не задан в запросе на шифрование. */
+    private static final String COUNTER_HEADER = "X-Magma-Counter";
+
     private final MagmaFileCipherService cipherService;
 
     public CipherController(MagmaFileCipherService cipherService) {
@@ -34,27 +43,43 @@ public class CipherController {
 
     @PostMapping(value = "/cipher", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
-    public ResponseEntity<?> process(
+    public ResponseEntity<StreamingResponseBody> process(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "keyFile", required = false) MultipartFile keyFile,
             @RequestParam(value = "keyHex", required = false) String keyHex,
-            @RequestParam("counter") String counterHex,
+            @RequestParam(value = "counter", required = false) String counterHex,
             @RequestParam("mode") String mode,
-            @RequestParam(value = "outputName", required = false) String outputName) {
-        try {
-            CipherMode cipherMode = CipherMode.fromString(mode);
-            ProcessedFile processed = cipherService.process(file, keyFile, keyHex, counterHex, cipherMode, outputName);
-            String cd = buildContentDisposition(processed.fileName());
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, cd)
-                    .body(processed.content());
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", "Не удалось обработать файл. Повторите попытку позже."));
+            @RequestParam(value = "algorithm", required = false) String algorithm,
+            @RequestParam(value = "blockMode", required = false) String blockMode,
+            @RequestParam(value = "outputName", required = false) String outputName) throws IOException {
+        CipherMode cipherMode = CipherMode.fromString(mode);
+        CipherAlgorithm cipherAlgorithm = CipherAlgorithm.fromString(algorithm);
+        BlockMode cipherBlockMode = BlockMode.fromString(blockMode);
+        ProcessedFile processed = cipherService.process(
+                file, keyFile, keyHex, counterHex, cipherMode, cipherAlgorithm, cipherBlockMode, outputName);
+        String cd = buildContentDisposition(processed.fileName());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(processed.length())
+                .header(HttpHeaders.CONTENT_DISPOSITION, cd);
+        if (processed.assignedCounter() != null) {
+            response.header(COUNTER_HEADER, MagmaFileCipherService.formatCounter(processed.assignedCounter()));
         }
+        return response.body(processed.content());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось обработать файл. Повторите попытку позже."));
     }
 
     /**
@@ -0,0 +1,138 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.service.EncryptedFileStorageService;
+import com.example.ib.service.EncryptedFileStorageService.StoredFileExistsException;
+import com.example.ib.service.EncryptedFileStorageService.StoredFileNotFoundException;
+import com.example.ib.service.MagmaFileCipherService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Загрузка зашифрованных файлов на сервер и расшифрование их диапазонов по HTTP Range.
+ * Файл с уже занятым именем заменяется только с параметром overwrite=true, иначе ответ 409.
+ * Ключ и счётчик передаются в заголовках X-Magma-Key и X-Magma-Counter, чтобы не попадать в URL;
+ * необязательный заголовок X-Cipher-Algorithm выбирает шифр (magma по умолчанию или kuznyechik).
+ */
+@Controller
+@RequestMapping("/cipher/files")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CipherFileController {
+
+    private final EncryptedFileStorageService storageService;
+    private final MagmaFileCipherService cipherService;
+
+    public CipherFileController(EncryptedFileStorageService storageService, MagmaFileCipherService cipherService) {
+        this.storageService = storageService;
+        this.cipherService = cipherService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "name", required = false) String name,
+                                    @RequestParam(value = "overwrite", defaultValue = "false") boolean overwrite) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(storageService.store(file, name, overwrite));
+        } catch (StoredFileExistsException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Не удалось сохранить файл. Повторите попытку позже."));
+        }
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<StreamingResponseBody> decrypt(
+            @PathVariable String name,
+            @RequestHeader("X-Magma-Key") String keyHex,
+            @RequestHeader("X-Magma-Counter") String counterHex,
+            @RequestHeader(value = "X-Cipher-Algorithm", required = false) String algorithmName,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) throws IOException {
+        byte[] key = cipherService.parseHexKey(keyHex);
+        long counter = cipherService.parseCounter(counterHex);
+        CipherAlgorithm algorithm = CipherAlgorithm.fromString(algorithmName);
+        long size = storageService.size(name);
+
+        long start = 0;
+        long end = size - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (rangeHeader != null && !rangeHeader.isBlank()) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() != 1 || size == 0) {
+                    return rangeNotSatisfiable(size);
+                }
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+                if (start >= size || start > end) {
+                    return rangeNotSatisfiable(size);
+                }
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(size);
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+        long rangeStart = start;
+        long rangeEnd = end;
+        StreamingResponseBody body = output ->
+                storageService.decryptRange(name, key, counter, algorithm, rangeStart, rangeEnd, output);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentLength(Math.max(0, end - start + 1));
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        return builder.body(body);
+    }
+
+    @ExceptionHandler(StoredFileNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(StoredFileNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось прочитать файл. Повторите попытку позже."));
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.service.MagmaFileCipherService;
+import com.example.ib.storage.EncryptedObjectStore;
+import com.example.ib.storage.EncryptedObjectStore.SegmentAuthenticationException;
+import com.example.ib.storage.EncryptedObjectStore.StoredObjectNotFoundException;
+import com.example.ib.storage.SegmentIndex;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Серверное хранилище зашифрованных объектов: загрузка с шифрованием по сегментам и чтение
+ * произвольного диапазона по HTTP Range. Ключ при чтении передаётся в заголовке X-Magma-Key,
+ * алгоритм и параметры сегментов берутся из индекса объекта.
+ */
+@Controller
+@RequestMapping("/cipher/objects")
+@ConditionalOnProperty(name = "app.cipher.object-store.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ObjectStoreController {
+
+    private final EncryptedObjectStore objectStore;
+    private final MagmaFileCipherService cipherService;
+
+    public ObjectStoreController(EncryptedObjectStore objectStore, MagmaFileCipherService cipherService) {
+        this.objectStore = objectStore;
+        this.cipherService = cipherService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<EncryptedObjectStore.StoredObject> upload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "keyFile", required = false) MultipartFile keyFile,
+            @RequestParam(value = "keyHex", required = false) String keyHex,
+            @RequestParam(value = "algorithm", required = false) String algorithm) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите файл для сохранения.");
+        }
+        byte[] key = cipherService.resolveKey(keyHex, keyFile);
+        String objectName = name == null || name.isBlank()
+                ? Path.of(String.valueOf(file.getOriginalFilename())).getFileName().toString()
+                : name.trim();
+        try (InputStream input = file.getInputStream()) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(objectStore.store(objectName, input, key, CipherAlgorithm.fromString(algorithm)));
+        }
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<StreamingResponseBody> read(
+            @PathVariable String name,
+            @RequestHeader("X-Magma-Key") String keyHex,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) throws IOException {
+        byte[] key = cipherService.parseHexKey(keyHex);
+        SegmentIndex index = objectStore.index(name);
+        long size = index.size();
+
+        long start = 0;
+        long end = size - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (rangeHeader != null && !rangeHeader.isBlank()) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() != 1 || size == 0) {
+                    return rangeNotSatisfiable(size);
+                }
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+                if (start >= size || start > end) {
+                    return rangeNotSatisfiable(size);
+                }
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(size);
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+        long rangeStart = start;
+        long rangeEnd = end;
+        StreamingResponseBody body = output -> objectStore.readRange(name, index, key, rangeStart, rangeEnd, output);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header("X-Cipher-Algorithm", index.algorithm().getId())
+                .contentLength(Math.max(0, end - start + 1));
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        return builder.body(body);
+    }
+
+    @ExceptionHandler(StoredObjectNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(StoredObjectNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /** После начала передачи ошибку проверки нельзя вернуть кодом — соединение обрывается. */
+    @ExceptionHandler(SegmentAuthenticationException.class)
+    public ResponseEntity<Map<String, String>> handleAuthentication(SegmentAuthenticationException e,
+                                                                    HttpServletResponse response)
+            throws SegmentAuthenticationException {
+        if (response.isCommitted()) {
+            throw e;
+        }
+        // сбрасываются заголовки ответа с данными, в том числе Content-Length диапазона
+        response.reset();
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Map<String, String>> handleIo(IOException e) {
+        return ResponseEntity.internalServerError()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Не удалось обработать объект. Повторите попытку позже."));
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+}
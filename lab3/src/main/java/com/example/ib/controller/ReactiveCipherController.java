@@ -0,0 +1,96 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.service.MagmaFileCipherService;
+import com.example.ib.service.MagmaFileCipherService.CtrSession;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+/**
+ * Потоковое CTR-шифрование для реактивного профиля. Тело запроса — сам файл (без multipart),
+ * ключ и счётчик передаются в заголовках X-Magma-Key и X-Magma-Counter, необязательный
+ * X-Cipher-Algorithm выбирает шифр. Каждая пришедшая часть сразу преобразуется и уходит
+ * в ответ; следующая часть запрашивается у клиента только после записи предыдущей,
+ * поэтому память на запрос ограничена одной частью, а медленная загрузка не занимает поток.
+ */
+@Controller
+@RequestMapping("/stream")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCipherController {
+
+    private final MagmaFileCipherService cipherService;
+
+    public ReactiveCipherController(MagmaFileCipherService cipherService) {
+        this.cipherService = cipherService;
+    }
+
+    @PostMapping(value = "/cipher", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> process(
+            @RequestHeader("X-Magma-Key") String keyHex,
+            @RequestHeader("X-Magma-Counter") String counterHex,
+            @RequestHeader(value = "X-Cipher-Algorithm", required = false) String algorithmName,
+            @RequestBody Flux<DataBuffer> body,
+            ServerHttpResponse response) {
+        byte[] key = cipherService.parseHexKey(keyHex);
+        long counter = cipherService.parseCounter(counterHex);
+        CipherAlgorithm algorithm = CipherAlgorithm.fromString(algorithmName);
+        DataBufferFactory bufferFactory = response.bufferFactory();
+
+        Flux<DataBuffer> output = Flux.using(
+                () -> cipherService.openCtrSession(key, counter, algorithm),
+                session -> {
+                    ChunkReader reader = new ChunkReader();
+                    return body.map(buffer -> transform(session, reader, buffer, bufferFactory));
+                },
+                CtrSession::close);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(output);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    private static DataBuffer transform(CtrSession session, ChunkReader reader, DataBuffer input,
+                                        DataBufferFactory bufferFactory) {
+        try {
+            int length = reader.read(input);
+            session.update(reader.chunk, 0, length);
+            return bufferFactory.allocateBuffer(length).write(reader.chunk, 0, length);
+        } finally {
+            DataBufferUtils.release(input);
+        }
+    }
+
+    /** Буфер для копирования части запроса; части одного запроса приходят последовательно. */
+    private static final class ChunkReader {
+        private byte[] chunk = new byte[8192];
+
+        int read(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            if (chunk.length < length) {
+                chunk = new byte[length];
+            }
+            buffer.read(chunk, 0, length);
+            return length;
+        }
+    }
+}
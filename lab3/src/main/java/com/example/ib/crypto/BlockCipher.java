@@ -0,0 +1,29 @@
+package com.example.ib.crypto;
+
+/**
+ * Блочный шифр с уже развёрнутым ключом. Экземпляр хранит раундовые ключи,
+ * поэтому после использования его следует уничтожить вызовом {@link #destroy()}.
+ * Реализации не изменяют состояние при шифровании и допускают одновременные вызовы
+ * из нескольких потоков (параллельные режимы пользуются этим).
+ */
+public interface BlockCipher {
+
+    /** Размер блока в байтах. */
+    int getBlockSize();
+
+    /** Шифрует один блок. Допускается in == out при совпадающих смещениях. */
+    void encryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    /** Расшифровывает один блок. Допускается in == out при совпадающих смещениях. */
+    void decryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    /**
+     * Вырабатывает count блоков гаммы режима гаммирования (ГОСТ Р 34.13-2018, п. 4.2):
+     * блок с номером blockIndex, blockIndex + 1, ... для начального значения счётчика counter.
+     * Расположение счётчика в блоке определяется размером блока шифра.
+     */
+    void keystream(long counter, long blockIndex, int count, byte[] out, int outOff);
+
+    /** Затирает раундовые ключи. */
+    void destroy();
+}
@@ -0,0 +1,38 @@
+package com.example.ib.crypto;
+
+/**
+ * Блочные шифры ГОСТ 34.12-2018, доступные для шифрования файлов.
+ */
+public enum CipherAlgorithm {
+    MAGMA("magma", MagmaCipher.BLOCK_SIZE),
+    KUZNYECHIK("kuznyechik", KuznyechikCipher.BLOCK_SIZE);
+
+    private final String id;
+    private final int blockSize;
+
+    CipherAlgorithm(String id, int blockSize) {
+        this.id = id;
+        this.blockSize = blockSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /** Без указания алгоритма используется «Магма», как и раньше. */
+    public static CipherAlgorithm fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return MAGMA;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "magma" -> MAGMA;
+            case "kuznyechik", "kuznechik", "kuznyechik-128" -> KUZNYECHIK;
+            default -> throw new IllegalArgumentException(
+                    "Неизвестный алгоритм шифрования: " + value + ". Используйте magma или kuznyechik.");
+        };
+    }
+}
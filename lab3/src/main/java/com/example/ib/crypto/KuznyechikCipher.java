@@ -0,0 +1,291 @@
+package com.example.ib.crypto;
+
+import java.util.Arrays;
+
+/**
+ * Реализация блочного шифра «Кузнечик» согласно ГОСТ 34.12-2018.
+ * Длина блока — 128 бит, длина ключа — 256 бит, 10 раундовых ключей.
+ * <p>
+ * Блок хранится как два 64-битных слова: старшее — байты a15..a8, младшее — a7..a0
+ * (порядок записи в стандарте). Преобразование LS раунда выполняется по таблицам
+ * LS_HI/LS_LO: для каждой из 16 позиций байта таблица содержит результат L(S(·))
+ * от вектора с единственным ненулевым байтом, так что раунд сводится к 16 выборкам и XOR.
+ */
+public final class KuznyechikCipher implements BlockCipher {
+
+    /** Размер блока в байтах (ГОСТ 34.12-2018, п. 4.1). */
+    public static final int BLOCK_SIZE = 16;
+    /** Размер ключа в байтах (ГОСТ 34.12-2018, п. 4.1). */
+    public static final int KEY_SIZE = 32;
+
+    private static final int ROUNDS = 10;
+
+    /** Нелинейная биекция π (ГОСТ 34.12-2018, п. 4.1.1). */
+    private static final int[] PI = {
+        252, 238, 221, 17, 207, 110, 49, 22, 251, 196, 250, 218, 35, 197, 4, 77,
+        233, 119, 240, 219, 147, 46, 153, 186, 23, 54, 241, 187, 20, 205, 95, 193,
+        249, 24, 101, 90, 226, 92, 239, 33, 129, 28, 60, 66, 139, 1, 142, 79,
+        5, 132, 2, 174, 227, 106, 143, 160, 6, 11, 237, 152, 127, 212, 211, 31,
+        235, 52, 44, 81, 234, 200, 72, 171, 242, 42, 104, 162, 253, 58, 206, 204,
+        181, 112, 14, 86, 8, 12, 118, 18, 191, 114, 19, 71, 156, 183, 93, 135,
+        21, 161, 150, 41, 16, 123, 154, 199, 243, 145, 120, 111, 157, 158, 178, 177,
+        50, 117, 25, 61, 255, 53, 138, 126, 109, 84, 198, 128, 195, 189, 13, 87,
+        223, 245, 36, 169, 62, 168, 67, 201, 215, 121, 214, 246, 124, 34, 185, 3,
+        224, 15, 236, 222, 122, 148, 176, 188, 220, 232, 40, 80, 78, 51, 10, 74,
+        167, 151, 96, 115, 30, 0, 98, 68, 26, 184, 56, 130, 100, 159, 38, 65,
+        173, 69, 70, 146, 39, 94, 85, 47, 140, 163, 165, 125, 105, 213, 149, 59,
+        7, 88, 179, 64, 134, 172, 29, 247, 48, 55, 107, 228, 136, 217, 231, 137,
+        225, 27, 131, 73, 76, 63, 248, 254, 141, 83, 170, 144, 202, 216, 133, 97,
+        32, 113, 103, 164, 45, 43, 9, 91, 203, 155, 37, 208, 190, 229, 108, 82,
+        89, 166, 116, 210, 230, 244, 180, 192, 209, 102, 175, 194, 57, 75, 99, 182,
+    };
+
+    /** Коэффициенты линейного преобразования l (ГОСТ 34.12-2018, п. 4.1.2) для байтов a15..a0. */
+    private static final int[] L_COEFFICIENTS = {148, 32, 133, 16, 194, 192, 1, 251, 1, 192, 194, 16, 133, 32, 148, 1};
+
+    private static final long[][] LS_HI = new long[BLOCK_SIZE][256];
+    private static final long[][] LS_LO = new long[BLOCK_SIZE][256];
+    /** Таблицы обратного линейного преобразования L^-1 (без подстановки) для расшифрования. */
+    private static final long[][] IL_HI = new long[BLOCK_SIZE][256];
+    private static final long[][] IL_LO = new long[BLOCK_SIZE][256];
+    private static final byte[] PI_INVERSE = new byte[256];
+    /** Итерационные константы C1..C32 = L(Vec128(i)) для развёртывания ключа, пары (старшее, младшее). */
+    private static final long[] C_HI = new long[32];
+    private static final long[] C_LO = new long[32];
+
+    static {
+        initTables();
+    }
+
+    private final long[] keyHi = new long[ROUNDS];
+    private final long[] keyLo = new long[ROUNDS];
+
+    /**
+     * Развёртывает 256-битный ключ в 10 раундовых ключей (ГОСТ 34.12-2018, п. 4.3):
+     * K1, K2 — половины ключа, каждая следующая пара получается из предыдущей
+     * восемью итерациями сети Фейстеля с константами C.
+     */
+    public KuznyechikCipher(byte[] masterKey) {
+        if (masterKey == null || masterKey.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Ключ должен содержать ровно 256 бит (32 байта).");
+        }
+        long a1Hi = readLong(masterKey, 0);
+        long a1Lo = readLong(masterKey, 8);
+        long a0Hi = readLong(masterKey, 16);
+        long a0Lo = readLong(masterKey, 24);
+        keyHi[0] = a1Hi;
+        keyLo[0] = a1Lo;
+        keyHi[1] = a0Hi;
+        keyLo[1] = a0Lo;
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 8; j++) {
+                int c = 8 * i + j;
+                long xHi = a1Hi ^ C_HI[c];
+                long xLo = a1Lo ^ C_LO[c];
+                long nextHi = lsHi(xHi, xLo) ^ a0Hi;
+                long nextLo = lsLo(xHi, xLo) ^ a0Lo;
+                a0Hi = a1Hi;
+                a0Lo = a1Lo;
+                a1Hi = nextHi;
+                a1Lo = nextLo;
+            }
+            keyHi[2 + 2 * i] = a1Hi;
+            keyLo[2 + 2 * i] = a1Lo;
+            keyHi[3 + 2 * i] = a0Hi;
+            keyLo[3 + 2 * i] = a0Lo;
+        }
+    }
+
+    @Override
+    public int getBlockSize() {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        long[] block = encrypt(readLong(in, inOff), readLong(in, inOff + 8));
+        writeLong(block[0], out, outOff);
+        writeLong(block[1], out, outOff + 8);
+    }
+
+    /** Расшифрование: X[K1] S^-1 L^-1 X[K2] ... S^-1 L^-1 X[K10] (ГОСТ 34.12-2018, п. 4.4.2). */
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        long hi = readLong(in, inOff);
+        long lo = readLong(in, inOff + 8);
+        for (int round = ROUNDS - 1; round > 0; round--) {
+            long xHi = hi ^ keyHi[round];
+            long xLo = lo ^ keyLo[round];
+            long nextHi = 0;
+            long nextLo = 0;
+            for (int i = 0; i < 8; i++) {
+                int shift = 56 - 8 * i;
+                int a = (int) (xHi >>> shift) & 0xFF;
+                int b = (int) (xLo >>> shift) & 0xFF;
+                nextHi ^= IL_HI[i][a] ^ IL_HI[8 + i][b];
+                nextLo ^= IL_LO[i][a] ^ IL_LO[8 + i][b];
+            }
+            hi = inverseSubstitute(nextHi);
+            lo = inverseSubstitute(nextLo);
+        }
+        writeLong(hi ^ keyHi[0], out, outOff);
+        writeLong(lo ^ keyLo[0], out, outOff + 8);
+    }
+
+    /**
+     * Блок гаммы i — зашифрованное 128-битное значение CTR_1 + i, где CTR_1 = counter || 0^64
+     * (ГОСТ Р 34.13-2018, п. 4.2: половина блока — начальное значение, вторая — нули),
+     * инкремент по модулю 2^128.
+     */
+    @Override
+    public void keystream(long counter, long blockIndex, int count, byte[] out, int outOff) {
+        if (count < 0 || outOff < 0 || (long) count * BLOCK_SIZE > out.length - outOff) {
+            throw new IllegalArgumentException("Выходной буфер меньше запрошенного числа блоков.");
+        }
+        long lo = blockIndex;
+        long hi = counter;
+        int offset = outOff;
+        for (int i = 0; i < count; i++) {
+            long[] block = encrypt(hi, lo);
+            writeLong(block[0], out, offset);
+            writeLong(block[1], out, offset + 8);
+            offset += BLOCK_SIZE;
+            lo++;
+            if (lo == 0) { // перенос в старшую половину счётчика
+                hi++;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Arrays.fill(keyHi, 0);
+        Arrays.fill(keyLo, 0);
+    }
+
+    /** Девять раундов LSX и финальное наложение ключа K10. */
+    private long[] encrypt(long hi, long lo) {
+        for (int round = 0; round < ROUNDS - 1; round++) {
+            long xHi = hi ^ keyHi[round];
+            long xLo = lo ^ keyLo[round];
+            hi = lsHi(xHi, xLo);
+            lo = lsLo(xHi, xLo);
+        }
+        return new long[] {hi ^ keyHi[ROUNDS - 1], lo ^ keyLo[ROUNDS - 1]};
+    }
+
+    private static long inverseSubstitute(long value) {
+        long result = 0;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            result = (result << 8) | (PI_INVERSE[(int) (value >>> shift) & 0xFF] & 0xFFL);
+        }
+        return result;
+    }
+
+    private static long lsHi(long hi, long lo) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result ^= LS_HI[i][(int) (hi >>> (56 - 8 * i)) & 0xFF]
+                    ^ LS_HI[8 + i][(int) (lo >>> (56 - 8 * i)) & 0xFF];
+        }
+        return result;
+    }
+
+    private static long lsLo(long hi, long lo) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result ^= LS_LO[i][(int) (hi >>> (56 - 8 * i)) & 0xFF]
+                    ^ LS_LO[8 + i][(int) (lo >>> (56 - 8 * i)) & 0xFF];
+        }
+        return result;
+    }
+
+    private static void initTables() {
+        for (int value = 0; value < 256; value++) {
+            PI_INVERSE[PI[value]] = (byte) value;
+        }
+        byte[] vector = new byte[BLOCK_SIZE];
+        for (int position = 0; position < BLOCK_SIZE; position++) {
+            for (int value = 0; value < 256; value++) {
+                Arrays.fill(vector, (byte) 0);
+                vector[position] = (byte) value;
+                inverseLTransform(vector);
+                IL_HI[position][value] = readLong(vector, 0);
+                IL_LO[position][value] = readLong(vector, 8);
+            }
+        }
+        for (int position = 0; position < BLOCK_SIZE; position++) {
+            for (int value = 0; value < 256; value++) {
+                Arrays.fill(vector, (byte) 0);
+                vector[position] = (byte) PI[value];
+                lTransform(vector);
+                LS_HI[position][value] = readLong(vector, 0);
+                LS_LO[position][value] = readLong(vector, 8);
+            }
+        }
+        for (int i = 0; i < 32; i++) {
+            Arrays.fill(vector, (byte) 0);
+            vector[BLOCK_SIZE - 1] = (byte) (i + 1);
+            lTransform(vector);
+            C_HI[i] = readLong(vector, 0);
+            C_LO[i] = readLong(vector, 8);
+        }
+    }
+
+    /** L = R^16, R(a15..a0) = l(a15..a0) || a15..a1 (ГОСТ 34.12-2018, п. 4.1.2). */
+    private static void lTransform(byte[] vector) {
+        for (int step = 0; step < BLOCK_SIZE; step++) {
+            int l = 0;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                l ^= gfMultiply(vector[i] & 0xFF, L_COEFFICIENTS[i]);
+            }
+            System.arraycopy(vector, 0, vector, 1, BLOCK_SIZE - 1);
+            vector[0] = (byte) l;
+        }
+    }
+
+    /** L^-1 = (R^-1)^16, R^-1(a15..a0) = a14..a0 || l(a14..a0, a15). */
+    private static void inverseLTransform(byte[] vector) {
+        for (int step = 0; step < BLOCK_SIZE; step++) {
+            byte first = vector[0];
+            System.arraycopy(vector, 1, vector, 0, BLOCK_SIZE - 1);
+            vector[BLOCK_SIZE - 1] = first;
+            int l = 0;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                l ^= gfMultiply(vector[i] & 0xFF, L_COEFFICIENTS[i]);
+            }
+            vector[BLOCK_SIZE - 1] = (byte) l;
+        }
+    }
+
+    /** Умножение в поле GF(2^8) по модулю p(x) = x^8 + x^7 + x^6 + x + 1. */
+    private static int gfMultiply(int a, int b) {
+        int result = 0;
+        while (b != 0) {
+            if ((b & 1) != 0) {
+                result ^= a;
+            }
+            a <<= 1;
+            if ((a & 0x100) != 0) {
+                a ^= 0x1C3;
+            }
+            b >>>= 1;
+        }
+        return result;
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void writeLong(long value, byte[] out, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            out[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
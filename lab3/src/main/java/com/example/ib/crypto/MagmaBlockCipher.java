@@ -0,0 +1,52 @@
+package com.example.ib.crypto;
+
+import java.util.Arrays;
+
+/**
+ * «Магма» с развёрнутым ключом. Блок гаммы — 64-битное значение счётчика counter + blockIndex
+ * (инкремент по модулю 2^64).
+ */
+public final class MagmaBlockCipher implements BlockCipher {
+
+    private final MagmaCipher magmaCipher = new MagmaCipher();
+    private final int[] roundKeys;
+    private final int[] decryptionKeys;
+
+    /**
+     * @param roundKeys раундовые ключи из {@link MagmaCipher#expandKey(byte[])};
+     *                  массив не копируется и затирается в {@link #destroy()}
+     */
+    public MagmaBlockCipher(int[] roundKeys) {
+        this.roundKeys = roundKeys;
+        this.decryptionKeys = new int[roundKeys.length];
+        for (int i = 0; i < roundKeys.length; i++) { // расшифрование — та же сеть с обратным порядком ключей
+            decryptionKeys[i] = roundKeys[roundKeys.length - 1 - i];
+        }
+    }
+
+    @Override
+    public int getBlockSize() {
+        return MagmaCipher.BLOCK_SIZE;
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        magmaCipher.encryptBlock(in, inOff, out, outOff, roundKeys);
+    }
+
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        magmaCipher.encryptBlock(in, inOff, out, outOff, decryptionKeys);
+    }
+
+    @Override
+    public void keystream(long counter, long blockIndex, int count, byte[] out, int outOff) {
+        magmaCipher.encryptBlocks(counter + blockIndex, count, out, outOff, roundKeys);
+    }
+
+    @Override
+    public void destroy() {
+        Arrays.fill(roundKeys, 0);
+        Arrays.fill(decryptionKeys, 0);
+    }
+}
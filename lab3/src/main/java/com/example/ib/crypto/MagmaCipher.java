@@ -26,6 +26,16 @@ public final class MagmaCipher {
         {1, 7, 14, 13, 0, 5, 8, 3, 4, 15, 10, 6, 9, 12, 11, 2},
     };
 
+    /** Число блоков, обрабатываемых одновременно в {@link #encryptBlocks}. */
+    private static final int LANES = 4;
+
+    /**
+     * Таблицы подстановки по байтам: SBOX_ROT[j][b] — результат замены тетрад байта j
+     * (j = 0 — старший) по паре S-блоков, уже сдвинутый на место и циклически повёрнутый
+     * на 11 бит. Раундовая функция сводится к четырём выборкам и XOR.
+     */
+    private static final int[][] SBOX_ROT = buildSboxRotTables();
+
     /**
      * Формирует 32 раундовых ключа из 256-битного ключа.
      * Первые 24 раунда используют ключи K1..K8 три раза подряд,
@@ -83,35 +93,107 @@ public final class MagmaCipher {
         intToBytes(n2, out, outOff + 4);
     }
 
+    /**
+     * Шифрует count последовательных значений счётчика counterStart, counterStart + 1, ...
+     * (64-битные блоки в big-endian, инкремент по модулю 2^64) и записывает результат в out
+     * начиная с outOff. Блоки независимы, поэтому раунды ведутся сразу для четырёх блоков:
+     * цепочки зависимостей не пересекаются и процессор выполняет их параллельно.
+     *
+     * @param roundKeys раундовые ключи из {@link #expandKey(byte[])}
+     */
+    public void encryptBlocks(long counterStart, int count, byte[] out, int outOff, int[] roundKeys) {
+        if (roundKeys == null || roundKeys.length != 32) {
+            throw new IllegalArgumentException("Ожидалось 32 раундовых ключа.");
+        }
+        if (count < 0 || outOff < 0 || (long) count * BLOCK_SIZE > out.length - outOff) {
+            throw new IllegalArgumentException("Выходной буфер меньше запрошенного числа блоков.");
+        }
+        long counter = counterStart;
+        int offset = outOff;
+        int remaining = count;
+        while (remaining >= LANES) {
+            int a1 = (int) (counter >>> 32), a2 = (int) counter;
+            int b1 = (int) ((counter + 1) >>> 32), b2 = (int) (counter + 1);
+            int c1 = (int) ((counter + 2) >>> 32), c2 = (int) (counter + 2);
+            int d1 = (int) ((counter + 3) >>> 32), d2 = (int) (counter + 3);
+
+            for (int round = 0; round < 31; round++) {
+                int k = roundKeys[round];
+                int ta = a1 ^ gFunction(k, a2);
+                int tb = b1 ^ gFunction(k, b2);
+                int tc = c1 ^ gFunction(k, c2);
+                int td = d1 ^ gFunction(k, d2);
+                a1 = a2;
+                b1 = b2;
+                c1 = c2;
+                d1 = d2;
+                a2 = ta;
+                b2 = tb;
+                c2 = tc;
+                d2 = td;
+            }
+            int k = roundKeys[31];
+            intToBytes(a1 ^ gFunction(k, a2), out, offset);
+            intToBytes(a2, out, offset + 4);
+            intToBytes(b1 ^ gFunction(k, b2), out, offset + 8);
+            intToBytes(b2, out, offset + 12);
+            intToBytes(c1 ^ gFunction(k, c2), out, offset + 16);
+            intToBytes(c2, out, offset + 20);
+            intToBytes(d1 ^ gFunction(k, d2), out, offset + 24);
+            intToBytes(d2, out, offset + 28);
+
+            counter += LANES;
+            offset += LANES * BLOCK_SIZE;
+            remaining -= LANES;
+        }
+        for (; remaining > 0; remaining--) {
+            int n1 = (int) (counter >>> 32);
+            int n2 = (int) counter;
+            for (int round = 0; round < 31; round++) {
+                int temp = n1;
+                n1 = n2;
+                n2 = temp ^ gFunction(roundKeys[round], n2);
+            }
+            intToBytes(n1 ^ gFunction(roundKeys[31], n2), out, offset);
+            intToBytes(n2, out, offset + 4);
+            counter++;
+            offset += BLOCK_SIZE;
+        }
+    }
+
     /**
      * Раундовая функция g(k, a): сложение по модулю 2^32, подстановка по S-блокам,
      * циклический сдвиг влево на 11 бит (ГОСТ 34.12-2018, п. 5.1.2).
+     * Подстановка и сдвиг выполняются по таблицам {@link #SBOX_ROT}.
      */
-    private int gFunction(int k, int a) {
+    private static int gFunction(int k, int a) {
         int sum = a + k; // сложение по модулю 2^32 за счёт переполнения int
-        int substituted = applySBox(sum);
-        return Integer.rotateLeft(substituted, 11);
+        return SBOX_ROT[0][sum >>> 24]
+                ^ SBOX_ROT[1][(sum >>> 16) & 0xFF]
+                ^ SBOX_ROT[2][(sum >>> 8) & 0xFF]
+                ^ SBOX_ROT[3][sum & 0xFF];
     }
 
-    /** Подстановка восьми 4-битных тетрад по S-блокам (биты 31..0). */
-    private int applySBox(int value) {
-        int result = 0;
-        for (int i = 0; i < 8; i++) {
-            int nibble = (value >>> (28 - 4 * i)) & 0x0F; // старший тетрад — S1
-            int substituted = S_BOX[i][nibble];
-            result |= substituted << (28 - 4 * i);
+    private static int[][] buildSboxRotTables() {
+        int[][] tables = new int[4][256];
+        for (int j = 0; j < 4; j++) {
+            int shift = 24 - 8 * j;
+            for (int b = 0; b < 256; b++) {
+                int substituted = (S_BOX[2 * j][b >>> 4] << 4) | S_BOX[2 * j + 1][b & 0x0F]; // старший тетрад — S(2j+1)
+                tables[j][b] = Integer.rotateLeft(substituted << shift, 11);
+            }
         }
-        return result;
+        return tables;
     }
 
-    private int bytesToInt(byte[] data, int offset) {
+    private static int bytesToInt(byte[] data, int offset) {
         return ((data[offset] & 0xFF) << 24)
                 | ((data[offset + 1] & 0xFF) << 16)
                 | ((data[offset + 2] & 0xFF) << 8)
                 | (data[offset + 3] & 0xFF);
     }
 
-    private void intToBytes(int value, byte[] out, int offset) {
+    private static void intToBytes(int value, byte[] out, int offset) {
         out[offset] = (byte) (value >>> 24);
         out[offset + 1] = (byte) (value >>> 16);
         out[offset + 2] = (byte) (value >>> 8);
@@ -1,19 +1,25 @@
 package com.example.ib.crypto;
 
+import com.example.ib.crypto.mode.CtrMode;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
  * Режим гаммирования (CTR) для блочного шифра «Магма»
  * согласно ГОСТ Р 34.13-2018, раздел «Режим гаммирования».
  * Гамма формируется шифрованием последовательных значений счётчика,
- * увеличиваемого по модулю 2^64.
+ * увеличиваемого по модулю 2^64. Тот же режим доступен и для «Кузнечика»
+ * через {@link BlockCipher}.
  */
 @Component
 public class MagmaCtrCipher {
 
-    private final MagmaCipher magmaCipher = new MagmaCipher();
+    private final MagmaKeyScheduleCache keyScheduleCache;
+
+    public MagmaCtrCipher(MagmaKeyScheduleCache keyScheduleCache) {
+        this.keyScheduleCache = keyScheduleCache;
+    }
 
     /**
      * Шифрование/расшифрование потока байт.
@@ -24,41 +30,78 @@ public class MagmaCtrCipher {
      * @return результат XOR данных и гаммы
      */
     public byte[] process(byte[] data, byte[] key, long initialCounter) {
+        return process(data, key, initialCounter, 0);
+    }
+
+    /**
+     * Шифрование/расшифрование фрагмента, начинающегося с произвольной позиции потока.
+     * Блок гаммы i зависит только от значения счётчика initialCounter + i, поэтому
+     * префикс до byteOffset не обрабатывается; смещение может быть не кратно размеру блока.
+     *
+     * @param data           фрагмент открытого текста или шифртекста
+     * @param key            256-битный ключ (32 байта)
+     * @param initialCounter начальное значение счётчика (64 бита) для позиции 0 потока
+     * @param byteOffset     позиция первого байта фрагмента в потоке
+     * @return результат XOR фрагмента и соответствующего участка гаммы
+     */
+    public byte[] process(byte[] data, byte[] key, long initialCounter, long byteOffset) {
+        return process(data, key, initialCounter, byteOffset, CipherAlgorithm.MAGMA);
+    }
+
+    /**
+     * То же для выбранного блочного шифра: для «Кузнечика» блок гаммы i получается
+     * шифрованием 128-битного значения initialCounter || i.
+     */
+    public byte[] process(byte[] data, byte[] key, long initialCounter, long byteOffset, CipherAlgorithm algorithm) {
         if (data == null) {
             return new byte[0];
         }
-
-        int[] roundKeys = magmaCipher.expandKey(key);
+        BlockCipher cipher = newCipher(algorithm, key);
         byte[] out = new byte[data.length];
-        byte[] counterBlock = new byte[MagmaCipher.BLOCK_SIZE];
-        byte[] gamma = new byte[MagmaCipher.BLOCK_SIZE];
-
-        long counter = initialCounter;
-        int offset = 0;
-        while (offset < data.length) {
-            packCounter(counter, counterBlock);
-            magmaCipher.encryptBlock(counterBlock, 0, gamma, 0, roundKeys);
-
-            int blockSize = Math.min(MagmaCipher.BLOCK_SIZE, data.length - offset);
-            xorBlock(data, offset, gamma, out, offset, blockSize);
-
-            counter = (counter + 1) & 0xFFFFFFFFFFFFFFFFL; // инкремент по модулю 2^64
-            offset += blockSize;
+        try {
+            transform(cipher, initialCounter, byteOffset, data, 0, out, 0, data.length);
+        } finally {
+            cipher.destroy();
         }
-        Arrays.fill(gamma, (byte) 0);
-        Arrays.fill(counterBlock, (byte) 0);
         return out;
     }
 
-    private void packCounter(long counter, byte[] buffer) {
-        for (int i = 0; i < MagmaCipher.BLOCK_SIZE; i++) {
-            buffer[7 - i] = (byte) (counter >>> (8 * i)); // big-endian представление
-        }
+    /**
+     * Создаёт шифр с развёрнутым ключом; раундовые ключи «Магмы» берутся из кэша.
+     * Экземпляр нужно уничтожить вызовом {@link BlockCipher#destroy()}.
+     */
+    public BlockCipher newCipher(CipherAlgorithm algorithm, byte[] key) {
+        return switch (algorithm) {
+            case MAGMA -> new MagmaBlockCipher(keyScheduleCache.roundKeys(key));
+            case KUZNYECHIK -> new KuznyechikCipher(key);
+        };
     }
 
-    private void xorBlock(byte[] in, int inOff, byte[] gamma, byte[] out, int outOff, int length) {
-        for (int i = 0; i < length; i++) {
-            out[outOff + i] = (byte) (in[inOff + i] ^ gamma[i]);
-        }
+    /**
+     * Поблочное (потоковое) преобразование «Магмой»: in[inOff..inOff+length) — участок потока,
+     * начинающийся с позиции byteOffset. Допускается in == out.
+     *
+     * @param roundKeys раундовые ключи из {@link MagmaCipher#expandKey(byte[])}
+     */
+    public void transform(int[] roundKeys, long initialCounter, long byteOffset,
+                          byte[] in, int inOff, byte[] out, int outOff, int length) {
+        transform(new MagmaBlockCipher(roundKeys), initialCounter, byteOffset, in, inOff, out, outOff, length);
+    }
+
+    /**
+     * Поблочное (потоковое) преобразование произвольным блочным шифром:
+     * in[inOff..inOff+length) — участок потока, начинающийся с позиции byteOffset. Допускается in == out.
+     */
+    public void transform(BlockCipher cipher, long initialCounter, long byteOffset,
+                          byte[] in, int inOff, byte[] out, int outOff, int length) {
+        CtrMode.transform(cipher, initialCounter, byteOffset, in, inOff, out, outOff, length);
+    }
+
+    /**
+     * Преобразование на месте содержимого буфера от position до limit — участка потока,
+     * начинающегося с позиции byteOffset. Подходит и для прямых буферов.
+     */
+    public void transform(BlockCipher cipher, long initialCounter, long byteOffset, ByteBuffer data) {
+        CtrMode.transform(cipher, initialCounter, byteOffset, data);
     }
 }
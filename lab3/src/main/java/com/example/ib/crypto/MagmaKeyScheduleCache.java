@@ -0,0 +1,147 @@
+package com.example.ib.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный по размеру кэш раундовых ключей «Магмы» для повторяющихся ключей.
+ * Записи индексируются не самим ключом, а его HMAC-SHA256 на случайном секрете процесса,
+ * поэтому исходный ключ в кэше не хранится. Записи устаревают через заданное время
+ * и при вытеснении затираются нулями; устаревшие записи удаляются при каждом добавлении,
+ * а не только при повторном обращении к тому же ключу.
+ */
+@Component
+public class MagmaKeyScheduleCache {
+
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+
+    private final MagmaCipher magmaCipher = new MagmaCipher();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final SecretKeySpec fingerprintKey;
+    private final ThreadLocal<Mac> fingerprintMac;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public MagmaKeyScheduleCache(@Value("${app.cipher.key-cache.max-entries}") int maxEntries,
+                                 @Value("${app.cipher.key-cache.ttl}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.fingerprintKey = new SecretKeySpec(secret, FINGERPRINT_ALGORITHM);
+        Arrays.fill(secret, (byte) 0);
+        this.fingerprintMac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Возвращает копию раундовых ключей для указанного ключа. Вызывающий код может
+     * затереть копию после использования, не затрагивая запись в кэше.
+     */
+    public int[] roundKeys(byte[] masterKey) {
+        if (maxEntries <= 0) {
+            return magmaCipher.expandKey(masterKey);
+        }
+        String fingerprint = fingerprint(masterKey);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(fingerprint);
+            if (entry != null && now - entry.createdAt < ttlNanos) {
+                return entry.roundKeys.clone();
+            }
+            if (entry != null) {
+                evict(fingerprint, entry);
+            }
+        }
+        int[] roundKeys = magmaCipher.expandKey(masterKey);
+        synchronized (entries) {
+            Entry previous = entries.put(fingerprint, new Entry(roundKeys.clone(), now));
+            if (previous != null) {
+                previous.wipe();
+            }
+            evictExpired(now);
+            evictOverflow();
+        }
+        return roundKeys;
+    }
+
+    /** Отпечаток ключа (HMAC-SHA256 на секрете процесса) — идентификатор ключа без раскрытия его значения. */
+    public String fingerprint(byte[] masterKey) {
+        if (masterKey == null || masterKey.length != MagmaCipher.KEY_SIZE) {
+            throw new IllegalArgumentException("Ключ должен содержать ровно 256 бит (32 байта).");
+        }
+        return Base64.getEncoder().encodeToString(fingerprintMac.get().doFinal(masterKey));
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.values().forEach(Entry::wipe);
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Порядок карты — по обращениям, а не по созданию, поэтому просматриваются все записи. */
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.createdAt >= ttlNanos) {
+                entry.wipe();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next().getValue().wipe();
+            iterator.remove();
+        }
+    }
+
+    private void evict(String fingerprint, Entry entry) {
+        entries.remove(fingerprint);
+        entry.wipe();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(fingerprintKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 недоступен в JDK.", e);
+        }
+    }
+
+    private static final class Entry {
+        private final int[] roundKeys;
+        private final long createdAt;
+
+        Entry(int[] roundKeys, long createdAt) {
+            this.roundKeys = roundKeys;
+            this.createdAt = createdAt;
+        }
+
+        void wipe() {
+            Arrays.fill(roundKeys, 0);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.ib.crypto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Заранее выработанная гамма «Магмы» для шифрования небольших файлов под долгоживущими ключами.
+ * <p>
+ * Значения счётчика пул назначает сам из старшей половины пространства (старший бит равен 1)
+ * по общей для всех ключей отметке: начало выбирается случайно при запуске, далее диапазоны
+ * резервируются строго по возрастанию и выдаются ровно один раз. Поэтому пул ключа, пересозданный
+ * после вытеснения, продолжает с отметки и не повторяет выданных ранее диапазонов; невыданный
+ * остаток гаммы при вытеснении затирается. Младшая половина оставлена для счётчиков, заданных
+ * пользователем, — см. {@link #checkCallerCounter}. Фоновые потоки пополняют пул, пока запас гаммы
+ * не опустится ниже половины; запрос, для которого готовой гаммы нет, резервирует новый диапазон
+ * и шифруется синхронно. Объём памяти ограничен max-keys × segments-per-key × segment-size.
+ */
+@Component
+public class MagmaKeystreamPool {
+
+    /** Запас до конца старшей половины: случайное начало не ближе 2^62 блоков к переполнению. */
+    private static final int BASE_RANDOM_SHIFT = 2;
+
+    private final boolean enabled;
+    private final int segmentBlocks;
+    private final int segmentsPerKey;
+    private final int maxKeys;
+    private final MagmaCipher magmaCipher = new MagmaCipher();
+    private final MagmaKeyScheduleCache keyScheduleCache;
+    private final SecureRandom random = new SecureRandom();
+    private final LinkedHashMap<String, KeyPool> pools = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService refillExecutor;
+    /** Следующее невыданное значение счётчика; отрицательно, пока не исчерпана старшая половина. */
+    private final AtomicLong highWaterMark;
+
+    private final AtomicLong readyBytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter generatedBytes;
+    private final Counter discardedBytes;
+
+    public MagmaKeystreamPool(@Value("${app.cipher.keystream-pool.enabled}") boolean enabled,
+                              @Value("${app.cipher.keystream-pool.segment-size}") int segmentSize,
+                              @Value("${app.cipher.keystream-pool.segments-per-key}") int segmentsPerKey,
+                              @Value("${app.cipher.keystream-pool.max-keys}") int maxKeys,
+                              @Value("${app.cipher.keystream-pool.threads}") int threads,
+                              MagmaKeyScheduleCache keyScheduleCache,
+                              MeterRegistry registry) {
+        if (segmentSize < MagmaCipher.BLOCK_SIZE || segmentSize % MagmaCipher.BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Размер сегмента гаммы должен быть кратен 8 байтам.");
+        }
+        this.enabled = enabled;
+        this.segmentBlocks = segmentSize / MagmaCipher.BLOCK_SIZE;
+        this.segmentsPerKey = Math.max(1, segmentsPerKey);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.keyScheduleCache = keyScheduleCache;
+        this.highWaterMark = new AtomicLong(Long.MIN_VALUE | (random.nextLong() >>> BASE_RANDOM_SHIFT));
+        if (enabled) {
+            AtomicInteger counter = new AtomicInteger();
+            this.refillExecutor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+                Thread thread = new Thread(runnable, "keystream-refill-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.refillExecutor = null;
+        }
+
+        this.hits = Counter.builder("ib.cipher.keystream.requests")
+                .description("Запросы к пулу гаммы")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("ib.cipher.keystream.requests")
+                .description("Запросы к пулу гаммы")
+                .tag("result", "miss")
+                .register(registry);
+        this.generatedBytes = Counter.builder("ib.cipher.keystream.generated")
+                .description("Объём гаммы, выработанной фоновыми потоками")
+                .baseUnit("bytes")
+                .register(registry);
+        this.discardedBytes = Counter.builder("ib.cipher.keystream.discarded")
+                .description("Объём невыданной гаммы, затёртой при вытеснении ключа")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("ib.cipher.keystream.ready", readyBytes, AtomicLong::get)
+                .description("Объём готовой гаммы в пуле")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("ib.cipher.keystream.keys", this, MagmaKeystreamPool::keyCount)
+                .description("Число ключей с собственным пулом гаммы")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Шифрует in в out (допускается in == out) гаммой из пула и возвращает значение счётчика
+     * первого блока — его нужно сохранить вместе с шифртекстом для последующего расшифрования.
+     */
+    public long encrypt(byte[] key, byte[] in, byte[] out) {
+        if (!enabled) {
+            throw new IllegalStateException("Пул гаммы отключён (app.cipher.keystream-pool.enabled).");
+        }
+        if (out.length < in.length) {
+            throw new IllegalArgumentException("Выходной буфер меньше входных данных.");
+        }
+        KeyPool pool = poolFor(keyScheduleCache.fingerprint(key), key);
+        int blocks = Math.max(1, (in.length + MagmaCipher.BLOCK_SIZE - 1) / MagmaCipher.BLOCK_SIZE);
+
+        long counter;
+        boolean served;
+        synchronized (pool) {
+            served = blocks <= segmentBlocks && pool.xorFromReady(blocks, in, out);
+            counter = served ? pool.lastCounter : pool.reserve(blocks);
+        }
+        if (served) {
+            hits.increment();
+        } else {
+            misses.increment();
+            int[] roundKeys = keyScheduleCache.roundKeys(key);
+            try {
+                encryptDirect(roundKeys, counter, in, out);
+            } finally {
+                Arrays.fill(roundKeys, 0);
+            }
+        }
+        scheduleRefill(pool);
+        return counter;
+    }
+
+    /**
+     * Резервирует диапазон счётчика для потокового шифрования length байт вызывающим кодом
+     * (готовая гамма при этом не расходуется) и возвращает значение счётчика первого блока.
+     */
+    public long reserve(byte[] key, long length) {
+        if (!enabled) {
+            throw new IllegalStateException("Пул гаммы отключён (app.cipher.keystream-pool.enabled).");
+        }
+        KeyPool pool = poolFor(keyScheduleCache.fingerprint(key), key);
+        long blocks = Math.max(1, (length + MagmaCipher.BLOCK_SIZE - 1) / MagmaCipher.BLOCK_SIZE);
+        long counter;
+        synchronized (pool) {
+            counter = pool.reserve(blocks);
+        }
+        misses.increment();
+        scheduleRefill(pool);
+        return counter;
+    }
+
+    /**
+     * Проверяет счётчик, заданный пользователем для шифрования «Магмой» length байт: при включённом
+     * пуле диапазон не должен заходить в старшую половину, из которой счётчики назначает пул,
+     * иначе одна и та же гамма могла бы наложиться на два разных сообщения.
+     */
+    public void checkCallerCounter(long counter, long length) {
+        if (!enabled) {
+            return;
+        }
+        long blocks = Math.max(1, (length + MagmaCipher.BLOCK_SIZE - 1) / MagmaCipher.BLOCK_SIZE);
+        if (counter < 0 || counter + blocks - 1 < 0) {
+            throw new IllegalArgumentException("Значения счётчика от 8000000000000000 назначает пул гаммы. "
+                    + "Укажите меньший счётчик или оставьте поле пустым.");
+        }
+    }
+
+    /** Наибольший объём данных, который может быть зашифрован готовой гаммой за один запрос. */
+    public int getSegmentSize() {
+        return segmentBlocks * MagmaCipher.BLOCK_SIZE;
+    }
+
+    private void encryptDirect(int[] roundKeys, long counter, byte[] in, byte[] out) {
+        byte[] gamma = new byte[Math.min(segmentBlocks, (in.length + MagmaCipher.BLOCK_SIZE - 1) / MagmaCipher.BLOCK_SIZE)
+                * MagmaCipher.BLOCK_SIZE];
+        int offset = 0;
+        while (offset < in.length) {
+            int chunk = Math.min(gamma.length, in.length - offset);
+            int blocks = (chunk + MagmaCipher.BLOCK_SIZE - 1) / MagmaCipher.BLOCK_SIZE;
+            magmaCipher.encryptBlocks(counter, blocks, gamma, 0, roundKeys);
+            for (int i = 0; i < chunk; i++) {
+                out[offset + i] = (byte) (in[offset + i] ^ gamma[i]);
+            }
+            counter += blocks;
+            offset += chunk;
+        }
+        Arrays.fill(gamma, (byte) 0);
+    }
+
+    private KeyPool poolFor(String fingerprint, byte[] key) {
+        synchronized (pools) {
+            KeyPool pool = pools.get(fingerprint);
+            if (pool == null) {
+                pool = new KeyPool(keyScheduleCache.roundKeys(key));
+                pools.put(fingerprint, pool);
+                evictOverflow();
+            }
+            return pool;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, KeyPool>> iterator = pools.entrySet().iterator();
+        while (pools.size() > maxKeys && iterator.hasNext()) {
+            KeyPool evicted = iterator.next().getValue();
+            iterator.remove();
+            synchronized (evicted) {
+                evicted.wipe();
+            }
+        }
+    }
+
+    private void scheduleRefill(KeyPool pool) {
+        synchronized (pool) {
+            if (pool.refilling || pool.evicted || pool.readyBlocks * 2 >= (long) segmentBlocks * segmentsPerKey) {
+                return;
+            }
+            pool.refilling = true;
+        }
+        try {
+            refillExecutor.execute(() -> refill(pool));
+        } catch (RejectedExecutionException e) {
+            synchronized (pool) {
+                pool.refilling = false;
+            }
+        }
+    }
+
+    private void refill(KeyPool pool) {
+        int[] roundKeys;
+        synchronized (pool) {
+            if (pool.evicted) {
+                pool.refilling = false;
+                return;
+            }
+            roundKeys = pool.roundKeys.clone();
+        }
+        try {
+            while (true) {
+                long counter;
+                synchronized (pool) {
+                    if (pool.evicted || pool.segments.size() >= segmentsPerKey) {
+                        return;
+                    }
+                    // диапазон резервируется до выработки гаммы, поэтому не может быть выдан повторно
+                    counter = pool.reserve(segmentBlocks);
+                }
+                byte[] gamma = new byte[segmentBlocks * MagmaCipher.BLOCK_SIZE];
+                magmaCipher.encryptBlocks(counter, segmentBlocks, gamma, 0, roundKeys);
+                generatedBytes.increment(gamma.length);
+                synchronized (pool) {
+                    if (pool.evicted) {
+                        Arrays.fill(gamma, (byte) 0);
+                        return;
+                    }
+                    pool.add(new Segment(counter, gamma));
+                }
+            }
+        } finally {
+            Arrays.fill(roundKeys, 0);
+            synchronized (pool) {
+                pool.refilling = false;
+            }
+        }
+    }
+
+    private int keyCount() {
+        synchronized (pools) {
+            return pools.size();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refillExecutor != null) {
+            refillExecutor.shutdownNow();
+        }
+        synchronized (pools) {
+            for (KeyPool pool : pools.values()) {
+                synchronized (pool) {
+                    pool.wipe();
+                }
+            }
+            pools.clear();
+        }
+    }
+
+    /** Пул одного ключа. Все поля читаются и изменяются под монитором самого объекта. */
+    private final class KeyPool {
+        private final int[] roundKeys;
+        private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+        private long readyBlocks;
+        private long lastCounter;
+        private boolean refilling;
+        private boolean evicted;
+
+        KeyPool(int[] roundKeys) {
+            this.roundKeys = roundKeys;
+        }
+
+        /** Резервирует blocks значений счётчика с общей отметки. */
+        long reserve(long blocks) {
+            long counter = highWaterMark.getAndAdd(blocks);
+            if (counter >= 0 || counter + blocks - 1 >= 0) {
+                throw new IllegalStateException("Значения счётчика пула гаммы исчерпаны.");
+            }
+            return counter;
+        }
+
+        void add(Segment segment) {
+            segments.addLast(segment);
+            readyBlocks += segmentBlocks;
+            readyBytes.addAndGet((long) segmentBlocks * MagmaCipher.BLOCK_SIZE);
+        }
+
+        /**
+         * Накладывает на данные гамму первого сегмента, в котором осталось не меньше blocks блоков.
+         * Использованный участок затирается; счётчик его первого блока сохраняется в lastCounter.
+         */
+        boolean xorFromReady(int blocks, byte[] in, byte[] out) {
+            for (Iterator<Segment> iterator = segments.iterator(); iterator.hasNext(); ) {
+                Segment segment = iterator.next();
+                if (segmentBlocks - segment.position < blocks) {
+                    continue;
+                }
+                int gammaOff = segment.position * MagmaCipher.BLOCK_SIZE;
+                for (int i = 0; i < in.length; i++) {
+                    out[i] = (byte) (in[i] ^ segment.gamma[gammaOff + i]);
+                }
+                Arrays.fill(segment.gamma, gammaOff, gammaOff + blocks * MagmaCipher.BLOCK_SIZE, (byte) 0);
+                lastCounter = segment.counter + segment.position;
+                segment.position += blocks;
+                if (segment.position == segmentBlocks) {
+                    iterator.remove();
+                }
+                readyBlocks -= blocks;
+                readyBytes.addAndGet(-(long) blocks * MagmaCipher.BLOCK_SIZE);
+                return true;
+            }
+            return false;
+        }
+
+        void wipe() {
+            evicted = true;
+            long remaining = readyBlocks * MagmaCipher.BLOCK_SIZE;
+            for (Segment segment : segments) {
+                Arrays.fill(segment.gamma, (byte) 0);
+            }
+            segments.clear();
+            readyBlocks = 0;
+            readyBytes.addAndGet(-remaining);
+            discardedBytes.increment(remaining);
+            Arrays.fill(roundKeys, 0);
+        }
+    }
+
+    private static final class Segment {
+        private final long counter;
+        private final byte[] gamma;
+        private int position;
+
+        Segment(long counter, byte[] gamma) {
+            this.counter = counter;
+            this.gamma = gamma;
+        }
+    }
+}
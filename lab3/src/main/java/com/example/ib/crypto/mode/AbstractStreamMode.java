@@ -0,0 +1,132 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Общая часть режимов: перевод буферов в массивы и разбиение длинных входов на сегменты,
+ * обрабатываемые параллельно. Буферы в куче обрабатываются без копирования,
+ * содержимое прямых буферов копируется во временный массив.
+ */
+abstract class AbstractStreamMode implements StreamMode {
+
+    /** Размер сегмента параллельной обработки; кратен размерам блоков обоих шифров. */
+    static final int SEGMENT_BYTES = 128 * 1024;
+
+    private final Executor executor;
+
+    AbstractStreamMode(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** Пул для параллельной обработки; null, если режим строго последовательный. */
+    final Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public int ivLength(int blockSize) {
+        return blockSize;
+    }
+
+    @Override
+    public final void encrypt(BlockCipher cipher, byte[] iv, ByteBuffer in, ByteBuffer out) {
+        run(cipher, iv, in, out, true, (source, sourceOff, length, target, targetOff) ->
+                process(cipher, iv, true, source, sourceOff, length, target, targetOff));
+    }
+
+    @Override
+    public final void decrypt(BlockCipher cipher, byte[] iv, ByteBuffer in, ByteBuffer out) {
+        run(cipher, iv, in, out, false, (source, sourceOff, length, target, targetOff) ->
+                process(cipher, iv, false, source, sourceOff, length, target, targetOff));
+    }
+
+    /**
+     * Обрабатывает in[inOff..inOff+length) и пишет результат в out начиная с outOff.
+     * Допускается in == out при inOff == outOff.
+     *
+     * @return число записанных байт
+     */
+    abstract int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                         byte[] in, int inOff, int length, byte[] out, int outOff);
+
+    final void run(BlockCipher cipher, byte[] iv, ByteBuffer in, ByteBuffer out, boolean encrypt,
+                   ArrayProcessor processor) {
+        if (iv == null || iv.length != ivLength(cipher.getBlockSize())) {
+            throw new IllegalArgumentException("Вектор инициализации режима " + getMode().getId()
+                    + " должен содержать " + ivLength(cipher.getBlockSize()) + " байт.");
+        }
+        int length = in.remaining();
+        int capacity = outputLength(cipher.getBlockSize(), length, encrypt);
+        if (out.remaining() < capacity) {
+            throw new IllegalArgumentException("Выходной буфер меньше результата преобразования.");
+        }
+        byte[] source;
+        int sourceOff;
+        if (in.hasArray()) {
+            source = in.array();
+            sourceOff = in.arrayOffset() + in.position();
+        } else {
+            source = new byte[length];
+            in.duplicate().get(source);
+            sourceOff = 0;
+        }
+        int written;
+        if (out.hasArray()) {
+            written = processor.process(source, sourceOff, length, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + written);
+        } else {
+            byte[] target = new byte[capacity];
+            written = processor.process(source, sourceOff, length, target, 0);
+            out.put(target, 0, written);
+        }
+        in.position(in.limit());
+    }
+
+    /**
+     * Выполняет task для сегментов [start, end) диапазона [0, length); при достаточной длине
+     * и заданном пуле сегменты обрабатываются параллельно.
+     */
+    final void forEachSegment(int length, SegmentTask task) {
+        if (executor == null || length < 2 * SEGMENT_BYTES) {
+            task.run(0, length);
+            return;
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int start = 0; start < length; start += SEGMENT_BYTES) {
+            int segmentStart = start;
+            int segmentEnd = Math.min(length, start + SEGMENT_BYTES);
+            pending.add(CompletableFuture.runAsync(() -> task.run(segmentStart, segmentEnd), executor));
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    static void xor(byte[] in, int inOff, byte[] gamma, int gammaOff, byte[] out, int outOff, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOff + i] = (byte) (in[inOff + i] ^ gamma[gammaOff + i]);
+        }
+    }
+
+    @FunctionalInterface
+    interface ArrayProcessor {
+        int process(byte[] in, int inOff, int length, byte[] out, int outOff);
+    }
+
+    @FunctionalInterface
+    interface SegmentTask {
+        void run(int start, int end);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ib.crypto.mode;
+
+/**
+ * Режимы работы блочных шифров по ГОСТ Р 34.13-2018 и ГОСТ Р 34.13-2015 (MGM).
+ */
+public enum BlockMode {
+    /** Гаммирование. Вектор — 64-битное начальное значение счётчика. */
+    CTR("ctr", false),
+    /** Простая замена с зацеплением, дополнение по процедуре 2. Вектор — один блок. */
+    CBC("cbc", false),
+    /** Гаммирование с обратной связью по шифртексту. Вектор — один блок. */
+    CFB("cfb", false),
+    /** Гаммирование с обратной связью по выходу. Вектор — один блок. */
+    OFB("ofb", false),
+    /** Аутентифицированное шифрование MGM: к шифртексту добавляется имитовставка длиной в блок. */
+    MGM("mgm", true);
+
+    private final String id;
+    private final boolean authenticated;
+
+    BlockMode(String id, boolean authenticated) {
+        this.id = id;
+        this.authenticated = authenticated;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    /** Без указания режима используется гаммирование, как и раньше. */
+    public static BlockMode fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return CTR;
+        }
+        for (BlockMode mode : values()) {
+            if (mode.id.equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный режим шифрования: " + value + ". Используйте ctr, cbc, cfb, ofb или mgm.");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ib.crypto.mode;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Реализации режимов с общим пулом потоков для параллельной обработки сегментов.
+ */
+@Component
+public class BlockModes {
+
+    private final ExecutorService lanes;
+    private final Map<BlockMode, StreamMode> modes = new EnumMap<>(BlockMode.class);
+    private final MgmMode mgm;
+
+    public BlockModes() {
+        int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        AtomicInteger counter = new AtomicInteger();
+        this.lanes = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cipher-lane-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mgm = new MgmMode(lanes);
+        modes.put(BlockMode.CTR, new CtrMode(lanes));
+        modes.put(BlockMode.CBC, new CbcMode(lanes));
+        modes.put(BlockMode.CFB, new CfbMode(lanes));
+        modes.put(BlockMode.OFB, new OfbMode());
+        modes.put(BlockMode.MGM, mgm);
+    }
+
+    public StreamMode get(BlockMode mode) {
+        return modes.get(mode);
+    }
+
+    public MgmMode mgm() {
+        return mgm;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdownNow();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Режим простой замены с зацеплением (ГОСТ Р 34.13-2018, п. 4.4) с длиной регистра,
+ * равной блоку, и дополнением по процедуре 2 (бит 1, затем нули; дополнение добавляется всегда).
+ * Шифрование последовательно; при расшифровании блок открытого текста зависит только от двух
+ * блоков шифртекста, поэтому сегменты расшифровываются параллельно.
+ */
+public final class CbcMode extends AbstractStreamMode {
+
+    /**
+     * Единственное сообщение об ошибке расшифрования: по нему нельзя отличить неверную длину
+     * от неверного дополнения, иначе ответ сервера служил бы оракулом дополнения.
+     */
+    private static final String DECRYPTION_FAILED =
+            "Не удалось расшифровать данные: неверный ключ, вектор или повреждённые данные.";
+
+    public CbcMode(Executor executor) {
+        super(executor);
+    }
+
+    @Override
+    public BlockMode getMode() {
+        return BlockMode.CBC;
+    }
+
+    @Override
+    public int outputLength(int blockSize, int inputLength, boolean encrypt) {
+        return encrypt ? (inputLength / blockSize + 1) * blockSize : inputLength;
+    }
+
+    @Override
+    int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                byte[] in, int inOff, int length, byte[] out, int outOff) {
+        return encrypt
+                ? encrypt(cipher, iv, in, inOff, length, out, outOff)
+                : decrypt(cipher, iv, in, inOff, length, out, outOff);
+    }
+
+    private int encrypt(BlockCipher cipher, byte[] iv, byte[] in, int inOff, int length, byte[] out, int outOff) {
+        int blockSize = cipher.getBlockSize();
+        int fullBlocks = length / blockSize;
+        byte[] register = iv.clone();
+        for (int i = 0; i < fullBlocks; i++) {
+            int offset = i * blockSize;
+            for (int j = 0; j < blockSize; j++) {
+                register[j] ^= in[inOff + offset + j];
+            }
+            cipher.encryptBlock(register, 0, out, outOff + offset);
+            System.arraycopy(out, outOff + offset, register, 0, blockSize);
+        }
+        // последний блок: остаток данных, бит 1 и нули
+        int tail = length - fullBlocks * blockSize;
+        byte[] last = new byte[blockSize];
+        System.arraycopy(in, inOff + fullBlocks * blockSize, last, 0, tail);
+        last[tail] = (byte) 0x80;
+        for (int j = 0; j < blockSize; j++) {
+            register[j] ^= last[j];
+        }
+        cipher.encryptBlock(register, 0, out, outOff + fullBlocks * blockSize);
+        Arrays.fill(register, (byte) 0);
+        Arrays.fill(last, (byte) 0);
+        return (fullBlocks + 1) * blockSize;
+    }
+
+    private int decrypt(BlockCipher cipher, byte[] iv, byte[] in, int inOff, int length, byte[] out, int outOff) {
+        int blockSize = cipher.getBlockSize();
+        if (length == 0 || length % blockSize != 0) {
+            throw new IllegalArgumentException(DECRYPTION_FAILED);
+        }
+        // блоки шифртекста перед каждым сегментом сохраняются заранее: при in == out их перезапишут
+        byte[] boundaries = new byte[((length + SEGMENT_BYTES - 1) / SEGMENT_BYTES) * blockSize];
+        for (int segment = 0; segment * SEGMENT_BYTES < length; segment++) {
+            if (segment == 0) {
+                System.arraycopy(iv, 0, boundaries, 0, blockSize);
+            } else {
+                System.arraycopy(in, inOff + segment * SEGMENT_BYTES - blockSize, boundaries, segment * blockSize, blockSize);
+            }
+        }
+        forEachSegment(length, (start, end) -> {
+            byte[] previous = Arrays.copyOfRange(boundaries, start / SEGMENT_BYTES * blockSize,
+                    start / SEGMENT_BYTES * blockSize + blockSize);
+            byte[] current = new byte[blockSize];
+            for (int offset = start; offset < end; offset += blockSize) {
+                System.arraycopy(in, inOff + offset, current, 0, blockSize);
+                cipher.decryptBlock(current, 0, out, outOff + offset);
+                for (int j = 0; j < blockSize; j++) {
+                    out[outOff + offset + j] ^= previous[j];
+                }
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        });
+        return length - paddingLength(out, outOff + length - blockSize, blockSize);
+    }
+
+    /** Последний блок просматривается целиком, без раннего выхода: время не зависит от места ошибки. */
+    private static int paddingLength(byte[] data, int lastBlockOff, int blockSize) {
+        int padding = 0;
+        boolean zeros = true;
+        for (int i = blockSize - 1; i >= 0; i--) {
+            int value = data[lastBlockOff + i] & 0xFF;
+            if (zeros && value == 0x80) {
+                padding = blockSize - i;
+            }
+            zeros &= value == 0;
+        }
+        if (padding == 0) {
+            throw new IllegalArgumentException(DECRYPTION_FAILED);
+        }
+        return padding;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Режим гаммирования с обратной связью по шифртексту (ГОСТ Р 34.13-2018, п. 4.5)
+ * с регистром и параметром s, равными блоку. Дополнение не требуется: последний неполный
+ * блок складывается с усечённой гаммой. Шифрование последовательно; при расшифровании
+ * гамма блока зависит только от предыдущего блока шифртекста, поэтому сегменты
+ * расшифровываются параллельно.
+ */
+public final class CfbMode extends AbstractStreamMode {
+
+    public CfbMode(Executor executor) {
+        super(executor);
+    }
+
+    @Override
+    public BlockMode getMode() {
+        return BlockMode.CFB;
+    }
+
+    @Override
+    public int outputLength(int blockSize, int inputLength, boolean encrypt) {
+        return inputLength;
+    }
+
+    @Override
+    int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                byte[] in, int inOff, int length, byte[] out, int outOff) {
+        int blockSize = cipher.getBlockSize();
+        if (encrypt) {
+            byte[] register = iv.clone();
+            byte[] gamma = new byte[blockSize];
+            for (int offset = 0; offset < length; offset += blockSize) {
+                int chunk = Math.min(blockSize, length - offset);
+                cipher.encryptBlock(register, 0, gamma, 0);
+                xor(in, inOff + offset, gamma, 0, out, outOff + offset, chunk);
+                System.arraycopy(out, outOff + offset, register, 0, chunk);
+            }
+            Arrays.fill(register, (byte) 0);
+            Arrays.fill(gamma, (byte) 0);
+            return length;
+        }
+
+        // блоки шифртекста перед каждым сегментом сохраняются заранее: при in == out их перезапишут
+        byte[] boundaries = new byte[((length + SEGMENT_BYTES - 1) / SEGMENT_BYTES) * blockSize];
+        for (int segment = 0; segment * SEGMENT_BYTES < length; segment++) {
+            if (segment == 0) {
+                System.arraycopy(iv, 0, boundaries, 0, blockSize);
+            } else {
+                System.arraycopy(in, inOff + segment * SEGMENT_BYTES - blockSize, boundaries, segment * blockSize, blockSize);
+            }
+        }
+        forEachSegment(length, (start, end) -> {
+            byte[] register = Arrays.copyOfRange(boundaries, start / SEGMENT_BYTES * blockSize,
+                    start / SEGMENT_BYTES * blockSize + blockSize);
+            byte[] gamma = new byte[blockSize];
+            for (int offset = start; offset < end; offset += blockSize) {
+                int chunk = Math.min(blockSize, end - offset);
+                cipher.encryptBlock(register, 0, gamma, 0);
+                System.arraycopy(in, inOff + offset, register, 0, chunk);
+                xor(register, 0, gamma, 0, out, outOff + offset, chunk);
+            }
+            Arrays.fill(gamma, (byte) 0);
+        });
+        return length;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Режим гаммирования (ГОСТ Р 34.13-2018, п. 4.2). Блоки гаммы независимы,
+ * поэтому длинный вход делится на сегменты, которые шифруются параллельно.
+ * Вектор — 64-битное начальное значение счётчика (8 байт, big-endian).
+ */
+public final class CtrMode extends AbstractStreamMode {
+
+    /** Число блоков гаммы, вырабатываемых за один вызов {@link BlockCipher#keystream}. */
+    private static final int GAMMA_BLOCKS = 64;
+
+    public CtrMode(Executor executor) {
+        super(executor);
+    }
+
+    @Override
+    public BlockMode getMode() {
+        return BlockMode.CTR;
+    }
+
+    @Override
+    public int ivLength(int blockSize) {
+        return Long.BYTES;
+    }
+
+    @Override
+    public int outputLength(int blockSize, int inputLength, boolean encrypt) {
+        return inputLength;
+    }
+
+    @Override
+    int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                byte[] in, int inOff, int length, byte[] out, int outOff) {
+        long counter = 0;
+        for (byte b : iv) {
+            counter = (counter << 8) | (b & 0xFF);
+        }
+        long initialCounter = counter;
+        forEachSegment(length, (start, end) ->
+                transform(cipher, initialCounter, start, in, inOff + start, out, outOff + start, end - start));
+        return length;
+    }
+
+    /**
+     * Преобразование участка потока in[inOff..inOff+length), начинающегося с позиции byteOffset;
+     * смещение может быть не кратно размеру блока. Допускается in == out.
+     */
+    public static void transform(BlockCipher cipher, long initialCounter, long byteOffset,
+                                 byte[] in, int inOff, byte[] out, int outOff, int length) {
+        if (byteOffset < 0) {
+            throw new IllegalArgumentException("Смещение в потоке не может быть отрицательным.");
+        }
+        int blockSize = cipher.getBlockSize();
+        byte[] gamma = new byte[GAMMA_BLOCKS * blockSize];
+
+        long blockIndex = byteOffset / blockSize;
+        int skip = (int) (byteOffset % blockSize);
+        int offset = 0;
+        while (offset < length) {
+            long needed = (long) skip + (length - offset);
+            int blocks = (int) Math.min(GAMMA_BLOCKS, (needed + blockSize - 1) / blockSize);
+            cipher.keystream(initialCounter, blockIndex, blocks, gamma, 0);
+
+            int chunk = Math.min(blocks * blockSize - skip, length - offset);
+            xor(in, inOff + offset, gamma, skip, out, outOff + offset, chunk);
+
+            blockIndex += blocks;
+            offset += chunk;
+            skip = 0;
+        }
+        Arrays.fill(gamma, (byte) 0);
+    }
+
+    /**
+     * Преобразование на месте содержимого буфера от position до limit — участка потока,
+     * начинающегося с позиции byteOffset; позиция и limit буфера не меняются. На прямой буфер
+     * гамма накладывается на месте словами по 8 байт, без копирования данных в кучу.
+     */
+    public static void transform(BlockCipher cipher, long initialCounter, long byteOffset, ByteBuffer data) {
+        int position = data.position();
+        int length = data.remaining();
+        if (data.hasArray()) {
+            int offset = data.arrayOffset() + position;
+            transform(cipher, initialCounter, byteOffset, data.array(), offset, data.array(), offset, length);
+            return;
+        }
+        if (byteOffset < 0) {
+            throw new IllegalArgumentException("Смещение в потоке не может быть отрицательным.");
+        }
+        int blockSize = cipher.getBlockSize();
+        byte[] gamma = new byte[GAMMA_BLOCKS * blockSize];
+        // порядок байт для xor безразличен, лишь бы у данных и гаммы он совпадал
+        ByteBuffer gammaWords = ByteBuffer.wrap(gamma).order(ByteOrder.nativeOrder());
+        ByteBuffer target = data.duplicate().order(ByteOrder.nativeOrder());
+
+        long blockIndex = byteOffset / blockSize;
+        int skip = (int) (byteOffset % blockSize);
+        int offset = 0;
+        while (offset < length) {
+            long needed = (long) skip + (length - offset);
+            int blocks = (int) Math.min(GAMMA_BLOCKS, (needed + blockSize - 1) / blockSize);
+            cipher.keystream(initialCounter, blockIndex, blocks, gamma, 0);
+
+            int chunk = Math.min(blocks * blockSize - skip, length - offset);
+            xor(target, position + offset, gammaWords, skip, chunk);
+
+            blockIndex += blocks;
+            offset += chunk;
+            skip = 0;
+        }
+        Arrays.fill(gamma, (byte) 0);
+    }
+
+    /** data[index..index+length) ^= gamma[gammaOff..gammaOff+length), по 8 байт и побайтно для хвоста. */
+    private static void xor(ByteBuffer data, int index, ByteBuffer gamma, int gammaOff, int length) {
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            data.putLong(index + i, data.getLong(index + i) ^ gamma.getLong(gammaOff + i));
+        }
+        for (; i < length; i++) {
+            data.put(index + i, (byte) (data.get(index + i) ^ gamma.get(gammaOff + i)));
+        }
+    }
+}
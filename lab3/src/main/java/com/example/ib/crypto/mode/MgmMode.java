@@ -0,0 +1,361 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Режим аутентифицированного шифрования MGM (ГОСТ Р 34.13-2015, Р 1323565.1.026-2019).
+ * <p>
+ * Синхропосылка ICN — блок со старшим битом, равным нулю. Гамма: блоки E(Y_i),
+ * Y_1 = E(0||ICN), у Y_i увеличивается правая половина; ключи имитовставки H_i = E(Z_i),
+ * Z_1 = E(1||ICN), у Z_i увеличивается левая половина. Имитовставка длиной в блок —
+ * E(Σ H_i ⊗ A_i ⊕ Σ H_{h+j} ⊗ C_j ⊕ H_{h+q+1} ⊗ (len(A) || len(C))) и дописывается после
+ * шифртекста. Все H_i и Y_i вычисляются по номеру блока, поэтому шифрование и подсчёт
+ * имитовставки идут по сегментам параллельно; при расшифровании имитовставка проверяется
+ * до записи открытого текста. Если вход не делится на сегменты (например, фрагмент контейнера),
+ * гамма вырабатывается в отдельном потоке одновременно с подсчётом имитовставки; при шифровании
+ * имитовставка зависит от шифртекста, поэтому параллельно с гаммой вырабатываются ключи H_i.
+ */
+public final class MgmMode extends AbstractStreamMode {
+
+    private static final byte[] NO_DATA = new byte[0];
+    /** Минимальный объём, при котором гамму выгодно вырабатывать параллельно с имитовставкой. */
+    private static final int CONCURRENT_KEYSTREAM_BYTES = 4 * 1024;
+
+    public MgmMode(Executor executor) {
+        super(executor);
+    }
+
+    @Override
+    public BlockMode getMode() {
+        return BlockMode.MGM;
+    }
+
+    @Override
+    public int outputLength(int blockSize, int inputLength, boolean encrypt) {
+        return encrypt ? inputLength + blockSize : Math.max(0, inputLength - blockSize);
+    }
+
+    /** Шифрует in с ассоциированными данными aad; в out пишутся шифртекст и имитовставка. */
+    public void encrypt(BlockCipher cipher, byte[] nonce, byte[] aad, ByteBuffer in, ByteBuffer out) {
+        run(cipher, nonce, in, out, true, (source, sourceOff, length, target, targetOff) ->
+                encrypt(cipher, nonce, aad, source, sourceOff, length, target, targetOff));
+    }
+
+    /**
+     * Проверяет имитовставку (последний блок in) и расшифровывает данные. При несовпадении
+     * имитовставки бросает {@link IllegalArgumentException}, в out ничего не записывается.
+     */
+    public void decrypt(BlockCipher cipher, byte[] nonce, byte[] aad, ByteBuffer in, ByteBuffer out) {
+        run(cipher, nonce, in, out, false, (source, sourceOff, length, target, targetOff) ->
+                decrypt(cipher, nonce, aad, source, sourceOff, length, target, targetOff));
+    }
+
+    @Override
+    int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                byte[] in, int inOff, int length, byte[] out, int outOff) {
+        return encrypt
+                ? encrypt(cipher, iv, NO_DATA, in, inOff, length, out, outOff)
+                : decrypt(cipher, iv, NO_DATA, in, inOff, length, out, outOff);
+    }
+
+    /**
+     * Шифрование массива: out[outOff..) = шифртекст || имитовставка.
+     *
+     * @return число записанных байт (длина данных плюс блок)
+     */
+    public int encrypt(BlockCipher cipher, byte[] nonce, byte[] aad,
+                       byte[] in, int inOff, int length, byte[] out, int outOff) {
+        Context context = new Context(cipher, nonce);
+        int blockSize = context.blockSize;
+        if (executor() != null && length >= CONCURRENT_KEYSTREAM_BYTES && length < 2 * SEGMENT_BYTES) {
+            return encryptConcurrently(context, aad, in, inOff, length, out, outOff);
+        }
+        long[][] partial = new long[segmentCount(length)][];
+        forEachSegment(length, (start, end) -> {
+            crypt(context, in, inOff, out, outOff, start, end);
+            partial[start / SEGMENT_BYTES] = context.hashSegment(out, outOff, start, end, blocks(aad.length, blockSize));
+        });
+        byte[] tag = context.tag(aad, partial, length);
+        System.arraycopy(tag, 0, out, outOff + length, blockSize);
+        return length + blockSize;
+    }
+
+    /**
+     * Расшифрование массива: in[inOff..inOff+length) = шифртекст || имитовставка.
+     *
+     * @return длина открытого текста
+     */
+    public int decrypt(BlockCipher cipher, byte[] nonce, byte[] aad,
+                       byte[] in, int inOff, int length, byte[] out, int outOff) {
+        Context context = new Context(cipher, nonce);
+        int blockSize = context.blockSize;
+        if (length < blockSize) {
+            throw new IllegalArgumentException("Шифртекст MGM короче имитовставки.");
+        }
+        int dataLength = length - blockSize;
+        if (executor() != null && dataLength >= CONCURRENT_KEYSTREAM_BYTES && dataLength < 2 * SEGMENT_BYTES) {
+            return decryptConcurrently(context, aad, in, inOff, dataLength, out, outOff);
+        }
+        long[][] partial = new long[segmentCount(dataLength)][];
+        forEachSegment(dataLength, (start, end) ->
+                partial[start / SEGMENT_BYTES] = context.hashSegment(in, inOff, start, end, blocks(aad.length, blockSize)));
+        byte[] expected = context.tag(aad, partial, dataLength);
+        byte[] actual = Arrays.copyOfRange(in, inOff + dataLength, inOff + length);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new IllegalArgumentException("Имитовставка не совпадает: данные повреждены или ключ неверен.");
+        }
+        forEachSegment(dataLength, (start, end) -> crypt(context, in, inOff, out, outOff, start, end));
+        return dataLength;
+    }
+
+    private int encryptConcurrently(Context context, byte[] aad, byte[] in, int inOff, int length,
+                                    byte[] out, int outOff) {
+        int blockSize = context.blockSize;
+        int aadBlocks = blocks(aad.length, blockSize);
+        CompletableFuture<long[]> keys = CompletableFuture.supplyAsync(
+                () -> context.hKeys(aadBlocks, blocks(length, blockSize)), executor());
+        try {
+            crypt(context, in, inOff, out, outOff, 0, length);
+            long[][] partial = {context.hashSegment(out, outOff, 0, length, keys.join())};
+            byte[] tag = context.tag(aad, partial, length);
+            System.arraycopy(tag, 0, out, outOff + length, blockSize);
+            return length + blockSize;
+        } finally {
+            Arrays.fill(keys.join(), 0L);
+        }
+    }
+
+    private int decryptConcurrently(Context context, byte[] aad, byte[] in, int inOff, int dataLength,
+                                    byte[] out, int outOff) {
+        byte[] gamma = new byte[dataLength];
+        CompletableFuture<Void> keystream = CompletableFuture.runAsync(
+                () -> crypt(context, gamma, 0, gamma, 0, 0, dataLength), executor());
+        try {
+            long[][] partial = {context.hashSegment(in, inOff, 0, dataLength, blocks(aad.length, context.blockSize))};
+            byte[] expected = context.tag(aad, partial, dataLength);
+            byte[] actual = Arrays.copyOfRange(in, inOff + dataLength, inOff + dataLength + context.blockSize);
+            if (!MessageDigest.isEqual(expected, actual)) {
+                throw new IllegalArgumentException("Имитовставка не совпадает: данные повреждены или ключ неверен.");
+            }
+            keystream.join();
+            xor(in, inOff, gamma, 0, out, outOff, dataLength);
+            return dataLength;
+        } finally {
+            keystream.join();
+            Arrays.fill(gamma, (byte) 0);
+        }
+    }
+
+    private static void crypt(Context context, byte[] in, int inOff, byte[] out, int outOff, int start, int end) {
+        int blockSize = context.blockSize;
+        byte[] gamma = new byte[blockSize];
+        for (int offset = start; offset < end; offset += blockSize) {
+            context.encryptValue(context.yHi, context.yValue(offset / blockSize), gamma);
+            xor(in, inOff + offset, gamma, 0, out, outOff + offset, Math.min(blockSize, end - offset));
+        }
+        Arrays.fill(gamma, (byte) 0);
+    }
+
+    private static int segmentCount(int length) {
+        return Math.max(1, (length + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+    }
+
+    private static int blocks(int length, int blockSize) {
+        return (length + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * Состояние одного вызова: начальные значения Y_1, Z_1 и арифметика над блоками.
+     * Блок хранится как пара (старшее, младшее) 64-битных слов; у 64-битного блока старшее слово равно нулю.
+     */
+    private static final class Context {
+        private final BlockCipher cipher;
+        private final int blockSize;
+        private final long yHi;
+        private final long yLo;
+        private final long zHi;
+        private final long zLo;
+
+        Context(BlockCipher cipher, byte[] nonce) {
+            this.cipher = cipher;
+            this.blockSize = cipher.getBlockSize();
+            if (nonce.length != blockSize || (nonce[0] & 0x80) != 0) {
+                throw new IllegalArgumentException("Синхропосылка MGM — блок со старшим битом, равным нулю.");
+            }
+            long[] y = encryptValue(high(nonce), low(nonce));
+            long[] z = encryptValue(high(nonce) | (blockSize == 16 ? Long.MIN_VALUE : 0),
+                    low(nonce) | (blockSize == 16 ? 0 : Long.MIN_VALUE));
+            this.yHi = y[0];
+            this.yLo = y[1];
+            this.zHi = z[0];
+            this.zLo = z[1];
+        }
+
+        /** Младшее слово Y_{i+1}: увеличивается правая половина блока. */
+        long yValue(long index) {
+            if (blockSize == 16) {
+                return yLo + index;
+            }
+            return (yLo & 0xFFFFFFFF00000000L) | ((yLo + index) & 0xFFFFFFFFL);
+        }
+
+        /** H_{i+1} = E(Z_{i+1}): увеличивается левая половина блока. */
+        long[] h(long index) {
+            if (blockSize == 16) {
+                return encryptValue(zHi + index, zLo);
+            }
+            return encryptValue(0, (((zLo >>> 32) + index) << 32) | (zLo & 0xFFFFFFFFL));
+        }
+
+        /** Ключи H_{first+1..first+count} подряд парами слов (старшее, младшее). */
+        long[] hKeys(int first, int count) {
+            long[] keys = new long[2 * count];
+            for (int i = 0; i < count; i++) {
+                long[] h = h(first + i);
+                keys[2 * i] = h[0];
+                keys[2 * i + 1] = h[1];
+            }
+            return keys;
+        }
+
+        /** Сумма H_{offsetBlocks+j} ⊗ C_j по блокам сегмента [start, end) данных. */
+        long[] hashSegment(byte[] data, int dataOff, int start, int end, int offsetBlocks) {
+            long[] sum = new long[2];
+            byte[] block = new byte[blockSize];
+            for (int offset = start; offset < end; offset += blockSize) {
+                int chunk = Math.min(blockSize, end - offset);
+                Arrays.fill(block, (byte) 0);
+                System.arraycopy(data, dataOff + offset, block, 0, chunk);
+                long[] h = h(offsetBlocks + offset / blockSize);
+                accumulate(sum, h[0], h[1], high(block), low(block));
+            }
+            return sum;
+        }
+
+        /** То же с заранее выработанными ключами: keys[2j], keys[2j+1] — ключ блока start / blockSize + j. */
+        long[] hashSegment(byte[] data, int dataOff, int start, int end, long[] keys) {
+            long[] sum = new long[2];
+            byte[] block = new byte[blockSize];
+            for (int offset = start; offset < end; offset += blockSize) {
+                int chunk = Math.min(blockSize, end - offset);
+                Arrays.fill(block, (byte) 0);
+                System.arraycopy(data, dataOff + offset, block, 0, chunk);
+                int key = 2 * ((offset - start) / blockSize);
+                accumulate(sum, keys[key], keys[key + 1], high(block), low(block));
+            }
+            return sum;
+        }
+
+        byte[] tag(byte[] aad, long[][] partial, int dataLength) {
+            long[] sum = hashSegment(aad, 0, 0, aad.length, 0);
+            for (long[] segment : partial) {
+                if (segment != null) {
+                    sum[0] ^= segment[0];
+                    sum[1] ^= segment[1];
+                }
+            }
+            long aadBits = (long) aad.length * 8;
+            long dataBits = (long) dataLength * 8;
+            long lengthHi = blockSize == 16 ? aadBits : 0;
+            long lengthLo = blockSize == 16 ? dataBits : (aadBits << 32) | (dataBits & 0xFFFFFFFFL);
+            long[] h = h(blocks(aad.length, blockSize) + blocks(dataLength, blockSize));
+            accumulate(sum, h[0], h[1], lengthHi, lengthLo);
+            byte[] tag = new byte[blockSize];
+            encryptValue(sum[0], sum[1], tag);
+            return tag;
+        }
+
+        private void accumulate(long[] sum, long hHi, long hLo, long hi, long lo) {
+            if (blockSize == 16) {
+                long[] product = multiply128(hHi, hLo, hi, lo);
+                sum[0] ^= product[0];
+                sum[1] ^= product[1];
+            } else {
+                sum[1] ^= multiply64(hLo, lo);
+            }
+        }
+
+        long[] encryptValue(long hi, long lo) {
+            byte[] block = new byte[blockSize];
+            encryptValue(hi, lo, block);
+            long[] result = {high(block), low(block)};
+            Arrays.fill(block, (byte) 0);
+            return result;
+        }
+
+        void encryptValue(long hi, long lo, byte[] out) {
+            if (blockSize == 16) {
+                writeLong(hi, out, 0);
+                writeLong(lo, out, 8);
+            } else {
+                writeLong(lo, out, 0);
+            }
+            cipher.encryptBlock(out, 0, out, 0);
+        }
+
+        private long high(byte[] block) {
+            return blockSize == 16 ? readLong(block, 0) : 0;
+        }
+
+        private long low(byte[] block) {
+            return readLong(block, blockSize - 8);
+        }
+    }
+
+    /** Умножение в GF(2^64) по модулю x^64 + x^4 + x^3 + x + 1. */
+    static long multiply64(long a, long b) {
+        long result = 0;
+        for (int bit = 63; bit >= 0; bit--) {
+            boolean carry = result < 0;
+            result <<= 1;
+            if (carry) {
+                result ^= 0x1BL;
+            }
+            if (((b >>> bit) & 1) != 0) {
+                result ^= a;
+            }
+        }
+        return result;
+    }
+
+    /** Умножение в GF(2^128) по модулю x^128 + x^7 + x^2 + x + 1. */
+    static long[] multiply128(long aHi, long aLo, long bHi, long bLo) {
+        long resultHi = 0;
+        long resultLo = 0;
+        for (int bit = 127; bit >= 0; bit--) {
+            boolean carry = resultHi < 0;
+            resultHi = (resultHi << 1) | (resultLo >>> 63);
+            resultLo <<= 1;
+            if (carry) {
+                resultLo ^= 0x87L;
+            }
+            long word = bit >= 64 ? bHi >>> (bit - 64) : bLo >>> bit;
+            if ((word & 1) != 0) {
+                resultHi ^= aHi;
+                resultLo ^= aLo;
+            }
+        }
+        return new long[] {resultHi, resultLo};
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void writeLong(long value, byte[] out, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            out[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
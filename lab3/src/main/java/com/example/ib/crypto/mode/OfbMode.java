@@ -0,0 +1,40 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.util.Arrays;
+
+/**
+ * Режим гаммирования с обратной связью по выходу (ГОСТ Р 34.13-2018, п. 4.3) с регистром,
+ * равным блоку. Каждый блок гаммы — шифр от предыдущего, поэтому режим строго последовательный;
+ * шифрование и расшифрование совпадают.
+ */
+public final class OfbMode extends AbstractStreamMode {
+
+    public OfbMode() {
+        super(null);
+    }
+
+    @Override
+    public BlockMode getMode() {
+        return BlockMode.OFB;
+    }
+
+    @Override
+    public int outputLength(int blockSize, int inputLength, boolean encrypt) {
+        return inputLength;
+    }
+
+    @Override
+    int process(BlockCipher cipher, byte[] iv, boolean encrypt,
+                byte[] in, int inOff, int length, byte[] out, int outOff) {
+        int blockSize = cipher.getBlockSize();
+        byte[] register = iv.clone();
+        for (int offset = 0; offset < length; offset += blockSize) {
+            cipher.encryptBlock(register, 0, register, 0);
+            xor(in, inOff + offset, register, 0, out, outOff + offset, Math.min(blockSize, length - offset));
+        }
+        Arrays.fill(register, (byte) 0);
+        return length;
+    }
+}
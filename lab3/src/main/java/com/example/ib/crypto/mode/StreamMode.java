@@ -0,0 +1,25 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Режим работы блочного шифра над буферами целиком. Данные читаются из in от position до limit,
+ * результат пишется в out начиная с его position; после вызова позиции обоих буферов сдвинуты
+ * на обработанный объём. Буферы могут быть как в куче, так и прямыми.
+ */
+public interface StreamMode {
+
+    BlockMode getMode();
+
+    /** Длина вектора инициализации (синхропосылки) в байтах для шифра с блоком blockSize. */
+    int ivLength(int blockSize);
+
+    /** Максимальный размер результата для входа длины inputLength. */
+    int outputLength(int blockSize, int inputLength, boolean encrypt);
+
+    void encrypt(BlockCipher cipher, byte[] iv, ByteBuffer in, ByteBuffer out);
+
+    void decrypt(BlockCipher cipher, byte[] iv, ByteBuffer in, ByteBuffer out);
+}
@@ -0,0 +1,129 @@
+package com.example.ib.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Метрики криптографических операций: длительность по фазам обработки запроса,
+ * объём обработанных данных, пропускная способность (МБ/с), число запросов в работе и ошибки.
+ * Экспортируются через actuator-эндпоинт {@code /actuator/prometheus}.
+ */
+@Component
+public class CryptoMetrics {
+
+    /** Получение тела запроса (чтение загруженного файла). */
+    public static final String PHASE_RECEIVE = "receive";
+    /** Разбор ключа и параметров шифрования. */
+    public static final String PHASE_KEY = "key";
+    /** Собственно криптографическое преобразование. */
+    public static final String PHASE_CRYPTO = "crypto";
+    /** Запись ответа клиенту. */
+    public static final String PHASE_RESPONSE = "response";
+    /** Полное время обработки запроса. */
+    public static final String PHASE_TOTAL = "total";
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public CryptoMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Выполняет действие и записывает его длительность как фазу операции.
+     * Исключение учитывается в счётчике ошибок и пробрасывается дальше.
+     */
+    public <T> T phase(String operation, String phase, PhaseAction<T> action) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return action.run();
+        } catch (IOException | RuntimeException e) {
+            recordError(operation, e);
+            throw e;
+        } finally {
+            recordPhase(operation, phase, System.nanoTime() - start);
+        }
+    }
+
+    public void recordPhase(String operation, String phase, long nanos) {
+        Timer.builder("ib.crypto.duration")
+                .description("Длительность фаз обработки криптографического запроса")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Учитывает объём данных, прошедших через шифр, и скорость их обработки. */
+    public void recordBytes(String operation, long bytes, long cryptoNanos) {
+        Counter.builder("ib.crypto.bytes")
+                .description("Объём данных, обработанных криптографическими операциями")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(registry)
+                .increment(bytes);
+        if (bytes <= 0 || cryptoNanos <= 0) {
+            return;
+        }
+        double megabytesPerSecond = (bytes / BYTES_PER_MEGABYTE) / (cryptoNanos / 1_000_000_000.0);
+        DistributionSummary.builder("ib.crypto.throughput")
+                .description("Скорость криптографического преобразования")
+                .baseUnit("megabytes_per_second")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(megabytesPerSecond);
+    }
+
+    public void recordError(String operation, Throwable error) {
+        Counter.builder("ib.crypto.errors")
+                .description("Число запросов, завершившихся ошибкой")
+                .tag("operation", operation)
+                .tag("exception", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Отмечает начало обработки запроса. Возвращаемый объект нужно закрыть по завершении,
+     * чтобы уменьшить значение датчика запросов в работе.
+     */
+    public InFlight begin(String operation) {
+        AtomicInteger counter = inFlight.computeIfAbsent(operation, op -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("ib.crypto.inflight", value, AtomicInteger::get)
+                    .description("Число криптографических запросов в работе")
+                    .tag("operation", op)
+                    .register(registry);
+            return value;
+        });
+        counter.incrementAndGet();
+        return counter::decrementAndGet;
+    }
+
+    @FunctionalInterface
+    public interface PhaseAction<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface InFlight extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.ib.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Замеряет полное время обработки запросов к {@code /cipher} и фазу записи ответа:
+ * от первого обращения к потоку ответа до завершения цепочки фильтров.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CryptoMetricsFilter extends OncePerRequestFilter {
+
+    private static final String OPERATION = "cipher";
+
+    private final CryptoMetrics metrics;
+
+    public CryptoMetricsFilter(CryptoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/cipher");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        TimedResponse timedResponse = new TimedResponse(response);
+        try (CryptoMetrics.InFlight ignored = metrics.begin(OPERATION)) {
+            chain.doFilter(request, timedResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            metrics.recordError(OPERATION, e);
+            throw e;
+        } finally {
+            long end = System.nanoTime();
+            if (timedResponse.firstWrite > 0) {
+                metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_RESPONSE, end - timedResponse.firstWrite);
+            }
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_TOTAL, end - start);
+        }
+    }
+
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private long firstWrite;
+
+        TimedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            markWrite();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            markWrite();
+            return super.getWriter();
+        }
+
+        private void markWrite() {
+            if (firstWrite == 0) {
+                firstWrite = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.mode.BlockModes;
+import com.example.ib.crypto.mode.MgmMode;
+import com.example.ib.metrics.CryptoMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Аутентифицированный контейнер: файл шифруется режимом MGM фрагментами фиксированного размера,
+ * у каждого фрагмента своя имитовставка. Расшифрование потоковое — фрагмент выдаётся только
+ * после проверки его имитовставки, поэтому память ограничена размером фрагмента, а повреждение
+ * обнаруживается на первом же испорченном фрагменте.
+ * <p>
+ * Формат: заголовок {@code "IBAE" | версия (1) | алгоритм (1) | размер фрагмента (4, big-endian) |
+ * синхропосылка (блок шифра, старший бит 0)}, затем фрагменты {@code шифртекст | имитовставка}.
+ * Все фрагменты, кроме последнего, полные. Синхропосылка фрагмента i — синхропосылка заголовка
+ * плюс i в младших 64 битах; ассоциированные данные — заголовок, номер фрагмента (8 байт)
+ * и признак последнего фрагмента (1 байт), что защищает от подмены заголовка, перестановки
+ * и отсечения фрагментов.
+ */
+@Service
+public class AuthenticatedContainerService {
+
+    public static final String FILE_EXTENSION = ".gostx";
+
+    private static final byte[] MAGIC = {'I', 'B', 'A', 'E'};
+    private static final byte VERSION = 1;
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final String OPERATION = "cipher";
+
+    private final MagmaCtrCipher magmaCtrCipher;
+    private final MgmMode mgm;
+    private final CryptoMetrics metrics;
+    private final int chunkSize;
+    private final SecureRandom random = new SecureRandom();
+
+    public AuthenticatedContainerService(MagmaCtrCipher magmaCtrCipher,
+                                         BlockModes blockModes,
+                                         CryptoMetrics metrics,
+                                         @Value("${app.cipher.container.chunk-size}") int chunkSize) {
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Размер фрагмента контейнера должен быть от 1 байта до 16 МБ.");
+        }
+        this.magmaCtrCipher = magmaCtrCipher;
+        this.mgm = blockModes.mgm();
+        this.metrics = metrics;
+        this.chunkSize = chunkSize;
+    }
+
+    public void encrypt(InputStream input, OutputStream output, byte[] key, CipherAlgorithm algorithm)
+            throws IOException {
+        Header header = newHeader(algorithm);
+        byte[] headerBytes = header.toBytes();
+        output.write(headerBytes);
+
+        BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+        int blockSize = cipher.getBlockSize();
+        byte[] current = new byte[chunkSize];
+        byte[] next = new byte[chunkSize];
+        byte[] sealed = new byte[chunkSize + blockSize];
+        long cryptoNanos = 0;
+        long total = 0;
+        try {
+            int length = input.readNBytes(current, 0, chunkSize);
+            long index = 0;
+            while (true) {
+                // последний фрагмент определяется по упреждающему чтению следующего
+                int nextLength = length == chunkSize ? input.readNBytes(next, 0, chunkSize) : 0;
+                boolean last = nextLength == 0;
+                long start = System.nanoTime();
+                int sealedLength = mgm.encrypt(cipher, header.chunkNonce(index), associatedData(headerBytes, index, last),
+                        current, 0, length, sealed, 0);
+                cryptoNanos += System.nanoTime() - start;
+                output.write(sealed, 0, sealedLength);
+                total += length;
+                if (last) {
+                    break;
+                }
+                byte[] swap = current;
+                current = next;
+                next = swap;
+                length = nextLength;
+                index++;
+            }
+        } finally {
+            cipher.destroy();
+            Arrays.fill(current, (byte) 0);
+            Arrays.fill(next, (byte) 0);
+        }
+        metrics.recordBytes(OPERATION, total, cryptoNanos);
+    }
+
+    /**
+     * Читает и проверяет заголовок контейнера. Вызывается до начала ответа,
+     * чтобы ошибки формата можно было вернуть кодом 400.
+     */
+    public Header readHeader(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        byte[] fixed = new byte[MAGIC.length + 6];
+        try {
+            data.readFully(fixed);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Файл слишком короткий для контейнера.");
+        }
+        if (!Arrays.equals(fixed, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IllegalArgumentException("Файл не является аутентифицированным контейнером.");
+        }
+        if (fixed[4] != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия контейнера: " + fixed[4] + ".");
+        }
+        CipherAlgorithm algorithm = switch (fixed[5]) {
+            case 1 -> CipherAlgorithm.MAGMA;
+            case 2 -> CipherAlgorithm.KUZNYECHIK;
+            default -> throw new IllegalArgumentException("Неизвестный алгоритм в заголовке контейнера.");
+        };
+        int size = ByteBuffer.wrap(fixed, 6, 4).getInt();
+        if (size <= 0 || size > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер фрагмента в заголовке контейнера.");
+        }
+        byte[] nonce = new byte[algorithm.getBlockSize()];
+        try {
+            data.readFully(nonce);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Файл слишком короткий для контейнера.");
+        }
+        if ((nonce[0] & 0x80) != 0) {
+            throw new IllegalArgumentException("Некорректная синхропосылка в заголовке контейнера.");
+        }
+        return new Header(algorithm, size, nonce);
+    }
+
+    /**
+     * Проверяет и расшифровывает фрагменты, следующие за заголовком. Открытый текст фрагмента
+     * пишется в output только после проверки имитовставки; при ошибке поток прерывается
+     * исключением {@link ContainerAuthenticationException}.
+     */
+    public void decrypt(Header header, InputStream input, OutputStream output, byte[] key) throws IOException {
+        byte[] headerBytes = header.toBytes();
+        BlockCipher cipher = magmaCtrCipher.newCipher(header.algorithm(), key);
+        int sealedSize = header.chunkSize() + cipher.getBlockSize();
+        byte[] current = new byte[sealedSize];
+        byte[] next = new byte[sealedSize];
+        byte[] plain = new byte[header.chunkSize()];
+        long cryptoNanos = 0;
+        long total = 0;
+        try {
+            int length = input.readNBytes(current, 0, sealedSize);
+            long index = 0;
+            while (true) {
+                int nextLength = length == sealedSize ? input.readNBytes(next, 0, sealedSize) : 0;
+                boolean last = nextLength == 0;
+                long start = System.nanoTime();
+                int plainLength;
+                try {
+                    plainLength = mgm.decrypt(cipher, header.chunkNonce(index), associatedData(headerBytes, index, last),
+                            current, 0, length, plain, 0);
+                } catch (IllegalArgumentException e) {
+                    throw new ContainerAuthenticationException(index);
+                }
+                cryptoNanos += System.nanoTime() - start;
+                output.write(plain, 0, plainLength);
+                total += plainLength;
+                if (last) {
+                    break;
+                }
+                byte[] swap = current;
+                current = next;
+                next = swap;
+                length = nextLength;
+                index++;
+            }
+        } finally {
+            cipher.destroy();
+            Arrays.fill(plain, (byte) 0);
+        }
+        metrics.recordBytes(OPERATION, total, cryptoNanos);
+    }
+
+    private Header newHeader(CipherAlgorithm algorithm) {
+        byte[] nonce = new byte[algorithm.getBlockSize()];
+        random.nextBytes(nonce);
+        nonce[0] &= 0x7F;
+        return new Header(algorithm, chunkSize, nonce);
+    }
+
+    private static byte[] associatedData(byte[] header, long index, boolean last) {
+        return ByteBuffer.allocate(header.length + Long.BYTES + 1)
+                .put(header)
+                .putLong(index)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    public record Header(CipherAlgorithm algorithm, int chunkSize, byte[] nonce) {
+
+        byte[] toBytes() {
+            return ByteBuffer.allocate(MAGIC.length + 6 + nonce.length)
+                    .put(MAGIC)
+                    .put(VERSION)
+                    .put((byte) (algorithm == CipherAlgorithm.MAGMA ? 1 : 2))
+                    .putInt(chunkSize)
+                    .put(nonce)
+                    .array();
+        }
+
+        /** Синхропосылка фрагмента: к младшим 64 битам прибавляется номер, старший бит блока остаётся нулевым. */
+        byte[] chunkNonce(long index) {
+            byte[] result = nonce.clone();
+            ByteBuffer buffer = ByteBuffer.wrap(result);
+            int offset = result.length - Long.BYTES;
+            long value = buffer.getLong(offset) + index;
+            if (offset == 0) {
+                value &= Long.MAX_VALUE;
+            }
+            buffer.putLong(offset, value);
+            return result;
+        }
+    }
+
+    /** Имитовставка фрагмента не совпала: данные повреждены, подменены или ключ неверен. */
+    public static class ContainerAuthenticationException extends IOException {
+        public ContainerAuthenticationException(long chunkIndex) {
+            super("Имитовставка фрагмента " + chunkIndex + " не совпадает: контейнер повреждён или ключ неверен.");
+        }
+    }
+}
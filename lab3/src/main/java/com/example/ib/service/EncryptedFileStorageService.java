@@ -0,0 +1,166 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище зашифрованных (Магма-CTR) файлов на сервере. Позволяет расшифровать
+ * произвольный диапазон байт файла, читая с диска и обрабатывая только этот диапазон.
+ * Загрузка пишется во временный файл с уникальным именем и появляется под своим именем
+ * атомарно; существующий файл заменяется, только если это запрошено явно.
+ */
+@Service
+public class EncryptedFileStorageService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,200}");
+    // имена хранимых файлов не начинаются с точки, поэтому временные файлы с ними не пересекаются
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final MagmaCtrCipher magmaCtrCipher;
+
+    public EncryptedFileStorageService(@Value("${app.cipher.storage-dir}") String directory,
+                                       MagmaCtrCipher magmaCtrCipher) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.magmaCtrCipher = magmaCtrCipher;
+        Files.createDirectories(this.directory);
+        // загрузки, прерванные остановкой приложения
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(this.directory, TEMP_PREFIX + "*" + TEMP_SUFFIX)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    /**
+     * Сохраняет файл под именем requestedName (или исходным именем файла). Если файл с таким
+     * именем уже есть, он заменяется только при overwrite, иначе — {@link StoredFileExistsException}.
+     */
+    public StoredFile store(MultipartFile file, String requestedName, boolean overwrite) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите зашифрованный файл для загрузки.");
+        }
+        String name = requestedName == null || requestedName.isBlank()
+                ? Path.of(String.valueOf(file.getOriginalFilename())).getFileName().toString()
+                : requestedName.trim();
+        Path target = resolve(name);
+        if (!overwrite && Files.exists(target)) {
+            throw new StoredFileExistsException(name);
+        }
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            long size;
+            try (InputStream input = file.getInputStream()) {
+                size = Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (overwrite) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                publishNew(temp, target, name);
+            }
+            return new StoredFile(name, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Жёсткая ссылка создаётся атомарно и не заменяет существующий файл, в отличие от переименования
+    private static void publishNew(Path temp, Path target, String name) throws IOException {
+        try {
+            Files.createLink(target, temp);
+        } catch (FileAlreadyExistsException e) {
+            throw new StoredFileExistsException(name);
+        } catch (UnsupportedOperationException e) {
+            if (Files.exists(target)) {
+                throw new StoredFileExistsException(name);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public long size(String name) throws IOException {
+        try {
+            return Files.size(resolve(name));
+        } catch (NoSuchFileException e) {
+            throw new StoredFileNotFoundException(name);
+        }
+    }
+
+    /**
+     * Расшифровывает байты [start, end] файла и пишет их в поток. Данные читаются
+     * и обрабатываются блоками фиксированного размера, префикс файла не читается.
+     */
+    public void decryptRange(String name, byte[] key, long counter, CipherAlgorithm algorithm,
+                             long start, long end, OutputStream output) throws IOException {
+        BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (FileChannel channel = FileChannel.open(resolve(name), StandardOpenOption.READ)) {
+            long position = start;
+            while (position <= end) {
+                int length = (int) Math.min(CHUNK_SIZE, end - position + 1);
+                ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+                while (target.hasRemaining()) {
+                    if (channel.read(target, position + target.position()) < 0) {
+                        throw new IOException("Файл " + name + " короче ожидаемого.");
+                    }
+                }
+                magmaCtrCipher.transform(cipher, counter, position, buffer, 0, buffer, 0, length);
+                output.write(buffer, 0, length);
+                position += length;
+            }
+        } catch (NoSuchFileException e) {
+            throw new StoredFileNotFoundException(name);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+            cipher.destroy();
+        }
+    }
+
+    private Path resolve(String name) {
+        if (name == null || !SAFE_NAME.matcher(name).matches() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Недопустимое имя файла. Используйте латинские буквы, цифры, '.', '_' и '-'.");
+        }
+        Path path = directory.resolve(name).normalize();
+        if (!path.getParent().equals(directory)) {
+            throw new IllegalArgumentException("Недопустимое имя файла.");
+        }
+        return path;
+    }
+
+    public record StoredFile(String name, long size) {
+    }
+
+    public static class StoredFileExistsException extends RuntimeException {
+        public StoredFileExistsException(String name) {
+            super("Файл " + name + " уже есть в хранилище. Чтобы заменить его, передайте overwrite=true.");
+        }
+    }
+
+    public static class StoredFileNotFoundException extends RuntimeException {
+        public StoredFileNotFoundException(String name) {
+            super("Файл " + name + " не найден в хранилище.");
+        }
+    }
+}
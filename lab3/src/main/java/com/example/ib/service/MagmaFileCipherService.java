@@ -1,23 +1,43 @@
 package com.example.ib.service;
 
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.CipherAlgorithm;
 import com.example.ib.crypto.MagmaCipher;
 import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeystreamPool;
+import com.example.ib.crypto.mode.BlockMode;
+import com.example.ib.crypto.mode.BlockModes;
+import com.example.ib.crypto.mode.StreamMode;
+import com.example.ib.metrics.CryptoMetrics;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 @Service
 public class MagmaFileCipherService {
 
     private static final long MIN_SIZE_BYTES = 1024;
+    private static final String OPERATION = "cipher";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     private final MagmaCtrCipher magmaCtrCipher;
+    private final MagmaKeystreamPool keystreamPool;
+    private final BlockModes blockModes;
+    private final CryptoMetrics metrics;
 
-    public MagmaFileCipherService(MagmaCtrCipher magmaCtrCipher) {
+    public MagmaFileCipherService(MagmaCtrCipher magmaCtrCipher, MagmaKeystreamPool keystreamPool,
+                                  BlockModes blockModes, CryptoMetrics metrics) {
         this.magmaCtrCipher = magmaCtrCipher;
+        this.keystreamPool = keystreamPool;
+        this.blockModes = blockModes;
+        this.metrics = metrics;
     }
 
     public ProcessedFile process(
@@ -26,6 +46,8 @@ public class MagmaFileCipherService {
             String keyHex,
             String counterHex,
             CipherMode mode,
+            CipherAlgorithm algorithm,
+            BlockMode blockMode,
             String requestedName) throws IOException {
 
         if (dataFile == null || dataFile.isEmpty()) {
@@ -34,21 +56,120 @@ public class MagmaFileCipherService {
         if (dataFile.getSize() < MIN_SIZE_BYTES) {
             throw new IllegalArgumentException("Размер файла должен быть не менее 1 КБ.");
         }
-        byte[] key = resolveKey(keyHex, keyFile);
-        long counter = parseCounter(counterHex);
-
-        byte[] input = dataFile.getBytes();
-        byte[] output = magmaCtrCipher.process(input, key, counter);
+        byte[] key = metrics.phase(OPERATION, CryptoMetrics.PHASE_KEY, () -> resolveKey(keyHex, keyFile));
+        // без счётчика шифрование возможно только гаммой из пула: значение счётчика назначает пул
+        boolean pooled = mode == CipherMode.ENCRYPT && algorithm == CipherAlgorithm.MAGMA && blockMode == BlockMode.CTR
+                && keystreamPool.isEnabled() && (counterHex == null || counterHex.isBlank());
+        boolean ctr = blockMode == BlockMode.CTR;
+        // разбор счётчика и IV не замеряется: в фазе key одно измерение на запрос — получение ключа
+        long counter = pooled || !ctr ? 0 : parseCounter(counterHex);
+        byte[] iv = ctr ? null : parseIv(counterHex, blockModes.get(blockMode).ivLength(algorithm.getBlockSize()));
 
         String outputName = selectOutputName(dataFile.getOriginalFilename(), requestedName, mode);
-        return new ProcessedFile(outputName, output);
+        long length = dataFile.getSize();
+        if (ctr && !pooled && mode == CipherMode.ENCRYPT && algorithm == CipherAlgorithm.MAGMA) {
+            keystreamPool.checkCallerCounter(counter, length);
+        }
+        // короткое сообщение целиком покрывается готовой гаммой пула — его выгоднее взять оттуда
+        if (ctr && !(pooled && length <= keystreamPool.getSegmentSize())) {
+            Long assignedCounter = pooled ? keystreamPool.reserve(key, length) : null;
+            long initialCounter = pooled ? assignedCounter : counter;
+            return new ProcessedFile(outputName, length, assignedCounter,
+                    streamCtr(dataFile, key, initialCounter, algorithm));
+        }
+
+        // блочным режимам нужно сообщение целиком: дополнение и имитовставка MGM считаются по всему входу
+        byte[] input = metrics.phase(OPERATION, CryptoMetrics.PHASE_RECEIVE, dataFile::getBytes);
+        long cryptoStart = System.nanoTime();
+        Long assignedCounter = null;
+        byte[] output;
+        if (pooled) {
+            output = new byte[input.length];
+            assignedCounter = metrics.phase(OPERATION, CryptoMetrics.PHASE_CRYPTO,
+                    () -> keystreamPool.encrypt(key, input, output));
+        } else {
+            output = metrics.phase(OPERATION, CryptoMetrics.PHASE_CRYPTO,
+                    () -> processWithMode(input, key, iv, algorithm, blockMode, mode));
+        }
+        metrics.recordBytes(OPERATION, input.length, System.nanoTime() - cryptoStart);
+        return new ProcessedFile(outputName, output.length, assignedCounter, stream -> stream.write(output));
+    }
+
+    /**
+     * Потоковое CTR-преобразование: загруженный файл читается частями в массив фиксированного
+     * размера, преобразуется в нём на месте и пишется в ответ, поэтому память кучи на запрос
+     * не зависит от размера файла. Фазы receive и crypto учитываются при записи ответа.
+     * Буфер вне кучи здесь не используется: потоки загрузки и ответа работают с массивами,
+     * и прямой буфер добавил бы по копии на входе и выходе.
+     */
+    private StreamingResponseBody streamCtr(MultipartFile dataFile, byte[] key, long counter,
+                                            CipherAlgorithm algorithm) {
+        return stream -> {
+            BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            long receiveNanos = 0;
+            long cryptoNanos = 0;
+            long position = 0;
+            try (InputStream input = dataFile.getInputStream()) {
+                while (true) {
+                    long start = System.nanoTime();
+                    int read = input.readNBytes(buffer, 0, buffer.length);
+                    receiveNanos += System.nanoTime() - start;
+                    if (read == 0) {
+                        break;
+                    }
+                    start = System.nanoTime();
+                    magmaCtrCipher.transform(cipher, counter, position, buffer, 0, buffer, 0, read);
+                    cryptoNanos += System.nanoTime() - start;
+                    stream.write(buffer, 0, read);
+                    position += read;
+                }
+            } finally {
+                cipher.destroy();
+                Arrays.fill(buffer, (byte) 0);
+            }
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_RECEIVE, receiveNanos);
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_CRYPTO, cryptoNanos);
+            metrics.recordBytes(OPERATION, position, cryptoNanos);
+        };
+    }
+
+    private byte[] processWithMode(byte[] input, byte[] key, byte[] iv, CipherAlgorithm algorithm,
+                                   BlockMode blockMode, CipherMode mode) {
+        StreamMode streamMode = blockModes.get(blockMode);
+        boolean encrypt = mode == CipherMode.ENCRYPT;
+        BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+        try {
+            ByteBuffer output = ByteBuffer.allocate(streamMode.outputLength(cipher.getBlockSize(), input.length, encrypt));
+            if (encrypt) {
+                streamMode.encrypt(cipher, iv, ByteBuffer.wrap(input), output);
+            } else {
+                streamMode.decrypt(cipher, iv, ByteBuffer.wrap(input), output);
+            }
+            return output.position() == output.capacity() ? output.array() : Arrays.copyOf(output.array(), output.position());
+        } finally {
+            cipher.destroy();
+        }
+    }
+
+    /**
+     * Сеанс CTR-преобразования потока, поступающего частями (реактивные обработчики).
+     * Позиция в потоке накапливается между частями, поэтому результат совпадает
+     * с обработкой всего файла тем же счётчиком. Сеанс нужно закрыть.
+     */
+    public CtrSession openCtrSession(byte[] key, long counter, CipherAlgorithm algorithm) {
+        return new CtrSession(magmaCtrCipher.newCipher(algorithm, key), counter);
+    }
+
+    public static String formatCounter(long counter) {
+        return String.format("%016X", counter);
     }
 
     public long getMinSizeBytes() {
         return MIN_SIZE_BYTES;
     }
 
-    private byte[] resolveKey(String keyHex, MultipartFile keyFile) throws IOException {
+    public byte[] resolveKey(String keyHex, MultipartFile keyFile) throws IOException {
         if (keyFile != null && !keyFile.isEmpty()) {
             byte[] content = keyFile.getBytes();
             if (content.length == MagmaCipher.KEY_SIZE) { // двоичный ключ
@@ -64,40 +185,101 @@ public class MagmaFileCipherService {
         return parseHexKey(keyHex);
     }
 
-    private byte[] parseHexKey(String hexString) {
-        String normalized = normalizeHex(hexString);
-        if (normalized.length() != MagmaCipher.KEY_SIZE * 2) {
-            throw new IllegalArgumentException("Ключ должен содержать 64 шестнадцатеричных символа (256 бит).");
-        }
+    /**
+     * Разбор ключа за один проход по строке без промежуточных строк и регулярных выражений:
+     * символы, не являющиеся hex-цифрами (пробелы, двоеточия, переводы строк), пропускаются.
+     */
+    public byte[] parseHexKey(String hexString) {
         byte[] key = new byte[MagmaCipher.KEY_SIZE];
-        for (int i = 0; i < key.length; i++) {
-            key[i] = (byte) Integer.parseInt(normalized.substring(i * 2, i * 2 + 2), 16);
+        int digits = 0;
+        for (int i = 0; i < hexString.length(); i++) {
+            int nibble = hexValue(hexString.charAt(i));
+            if (nibble < 0) {
+                continue;
+            }
+            if (digits == MagmaCipher.KEY_SIZE * 2) {
+                digits++;
+                break;
+            }
+            int index = digits >>> 1;
+            key[index] = (byte) ((digits & 1) == 0 ? nibble << 4 : key[index] | nibble);
+            digits++;
+        }
+        if (digits != MagmaCipher.KEY_SIZE * 2) {
+            Arrays.fill(key, (byte) 0);
+            throw new IllegalArgumentException("Ключ должен содержать 64 шестнадцатеричных символа (256 бит).");
         }
         return key;
     }
 
-    private long parseCounter(String counterHex) {
+    public long parseCounter(String counterHex) {
         if (counterHex == null || counterHex.isBlank()) {
             throw new IllegalArgumentException("Введите начальное значение счётчика (64 бита, hex).");
         }
-        String normalized = normalizeHex(counterHex);
-        if (normalized.isEmpty()) {
+        // допускаем укороченную запись: недостающие старшие тетрады считаются нулевыми
+        long counter = 0;
+        int digits = 0;
+        for (int i = 0; i < counterHex.length(); i++) {
+            int nibble = hexValue(counterHex.charAt(i));
+            if (nibble < 0) {
+                continue;
+            }
+            if (++digits > 16) {
+                throw new IllegalArgumentException("Счётчик не должен превышать 64 бита (16 hex-символов).");
+            }
+            counter = (counter << 4) | nibble;
+        }
+        if (digits == 0) {
             throw new IllegalArgumentException("Счётчик должен быть задан шестнадцатеричными символами.");
         }
-        if (normalized.length() > 16) {
-            throw new IllegalArgumentException("Счётчик не должен превышать 64 бита (16 hex-символов).");
+        return counter;
+    }
+
+    /**
+     * Синхропосылка режимов CBC, CFB, OFB и MGM: до length байт в hex, недостающие
+     * старшие байты считаются нулевыми.
+     */
+    public byte[] parseIv(String ivHex, int length) {
+        if (ivHex == null || ivHex.isBlank()) {
+            throw new IllegalArgumentException("Введите синхропосылку (" + length * 8 + " бит, hex).");
         }
-        // допускаем укороченную запись, дополняем ведущими нулями
-        String padded = String.format("%16s", normalized).replace(' ', '0');
-        try {
-            return Long.parseUnsignedLong(padded, 16);
-        } catch (NumberFormatException ex) {
-            throw new IllegalArgumentException("Некорректное значение счётчика. Используйте hex-цифры 0-9, A-F.");
+        byte[] iv = new byte[length];
+        int digits = 0;
+        for (int i = 0; i < ivHex.length(); i++) {
+            if (hexValue(ivHex.charAt(i)) >= 0) {
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Синхропосылка должна быть задана шестнадцатеричными символами.");
+        }
+        if (digits > length * 2) {
+            throw new IllegalArgumentException("Синхропосылка не должна превышать " + length * 8
+                    + " бит (" + length * 2 + " hex-символов).");
         }
+        int position = length * 2 - digits; // номер тетрады с выравниванием по правому краю
+        for (int i = 0; i < ivHex.length(); i++) {
+            int nibble = hexValue(ivHex.charAt(i));
+            if (nibble < 0) {
+                continue;
+            }
+            iv[position >>> 1] |= (byte) ((position & 1) == 0 ? nibble << 4 : nibble);
+            position++;
+        }
+        return iv;
     }
 
-    private String normalizeHex(String value) {
-        return value.replaceAll("[^0-9A-Fa-f]", "").toUpperCase();
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
     }
 
     private String selectOutputName(String sourceName, String requestedName, CipherMode mode) {
@@ -136,6 +318,38 @@ public class MagmaFileCipherService {
         return Path.of(name).getFileName().toString().replaceAll("[\\\\/:*?\"<>|]", "").trim();
     }
 
+    public final class CtrSession implements AutoCloseable {
+        private final BlockCipher cipher;
+        private final long counter;
+        private long position;
+        private long cryptoNanos;
+        private boolean closed;
+
+        private CtrSession(BlockCipher cipher, long counter) {
+            this.cipher = cipher;
+            this.counter = counter;
+        }
+
+        /** Преобразует очередную часть потока на месте. */
+        public void update(byte[] data, int off, int len) {
+            long start = System.nanoTime();
+            magmaCtrCipher.transform(cipher, counter, position, data, off, data, off, len);
+            cryptoNanos += System.nanoTime() - start;
+            position += len;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cipher.destroy();
+            metrics.recordPhase(OPERATION, CryptoMetrics.PHASE_CRYPTO, cryptoNanos);
+            metrics.recordBytes(OPERATION, position, cryptoNanos);
+        }
+    }
+
     public enum CipherMode {
         ENCRYPT, DECRYPT;
 
@@ -151,6 +365,11 @@ public class MagmaFileCipherService {
         }
     }
 
-    public record ProcessedFile(String fileName, byte[] content) {
+    /**
+     * @param length          длина результата в байтах
+     * @param assignedCounter счётчик, назначенный пулом гаммы, если он не был задан в запросе; иначе null
+     * @param content         запись результата в ответ; потоковые режимы выполняют преобразование при записи
+     */
+    public record ProcessedFile(String fileName, long length, Long assignedCounter, StreamingResponseBody content) {
     }
 }
@@ -0,0 +1,343 @@
+package com.example.ib.storage;
+
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeyScheduleCache;
+import com.example.ib.crypto.mode.BlockModes;
+import com.example.ib.crypto.mode.MgmMode;
+import com.example.ib.metrics.CryptoMetrics;
+import com.example.ib.storage.SegmentIndex.Segment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Серверное хранилище объектов, зашифрованных по сегментам фиксированного размера (MGM).
+ * <p>
+ * Каждый сегмент шифруется независимо со своей синхропосылкой и имитовставкой, которые
+ * вместе с длиной сегмента записываются в индекс рядом с файлом данных. Чтение диапазона
+ * затрагивает только нужные сегменты: файл данных отображается в память, сегмент проверяется
+ * и расшифровывается целиком, после чего из него выдаётся запрошенная часть. Проверенные
+ * сегменты кладутся в {@link SegmentCache}, и повторные чтения не обращаются к шифру.
+ * <p>
+ * Перезапись объекта создаёт новый файл данных и атомарно заменяет индекс, поэтому
+ * параллельное чтение видит либо старую, либо новую версию целиком. Файл данных прежней
+ * версии удаляется не сразу, а при одной из следующих записей по истечении retired-grace:
+ * чтение, уже получившее старый индекс, успевает открыть его файл. Замена индекса выполняется
+ * под общей блокировкой, поэтому одновременные записи одного имени не оставляют лишних файлов;
+ * файлы данных, на которые не ссылается ни один индекс (после аварийной остановки), удаляются при запуске.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cipher.object-store.enabled", havingValue = "true")
+public class EncryptedObjectStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EncryptedObjectStore.class);
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,200}");
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final Pattern DATA_FILE = Pattern.compile("(.+)\\.[0-9a-f]{" + 2 * SegmentIndex.OBJECT_ID_LENGTH + "}\\.seg");
+    private static final String OPERATION = "cipher";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final MagmaCtrCipher magmaCtrCipher;
+    private final MagmaKeyScheduleCache keyScheduleCache;
+    private final MgmMode mgm;
+    private final SegmentCache cache;
+    private final CryptoMetrics metrics;
+    private final SecureRandom random = new SecureRandom();
+    private final long retiredGraceNanos;
+    /** Файлы данных заменённых версий в порядке замены; доступ под собственным монитором. */
+    private final ArrayDeque<RetiredFile> retired = new ArrayDeque<>();
+
+    public EncryptedObjectStore(@Value("${app.cipher.object-store.dir}") String directory,
+                                @Value("${app.cipher.object-store.segment-size}") int segmentSize,
+                                @Value("${app.cipher.object-store.retired-grace}") Duration retiredGrace,
+                                MagmaCtrCipher magmaCtrCipher,
+                                MagmaKeyScheduleCache keyScheduleCache,
+                                BlockModes blockModes,
+                                SegmentCache cache,
+                                CryptoMetrics metrics) throws IOException {
+        if (segmentSize < 16 || segmentSize > MAX_SEGMENT_SIZE || segmentSize % 16 != 0) {
+            throw new IllegalArgumentException("Размер сегмента хранилища должен быть кратен 16 байтам и не превышать 16 МБ.");
+        }
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.segmentSize = segmentSize;
+        this.retiredGraceNanos = retiredGrace.toNanos();
+        this.magmaCtrCipher = magmaCtrCipher;
+        this.keyScheduleCache = keyScheduleCache;
+        this.mgm = blockModes.mgm();
+        this.cache = cache;
+        this.metrics = metrics;
+        Files.createDirectories(this.directory);
+        removeUnreferencedData();
+    }
+
+    /** Шифрует поток по сегментам и сохраняет объект под указанным именем. */
+    public StoredObject store(String name, InputStream input, byte[] key, CipherAlgorithm algorithm) throws IOException {
+        Path indexPath = resolve(name);
+        byte[] objectId = new byte[SegmentIndex.OBJECT_ID_LENGTH];
+        random.nextBytes(objectId);
+        String tempName = name + "." + HexFormat.of().formatHex(objectId);
+        Path dataTemp = directory.resolve(tempName + ".upload");
+        Path indexTemp = directory.resolve(tempName + ".idx.upload");
+
+        BlockCipher cipher = magmaCtrCipher.newCipher(algorithm, key);
+        int blockSize = cipher.getBlockSize();
+        byte[] nonceBase = new byte[blockSize];
+        random.nextBytes(nonceBase);
+        byte[] current = new byte[segmentSize];
+        byte[] next = new byte[segmentSize];
+        byte[] sealed = new byte[segmentSize + blockSize];
+        List<Segment> segments = new ArrayList<>();
+        long size = 0;
+        long cryptoNanos = 0;
+        try (OutputStream output = Files.newOutputStream(dataTemp)) {
+            int length = input.readNBytes(current, 0, segmentSize);
+            while (length > 0) {
+                // последний сегмент определяется по упреждающему чтению следующего
+                int nextLength = length == segmentSize ? input.readNBytes(next, 0, segmentSize) : 0;
+                int segment = segments.size();
+                byte[] nonce = segmentNonce(nonceBase, segment);
+                long start = System.nanoTime();
+                mgm.encrypt(cipher, nonce, SegmentIndex.associatedData(objectId, segment, nextLength == 0),
+                        current, 0, length, sealed, 0);
+                cryptoNanos += System.nanoTime() - start;
+                output.write(sealed, 0, length);
+                segments.add(new Segment(nonce, length, Arrays.copyOfRange(sealed, length, length + blockSize)));
+                size += length;
+                byte[] swap = current;
+                current = next;
+                next = swap;
+                length = nextLength;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dataTemp);
+            throw e;
+        } finally {
+            cipher.destroy();
+            Arrays.fill(current, (byte) 0);
+            Arrays.fill(next, (byte) 0);
+            Arrays.fill(sealed, (byte) 0);
+        }
+
+        SegmentIndex index = new SegmentIndex(algorithm, segmentSize, objectId, size, List.copyOf(segments));
+        // прежняя версия читается под той же блокировкой, что и замена: иначе при одновременной
+        // записи обе увидели бы один и тот же старый индекс и файл одной из них остался бы навсегда
+        synchronized (retired) {
+            SegmentIndex previous = readIndexIfExists(indexPath);
+            try {
+                index.write(indexTemp);
+                Files.move(dataTemp, directory.resolve(index.dataFileName(name)), StandardCopyOption.ATOMIC_MOVE);
+                Files.move(indexTemp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(dataTemp);
+                Files.deleteIfExists(indexTemp);
+                Files.deleteIfExists(directory.resolve(index.dataFileName(name)));
+                throw e;
+            }
+            if (previous != null) {
+                retired.addLast(new RetiredFile(directory.resolve(previous.dataFileName(name)), System.nanoTime()));
+            }
+            deleteRetired();
+        }
+        metrics.recordBytes(OPERATION, size, cryptoNanos);
+        return new StoredObject(name, algorithm.getId(), size, segments.size(), segmentSize);
+    }
+
+    public SegmentIndex index(String name) throws IOException {
+        SegmentIndex index = readIndexIfExists(resolve(name));
+        if (index == null) {
+            throw new StoredObjectNotFoundException(name);
+        }
+        return index;
+    }
+
+    /**
+     * Проверяет и расшифровывает сегменты, покрывающие байты [start, end] объекта, и пишет
+     * запрошенный диапазон в поток. Если имитовставка сегмента не совпала, данные этого
+     * сегмента не выдаются и выбрасывается {@link SegmentAuthenticationException}.
+     */
+    public void readRange(String name, SegmentIndex index, byte[] key, long start, long end, OutputStream output)
+            throws IOException {
+        if (index.size() == 0 || start > end) {
+            return;
+        }
+        int segmentSize = index.segmentSize();
+        int first = (int) (start / segmentSize);
+        int last = (int) (end / segmentSize);
+        long dataEnd = (long) last * segmentSize + index.segments().get(last).length();
+        String cachePrefix = keyScheduleCache.fingerprint(key) + ":" + HexFormat.of().formatHex(index.objectId()) + ":";
+
+        BlockCipher cipher = null;
+        byte[] sealed = null;
+        byte[] plain = new byte[segmentSize];
+        long total = 0;
+        long cryptoNanos = 0;
+        try (FileChannel channel = FileChannel.open(directory.resolve(index.dataFileName(name)), StandardOpenOption.READ)) {
+            if (channel.size() < dataEnd) {
+                throw new IOException("Файл данных объекта " + name + " короче индекса.");
+            }
+            for (int i = first; i <= last; i++) {
+                Segment segment = index.segments().get(i);
+                String cacheKey = cachePrefix + i;
+                int length = cache.copy(cacheKey, plain);
+                if (length < 0) {
+                    if (cipher == null) {
+                        cipher = magmaCtrCipher.newCipher(index.algorithm(), key);
+                        sealed = new byte[segmentSize + cipher.getBlockSize()];
+                    }
+                    length = segment.length();
+                    // отображается только сегмент: диапазон целиком может превышать 2 ГБ
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, (long) i * segmentSize, length);
+                    mapped.get(0, sealed, 0, length);
+                    System.arraycopy(segment.tag(), 0, sealed, length, segment.tag().length);
+                    long begin = System.nanoTime();
+                    try {
+                        mgm.decrypt(cipher, segment.nonce(), index.associatedData(i),
+                                sealed, 0, length + segment.tag().length, plain, 0);
+                    } catch (IllegalArgumentException e) {
+                        throw new SegmentAuthenticationException(name, i);
+                    }
+                    cryptoNanos += System.nanoTime() - begin;
+                    total += length;
+                    cache.put(cacheKey, plain, length);
+                }
+                long segmentStart = (long) i * segmentSize;
+                int from = i == first ? (int) (start - segmentStart) : 0;
+                int to = i == last ? (int) (end - segmentStart) + 1 : length;
+                output.write(plain, from, to - from);
+            }
+        } catch (NoSuchFileException e) {
+            throw new StoredObjectNotFoundException(name);
+        } finally {
+            if (cipher != null) {
+                cipher.destroy();
+            }
+            Arrays.fill(plain, (byte) 0);
+            if (sealed != null) {
+                Arrays.fill(sealed, (byte) 0);
+            }
+        }
+        metrics.recordBytes(OPERATION, total, cryptoNanos);
+    }
+
+    /**
+     * Удаляет файлы заменённых версий, пролежавшие дольше retired-grace. Файл, который ещё
+     * открыт на чтение и не может быть удалён (Windows), остаётся в очереди до следующей записи.
+     */
+    private void deleteRetired() {
+        long now = System.nanoTime();
+        for (Iterator<RetiredFile> iterator = retired.iterator(); iterator.hasNext(); ) {
+            RetiredFile file = iterator.next();
+            if (now - file.retiredAt() < retiredGraceNanos) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                iterator.remove();
+            } catch (IOException e) {
+                LOGGER.debug("Файл данных {} ещё занят, удаление отложено.", file.path(), e);
+            }
+        }
+    }
+
+    /** Удаляет файлы данных, на которые не ссылается индекс их объекта. */
+    private void removeUnreferencedData() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                Matcher matcher = DATA_FILE.matcher(fileName);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String name = matcher.group(1);
+                SegmentIndex index;
+                try {
+                    index = readIndexIfExists(directory.resolve(name + INDEX_SUFFIX));
+                } catch (IOException e) {
+                    LOGGER.warn("Индекс объекта {} не читается, его файлы данных не удаляются.", name, e);
+                    continue;
+                }
+                if (index == null || !index.dataFileName(name).equals(fileName)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private SegmentIndex readIndexIfExists(Path indexPath) throws IOException {
+        try {
+            return SegmentIndex.read(indexPath);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /** Синхропосылка сегмента: к младшим 64 битам базовой прибавляется номер, старший бит блока нулевой. */
+    private static byte[] segmentNonce(byte[] base, long segment) {
+        byte[] nonce = base.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(nonce);
+        int offset = nonce.length - Long.BYTES;
+        buffer.putLong(offset, buffer.getLong(offset) + segment);
+        nonce[0] &= 0x7F;
+        return nonce;
+    }
+
+    private Path resolve(String name) {
+        if (name == null || !SAFE_NAME.matcher(name).matches() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Недопустимое имя объекта. Используйте латинские буквы, цифры, '.', '_' и '-'.");
+        }
+        Path path = directory.resolve(name + INDEX_SUFFIX).normalize();
+        if (!path.getParent().equals(directory)) {
+            throw new IllegalArgumentException("Недопустимое имя объекта.");
+        }
+        return path;
+    }
+
+    private record RetiredFile(Path path, long retiredAt) {
+    }
+
+    public record StoredObject(String name, String algorithm, long size, int segments, int segmentSize) {
+    }
+
+    public static class StoredObjectNotFoundException extends RuntimeException {
+        public StoredObjectNotFoundException(String name) {
+            super("Объект " + name + " не найден в хранилище.");
+        }
+    }
+
+    /** Имитовставка сегмента не совпала: данные повреждены, подменены или ключ неверен. */
+    public static class SegmentAuthenticationException extends IOException {
+        public SegmentAuthenticationException(String name, int segment) {
+            super("Имитовставка сегмента " + segment + " объекта " + name + " не совпадает: данные повреждены или ключ неверен.");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ib.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный по объёму кэш проверенных расшифрованных сегментов вне кучи (direct-буферы).
+ * Ключ записи включает отпечаток ключа шифрования, поэтому сегмент, расшифрованный одним ключом,
+ * не выдаётся запросу с другим ключом. Вытесненные буферы затираются и переиспользуются.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cipher.object-store.enabled", havingValue = "true")
+public class SegmentCache {
+
+    private static final byte[] ZEROS = new byte[8192];
+
+    private final long capacity;
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public SegmentCache(@Value("${app.cipher.object-store.cache-size}") DataSize capacity, MeterRegistry registry) {
+        this.capacity = capacity.toBytes();
+        this.hits = Counter.builder("ib.cipher.object-store.cache.requests")
+                .description("Обращения к кэшу расшифрованных сегментов")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("ib.cipher.object-store.cache.requests")
+                .description("Обращения к кэшу расшифрованных сегментов")
+                .tag("result", "miss")
+                .register(registry);
+        this.evictions = Counter.builder("ib.cipher.object-store.cache.evictions")
+                .description("Сегменты, вытесненные из кэша")
+                .register(registry);
+        Gauge.builder("ib.cipher.object-store.cache.bytes", this, SegmentCache::usedBytes)
+                .description("Объём кэша расшифрованных сегментов вне кучи")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Копирует сегмент в target, если он есть в кэше. Копирование выполняется под блокировкой,
+     * чтобы буфер не был затёрт вытеснением во время чтения.
+     *
+     * @return длина сегмента или -1, если сегмента в кэше нет
+     */
+    public int copy(String key, byte[] target) {
+        synchronized (entries) {
+            ByteBuffer buffer = entries.get(key);
+            if (buffer == null) {
+                misses.increment();
+                return -1;
+            }
+            int length = buffer.limit();
+            buffer.get(0, target, 0, length);
+            hits.increment();
+            return length;
+        }
+    }
+
+    public void put(String key, byte[] data, int length) {
+        if (length <= 0 || length > capacity) {
+            return;
+        }
+        synchronized (entries) {
+            ByteBuffer reusable = null;
+            ByteBuffer previous = entries.remove(key);
+            if (previous != null) {
+                usedBytes -= previous.capacity();
+                reusable = wipe(previous);
+            }
+            Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+            while (usedBytes + length > capacity && iterator.hasNext()) {
+                ByteBuffer evicted = iterator.next().getValue();
+                iterator.remove();
+                usedBytes -= evicted.capacity();
+                evictions.increment();
+                wipe(evicted);
+                if (reusable == null || reusable.capacity() < length) {
+                    reusable = evicted;
+                }
+            }
+            ByteBuffer buffer = reusable != null && reusable.capacity() >= length && usedBytes + reusable.capacity() <= capacity
+                    ? reusable
+                    : ByteBuffer.allocateDirect(length);
+            buffer.clear();
+            buffer.put(data, 0, length).flip();
+            entries.put(key, buffer);
+            usedBytes += buffer.capacity();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.values().forEach(SegmentCache::wipe);
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    private long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private static ByteBuffer wipe(ByteBuffer buffer) {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            buffer.put(ZEROS, 0, Math.min(ZEROS.length, buffer.remaining()));
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ib.storage;
+
+import com.example.ib.crypto.CipherAlgorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Индекс зашифрованного объекта: для каждого сегмента — синхропосылка (начальное значение
+ * счётчика MGM), длина и имитовставка. Сегмент i занимает в файле данных байты
+ * [i × segmentSize, i × segmentSize + length), поэтому смещения не хранятся.
+ * <p>
+ * Формат файла: {@code "IBSI" | версия (1) | алгоритм (1) | размер сегмента (4) |
+ * идентификатор объекта (16) | размер открытого текста (8) | число сегментов (4)}, затем записи
+ * {@code синхропосылка | длина (4) | имитовставка}; синхропосылка и имитовставка — по блоку шифра.
+ */
+public record SegmentIndex(CipherAlgorithm algorithm, int segmentSize, byte[] objectId, long size,
+                           List<Segment> segments) {
+
+    static final int OBJECT_ID_LENGTH = 16;
+
+    private static final byte[] MAGIC = {'I', 'B', 'S', 'I'};
+    private static final byte VERSION = 1;
+
+    /** Имя файла данных этой версии объекта: каждая перезапись получает новый файл. */
+    String dataFileName(String name) {
+        return name + "." + HexFormat.of().formatHex(objectId) + ".seg";
+    }
+
+    byte[] associatedData(int segment) {
+        return associatedData(objectId, segment, segment == segments.size() - 1);
+    }
+
+    /**
+     * Ассоциированные данные сегмента: идентификатор объекта, номер сегмента и признак последнего.
+     * Сегмент нельзя перенести в другой объект или на другое место, а объект — незаметно укоротить.
+     */
+    static byte[] associatedData(byte[] objectId, int segment, boolean last) {
+        byte[] aad = Arrays.copyOf(objectId, OBJECT_ID_LENGTH + Long.BYTES + 1);
+        putLong(aad, OBJECT_ID_LENGTH, segment);
+        aad[aad.length - 1] = (byte) (last ? 1 : 0);
+        return aad;
+    }
+
+    void write(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.write(MAGIC);
+            output.writeByte(VERSION);
+            output.writeByte(algorithm == CipherAlgorithm.MAGMA ? 1 : 2);
+            output.writeInt(segmentSize);
+            output.write(objectId);
+            output.writeLong(size);
+            output.writeInt(segments.size());
+            for (Segment segment : segments) {
+                output.write(segment.nonce());
+                output.writeInt(segment.length());
+                output.write(segment.tag());
+            }
+        }
+    }
+
+    static SegmentIndex read(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || input.readByte() != VERSION) {
+                throw new IOException("Повреждён индекс объекта " + path.getFileName() + ".");
+            }
+            CipherAlgorithm algorithm = switch (input.readByte()) {
+                case 1 -> CipherAlgorithm.MAGMA;
+                case 2 -> CipherAlgorithm.KUZNYECHIK;
+                default -> throw new IOException("Неизвестный алгоритм в индексе " + path.getFileName() + ".");
+            };
+            int segmentSize = input.readInt();
+            byte[] objectId = new byte[OBJECT_ID_LENGTH];
+            input.readFully(objectId);
+            long size = input.readLong();
+            int count = input.readInt();
+            if (segmentSize <= 0 || size < 0 || count < 0 || count != expectedSegments(size, segmentSize)) {
+                throw new IOException("Повреждён индекс объекта " + path.getFileName() + ".");
+            }
+            int blockSize = algorithm.getBlockSize();
+            List<Segment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] nonce = new byte[blockSize];
+                input.readFully(nonce);
+                int length = input.readInt();
+                byte[] tag = new byte[blockSize];
+                input.readFully(tag);
+                segments.add(new Segment(nonce, length, tag));
+            }
+            return new SegmentIndex(algorithm, segmentSize, objectId, size, List.copyOf(segments));
+        } catch (EOFException e) {
+            throw new IOException("Индекс объекта " + path.getFileName() + " обрезан.", e);
+        }
+    }
+
+    static long expectedSegments(long size, int segmentSize) {
+        return (size + segmentSize - 1) / segmentSize;
+    }
+
+    private static void putLong(byte[] target, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            target[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    public record Segment(byte[] nonce, int length, byte[] tag) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.ib.batch;
+
+import com.example.ib.batch.BatchCipherService.BatchStatus;
+import com.example.ib.batch.BatchManifest.Entry;
+import com.example.ib.buffer.DirectBufferPool;
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeyScheduleCache;
+import com.example.ib.metrics.CryptoMetrics;
+import com.example.ib.service.MagmaFileCipherService.CipherMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCipherServiceTest {
+
+    private static final byte[] KEY = new byte[32];
+    private static final String[] FILES = {"a.txt", "nested/b.bin", "nested/deeper/c.dat"};
+
+    @TempDir
+    Path root;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BatchCipherService service;
+
+    private void prepare() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new BatchCipherService(root.toString(), 2, Duration.ZERO,
+                new MagmaCtrCipher(new MagmaKeyScheduleCache(0, Duration.ZERO)),
+                new DirectBufferPool(DataSize.ofMegabytes(1), 2, false, registry),
+                objectMapper, new CryptoMetrics(registry));
+        Random random = new Random(31);
+        for (int i = 0; i < FILES.length; i++) {
+            byte[] data = new byte[1000 + 3000 * i];
+            random.nextBytes(data);
+            Path file = root.resolve("plain").resolve(FILES[i]);
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void resumeSkipsFinishedFilesAndGivesOthersFreshCounters() throws Exception {
+        prepare();
+        BatchStatus first = await(service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, KEY));
+        assertEquals("completed", first.state());
+        BatchManifest before = manifest("sealed");
+        // старшую половину значений счётчика назначает пул гаммы
+        assertTrue(Long.parseUnsignedLong(before.nextCounter(), 16) >= 0);
+
+        // обрыв посреди файла: результата нет, остался только временный файл
+        Path interrupted = root.resolve("sealed").resolve(FILES[1]);
+        Files.delete(interrupted);
+        Files.write(interrupted.resolveSibling(interrupted.getFileName() + ".part"), new byte[17]);
+
+        BatchStatus resumed = await(service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, KEY));
+        assertEquals("completed", resumed.state());
+        assertEquals(FILES.length - 1, resumed.skipped());
+        assertEquals(FILES.length, resumed.completed());
+        assertEquals(0, resumed.failed());
+
+        Map<String, Entry> oldEntries = byPath(before);
+        Map<String, Entry> newEntries = byPath(manifest("sealed"));
+        assertEquals(oldEntries.get(FILES[0]).counter(), newEntries.get(FILES[0]).counter());
+        assertEquals(oldEntries.get(FILES[2]).counter(), newEntries.get(FILES[2]).counter());
+        // частично записанная гамма повторно не используется: файл получает диапазон с nextCounter
+        assertNotEquals(oldEntries.get(FILES[1]).counter(), newEntries.get(FILES[1]).counter());
+        assertEquals(before.nextCounter(), newEntries.get(FILES[1]).counter());
+        assertFalse(Files.exists(interrupted.resolveSibling(interrupted.getFileName() + ".part")));
+
+        BatchStatus decrypted = await(service.start("sealed", "opened", CipherMode.DECRYPT, CipherAlgorithm.MAGMA, KEY));
+        assertEquals("completed", decrypted.state());
+        for (String file : FILES) {
+            assertArrayEquals(Files.readAllBytes(root.resolve("plain").resolve(file)),
+                    Files.readAllBytes(root.resolve("opened").resolve(file)), file);
+        }
+    }
+
+    @Test
+    void fileRewrittenWithSameSizeIsEncryptedAgain() throws Exception {
+        prepare();
+        await(service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, KEY));
+        BatchManifest before = manifest("sealed");
+
+        Path changed = root.resolve("plain").resolve(FILES[2]);
+        byte[] data = Files.readAllBytes(changed);
+        data[0] ^= 1;
+        Files.write(changed, data);
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(byPath(before).get(FILES[2]).modified() + 2000));
+
+        BatchStatus resumed = await(service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, KEY));
+        assertEquals("completed", resumed.state());
+        assertEquals(FILES.length - 1, resumed.skipped());
+        assertEquals(before.nextCounter(), byPath(manifest("sealed")).get(FILES[2]).counter());
+
+        await(service.start("sealed", "opened", CipherMode.DECRYPT, CipherAlgorithm.MAGMA, KEY));
+        assertArrayEquals(data, Files.readAllBytes(root.resolve("opened").resolve(FILES[2])));
+    }
+
+    @Test
+    void resumeWithAnotherKeyIsRejected() throws Exception {
+        prepare();
+        await(service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, KEY));
+        byte[] otherKey = KEY.clone();
+        otherKey[0] = 1;
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.MAGMA, otherKey));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.start("plain", "sealed", CipherMode.ENCRYPT, CipherAlgorithm.KUZNYECHIK, KEY));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.start("sealed", "opened", CipherMode.DECRYPT, CipherAlgorithm.MAGMA, otherKey));
+    }
+
+    private BatchStatus await(BatchStatus started) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        BatchStatus status = started;
+        while ("running".equals(status.state()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = service.status(started.id()).orElseThrow();
+        }
+        return status;
+    }
+
+    private BatchManifest manifest(String directory) throws IOException {
+        return objectMapper.readValue(root.resolve(directory).resolve(BatchManifest.FILE_NAME).toFile(), BatchManifest.class);
+    }
+
+    private static Map<String, Entry> byPath(BatchManifest manifest) {
+        return manifest.files().stream().collect(Collectors.toMap(Entry::path, Function.identity()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ib.buffer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectBufferPoolTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DirectBufferPool pool = new DirectBufferPool(DataSize.ofKilobytes(64), 1, true, registry);
+
+    @Test
+    void returnedBufferIsReusedAndWiped() {
+        ByteBuffer first;
+        try (PooledBuffer buffer = pool.acquire(100)) {
+            first = buffer.buffer();
+            assertTrue(first.isDirect());
+            assertEquals(8 * 1024, first.capacity());
+            assertEquals(100, first.limit());
+            first.put(0, (byte) 42);
+        }
+        try (PooledBuffer buffer = pool.acquire(8 * 1024)) {
+            assertSame(first, buffer.buffer());
+            assertEquals(0, buffer.buffer().get(0));
+        }
+        assertEquals(2, registry.get("ib.buffer.pool.acquisitions")
+                .tag("size", "8KB").tag("result", "pooled").counter().count());
+        assertEquals(64 * 1024, registry.get("ib.buffer.pool.capacity").tag("size", "8KB").gauge().value());
+    }
+
+    @Test
+    void exhaustedClassFallsBackToSeparateBuffer() {
+        try (PooledBuffer pooled = pool.acquire(64 * 1024);
+             PooledBuffer overflow = pool.acquire(64 * 1024);
+             PooledBuffer large = pool.acquire(2 * 1024 * 1024)) {
+            assertNotSame(pooled.buffer(), overflow.buffer());
+            assertTrue(overflow.buffer().isDirect());
+            assertEquals(2 * 1024 * 1024, large.buffer().capacity());
+            assertEquals(64 * 1024, registry.get("ib.buffer.pool.used").tag("size", "64KB").gauge().value());
+            assertEquals(3, pool.outstanding());
+        }
+        assertEquals(1, registry.get("ib.buffer.pool.acquisitions")
+                .tag("size", "64KB").tag("result", "overflow").counter().count());
+        assertEquals(1, registry.get("ib.buffer.pool.acquisitions")
+                .tag("size", "large").tag("result", "overflow").counter().count());
+        assertEquals(0, registry.get("ib.buffer.pool.used").tag("size", "64KB").gauge().value());
+        assertEquals(0, pool.outstanding());
+    }
+
+    @Test
+    void secondReleaseIsRejected() {
+        PooledBuffer buffer = pool.acquire(16);
+        buffer.close();
+        assertThrows(IllegalStateException.class, buffer::close);
+        assertThrows(IllegalStateException.class, buffer::buffer);
+        assertEquals(0, pool.outstanding());
+    }
+
+    @Test
+    void unreleasedBufferIsReportedAsLeak() throws InterruptedException {
+        acquireAndDrop();
+        for (int attempt = 0; attempt < 100 && pool.leaks() == 0; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.leaks());
+        assertEquals(1, pool.outstanding());
+        assertEquals(1, registry.get("ib.buffer.pool.leaks").functionCounter().count());
+    }
+
+    private void acquireAndDrop() {
+        pool.acquire(1024).buffer().put(0, (byte) 1);
+    }
+}
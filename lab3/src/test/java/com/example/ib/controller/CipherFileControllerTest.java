@@ -0,0 +1,131 @@
+package com.example.ib.controller;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeyScheduleCache;
+import com.example.ib.crypto.MagmaKeystreamPool;
+import com.example.ib.crypto.mode.BlockModes;
+import com.example.ib.metrics.CryptoMetrics;
+import com.example.ib.service.EncryptedFileStorageService;
+import com.example.ib.service.MagmaFileCipherService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CipherFileControllerTest {
+
+    private static final byte[] KEY = new byte[32];
+    private static final byte[] PLAIN = new byte[1000];
+    private static final long COUNTER = 0x0102030405060708L;
+
+    static {
+        Random random = new Random(13);
+        random.nextBytes(KEY);
+        random.nextBytes(PLAIN);
+    }
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MagmaKeyScheduleCache keyScheduleCache = new MagmaKeyScheduleCache(0, Duration.ZERO);
+    private final MagmaCtrCipher ctrCipher = new MagmaCtrCipher(keyScheduleCache);
+    private final MagmaKeystreamPool keystreamPool = new MagmaKeystreamPool(false, 64, 2, 4, 1, keyScheduleCache, registry);
+    private final BlockModes blockModes = new BlockModes();
+
+    @AfterEach
+    void shutdown() {
+        keystreamPool.shutdown();
+        blockModes.shutdown();
+    }
+
+    @Test
+    void withoutRangeWholeFileIsReturned() throws IOException {
+        CipherFileController controller = controller(CipherAlgorithm.MAGMA);
+
+        ResponseEntity<StreamingResponseBody> response = decrypt(controller, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(PLAIN.length, response.getHeaders().getContentLength());
+        assertArrayEquals(PLAIN, body(response));
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws IOException {
+        for (CipherAlgorithm algorithm : CipherAlgorithm.values()) {
+            CipherFileController controller = controller(algorithm);
+            // {заголовок Range, начало, конец}: явный, открытый, суффиксный и выходящий за конец файла
+            Object[][] cases = {
+                    {"bytes=13-700", 13, 700},
+                    {"bytes=990-", 990, 999},
+                    {"bytes=-5", 995, 999},
+                    {"bytes=997-5000", 997, 999},
+                    {"bytes=0-0", 0, 0}
+            };
+            for (Object[] range : cases) {
+                int start = (int) range[1];
+                int end = (int) range[2];
+                ResponseEntity<StreamingResponseBody> response = decrypt(controller, algorithm.getId(), (String) range[0]);
+
+                String message = algorithm + " " + range[0];
+                assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode(), message);
+                assertEquals("bytes " + start + "-" + end + "/" + PLAIN.length,
+                        response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE), message);
+                assertEquals(end - start + 1, response.getHeaders().getContentLength(), message);
+                assertArrayEquals(Arrays.copyOfRange(PLAIN, start, end + 1), body(response), message);
+            }
+        }
+    }
+
+    @Test
+    void unsatisfiableRangeIs416() throws IOException {
+        CipherFileController controller = controller(CipherAlgorithm.MAGMA);
+        for (String range : new String[]{"bytes=1000-", "bytes=5000-6000", "bytes=0-1,5-6", "bytes=abc", "items=0-1"}) {
+            ResponseEntity<StreamingResponseBody> response = decrypt(controller, null, range);
+
+            assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode(), range);
+            assertEquals("bytes */" + PLAIN.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE), range);
+            assertNull(response.getBody(), range);
+        }
+    }
+
+    private CipherFileController controller(CipherAlgorithm algorithm) throws IOException {
+        Files.write(directory.resolve("data.enc"), ctrCipher.process(PLAIN, KEY, COUNTER, 0, algorithm));
+        EncryptedFileStorageService storage = new EncryptedFileStorageService(directory.toString(), ctrCipher);
+        MagmaFileCipherService cipherService = new MagmaFileCipherService(ctrCipher, keystreamPool, blockModes,
+                new CryptoMetrics(registry));
+        return new CipherFileController(storage, cipherService);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> decrypt(CipherFileController controller, String algorithm,
+                                                                 String range) throws IOException {
+        return controller.decrypt("data.enc", HexFormat.of().formatHex(KEY), HexFormat.of().toHexDigits(COUNTER),
+                algorithm, range);
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class KuznyechikCipherTest {
+
+    // ГОСТ Р 34.12-2018, приложение А.1
+    private static final byte[] KEY = HexFormat.of().parseHex(
+            "8899aabbccddeeff0011223344556677fedcba98765432100123456789abcdef");
+    private static final byte[] PLAINTEXT = HexFormat.of().parseHex("1122334455667700ffeeddccbbaa9988");
+    private static final byte[] CIPHERTEXT = HexFormat.of().parseHex("7f679d90bebc24305a468d42b9d4edcd");
+
+    private final KuznyechikCipher cipher = new KuznyechikCipher(KEY);
+
+    @Test
+    void encryptsStandardBlock() {
+        byte[] out = new byte[KuznyechikCipher.BLOCK_SIZE];
+        cipher.encryptBlock(PLAINTEXT, 0, out, 0);
+        assertArrayEquals(CIPHERTEXT, out);
+    }
+
+    @Test
+    void decryptsStandardBlockInPlace() {
+        byte[] data = CIPHERTEXT.clone();
+        cipher.decryptBlock(data, 0, data, 0);
+        assertArrayEquals(PLAINTEXT, data);
+    }
+
+    @Test
+    void keystreamEncryptsCounterBlocksWithCarry() {
+        long counter = 0x1234567890ABCEF0L;
+        long blockIndex = -2L; // младшая половина переполняется на третьем блоке
+        byte[] keystream = new byte[4 * KuznyechikCipher.BLOCK_SIZE];
+        cipher.keystream(counter, blockIndex, 4, keystream, 0);
+
+        byte[] expected = new byte[keystream.length];
+        for (int i = 0; i < 4; i++) {
+            long lo = blockIndex + i;
+            long hi = Long.compareUnsigned(lo, blockIndex) < 0 ? counter + 1 : counter;
+            byte[] block = HexFormat.of().parseHex(String.format("%016x%016x", hi, lo));
+            cipher.encryptBlock(block, 0, expected, i * KuznyechikCipher.BLOCK_SIZE);
+        }
+        assertArrayEquals(expected, keystream);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MagmaCipherTest {
+
+    private final MagmaCipher magmaCipher = new MagmaCipher();
+    private final int[] roundKeys = magmaCipher.expandKey(randomKey());
+
+    @Test
+    void encryptBlocksMatchesSingleBlockEncryption() {
+        // 0..9 блоков: пустой вызов, только хвост, полные группы по четыре и группы с хвостом
+        for (int count = 0; count < 10; count++) {
+            for (long start : new long[]{0, 0x0123456789ABCDEFL, 0xFFFFFFFFL}) {
+                assertArrayEquals(expected(start, count, 3), actual(start, count, 3),
+                        "start " + Long.toHexString(start) + ", count " + count);
+            }
+        }
+    }
+
+    @Test
+    void counterWrapsModulo2To64() {
+        long start = -3L; // FFFFFFFFFFFFFFFD: четвёрка блоков переходит через ноль
+        assertArrayEquals(expected(start, 9, 0), actual(start, 9, 0));
+    }
+
+    @Test
+    void encryptBlocksRejectsShortOutput() {
+        assertThrows(IllegalArgumentException.class,
+                () -> magmaCipher.encryptBlocks(0, 3, new byte[3 * MagmaCipher.BLOCK_SIZE - 1], 0, roundKeys));
+        assertThrows(IllegalArgumentException.class,
+                () -> magmaCipher.encryptBlocks(0, 1, new byte[MagmaCipher.BLOCK_SIZE], 1, roundKeys));
+    }
+
+    private byte[] expected(long start, int count, int outOff) {
+        byte[] out = new byte[outOff + count * MagmaCipher.BLOCK_SIZE];
+        byte[] block = new byte[MagmaCipher.BLOCK_SIZE];
+        for (int i = 0; i < count; i++) {
+            long counter = start + i;
+            for (int j = 0; j < MagmaCipher.BLOCK_SIZE; j++) {
+                block[j] = (byte) (counter >>> (56 - 8 * j));
+            }
+            magmaCipher.encryptBlock(block, 0, out, outOff + i * MagmaCipher.BLOCK_SIZE, roundKeys);
+        }
+        return out;
+    }
+
+    private byte[] actual(long start, int count, int outOff) {
+        byte[] out = new byte[outOff + count * MagmaCipher.BLOCK_SIZE];
+        magmaCipher.encryptBlocks(start, count, out, outOff, roundKeys);
+        return out;
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[MagmaCipher.KEY_SIZE];
+        new Random(7).nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MagmaCtrCipherTest {
+
+    private static final byte[] KEY = new byte[32];
+    private static final byte[] DATA = new byte[1000];
+    // смещения внутри блока, на границах 8- и 16-байтных блоков и у конца потока
+    private static final int[] OFFSETS = {0, 1, 7, 8, 9, 15, 16, 17, 333, 992, 999};
+    private static final int[] LENGTHS = {1, 5, 8, 16, 31, 100, 1000};
+    // последний вариант проверяет перенос счётчика через 2^64
+    private static final long[] COUNTERS = {0, 0x123456789abcdef0L, -3L};
+
+    static {
+        Random random = new Random(5);
+        random.nextBytes(KEY);
+        random.nextBytes(DATA);
+    }
+
+    private final MagmaCtrCipher cipher = new MagmaCtrCipher(new MagmaKeyScheduleCache(0, Duration.ZERO));
+
+    @Test
+    void unalignedSlicesMatchFullStream() {
+        for (CipherAlgorithm algorithm : CipherAlgorithm.values()) {
+            for (long counter : COUNTERS) {
+                byte[] full = cipher.process(DATA, KEY, counter, 0, algorithm);
+                assertFalse(Arrays.equals(DATA, full));
+                for (int offset : OFFSETS) {
+                    for (int length : LENGTHS) {
+                        int end = Math.min(DATA.length, offset + length);
+                        byte[] slice = cipher.process(Arrays.copyOfRange(DATA, offset, end), KEY, counter, offset,
+                                algorithm);
+                        assertArrayEquals(Arrays.copyOfRange(full, offset, end), slice,
+                                algorithm + ", counter " + counter + ", bytes " + offset + ".." + end);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void sliceDecryptsSliceOfCiphertext() {
+        for (CipherAlgorithm algorithm : CipherAlgorithm.values()) {
+            byte[] encrypted = cipher.process(DATA, KEY, 42, 0, algorithm);
+            byte[] part = cipher.process(Arrays.copyOfRange(encrypted, 13, 611), KEY, 42, 13, algorithm);
+            assertArrayEquals(Arrays.copyOfRange(DATA, 13, 611), part, algorithm.toString());
+        }
+    }
+
+    @Test
+    void directBufferIsTransformedInPlaceLikeArray() {
+        for (CipherAlgorithm algorithm : CipherAlgorithm.values()) {
+            byte[] full = cipher.process(DATA, KEY, -3L, 0, algorithm);
+            BlockCipher blockCipher = cipher.newCipher(algorithm, KEY);
+            for (int offset : OFFSETS) {
+                // участок буфера со сдвигом относительно его начала: позиция и limit не должны меняться
+                ByteBuffer buffer = ByteBuffer.allocateDirect(DATA.length + 3);
+                buffer.position(3).put(DATA, offset, DATA.length - offset).flip().position(3);
+                cipher.transform(blockCipher, -3L, offset, buffer);
+
+                assertEquals(3, buffer.position());
+                byte[] result = new byte[buffer.remaining()];
+                buffer.get(result);
+                assertArrayEquals(Arrays.copyOfRange(full, offset, DATA.length), result, algorithm + ", offset " + offset);
+            }
+            blockCipher.destroy();
+        }
+    }
+
+    @Test
+    void overloadWithoutAlgorithmIsMagma() {
+        assertArrayEquals(cipher.process(DATA, KEY, 7, 0, CipherAlgorithm.MAGMA), cipher.process(DATA, KEY, 7));
+        assertArrayEquals(cipher.process(DATA, KEY, 7, 21, CipherAlgorithm.MAGMA), cipher.process(DATA, KEY, 7, 21));
+    }
+}
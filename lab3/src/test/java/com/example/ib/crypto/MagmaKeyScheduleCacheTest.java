@@ -0,0 +1,46 @@
+package com.example.ib.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MagmaKeyScheduleCacheTest {
+
+    private final MagmaCipher magmaCipher = new MagmaCipher();
+
+    @Test
+    void expiredEntriesAreRemovedOnNextPut() throws InterruptedException {
+        MagmaKeyScheduleCache cache = new MagmaKeyScheduleCache(8, Duration.ofMillis(50));
+        cache.roundKeys(key(1));
+        cache.roundKeys(key(2));
+        assertEquals(2, cache.size());
+
+        Thread.sleep(80);
+        // к устаревшим ключам больше не обращаются, их раундовые ключи затираются при добавлении нового
+        assertArrayEquals(magmaCipher.expandKey(key(3)), cache.roundKeys(key(3)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void liveEntriesSurvivePutAndOverflowIsEvicted() {
+        MagmaKeyScheduleCache cache = new MagmaKeyScheduleCache(2, Duration.ofMinutes(10));
+        for (int i = 1; i <= 3; i++) {
+            assertArrayEquals(magmaCipher.expandKey(key(i)), cache.roundKeys(key(i)));
+        }
+        assertEquals(2, cache.size());
+        int[] cached = cache.roundKeys(key(3));
+        cached[0] = 0; // копия, запись в кэше не меняется
+        assertArrayEquals(magmaCipher.expandKey(key(3)), cache.roundKeys(key(3)));
+    }
+
+    private static byte[] key(int seed) {
+        byte[] key = new byte[MagmaCipher.KEY_SIZE];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (seed * 31 + i);
+        }
+        return key;
+    }
+}
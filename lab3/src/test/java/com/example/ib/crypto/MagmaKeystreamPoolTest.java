@@ -0,0 +1,96 @@
+package com.example.ib.crypto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MagmaKeystreamPoolTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    private final MagmaKeyScheduleCache keyScheduleCache = new MagmaKeyScheduleCache(0, Duration.ZERO);
+    private final byte[] first = key(1);
+    private final byte[] second = key(2);
+
+    @Test
+    void rangesStayDisjointAcrossEviction() {
+        // один ключ в пуле: каждое обращение ко второму ключу вытесняет первый
+        MagmaKeystreamPool pool = pool(true, 1);
+        List<long[]> ranges = new ArrayList<>();
+        try {
+            for (int round = 0; round < 20; round++) {
+                for (byte[] key : new byte[][]{first, second}) {
+                    long length = 1 + round * 100L;
+                    long counter = pool.reserve(key, length);
+                    ranges.add(new long[]{counter, counter + (length + 7) / 8});
+                    byte[] out = new byte[64];
+                    counter = pool.encrypt(key, new byte[64], out);
+                    ranges.add(new long[]{counter, counter + 8});
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue(ranges.get(i)[0] < 0, "счётчик пула из старшей половины");
+            for (int j = i + 1; j < ranges.size(); j++) {
+                long[] a = ranges.get(i);
+                long[] b = ranges.get(j);
+                assertFalse(a[0] < b[1] && b[0] < a[1], "диапазоны " + i + " и " + j + " пересекаются");
+            }
+        }
+    }
+
+    @Test
+    void pooledCiphertextDecryptsWithAssignedCounter() {
+        MagmaKeystreamPool pool = pool(true, 4);
+        MagmaCtrCipher ctrCipher = new MagmaCtrCipher(keyScheduleCache);
+        byte[] message = new byte[1000];
+        new Random(9).nextBytes(message);
+        try {
+            for (int i = 0; i < 5; i++) {
+                byte[] ciphertext = new byte[message.length];
+                long counter = pool.encrypt(first, message, ciphertext);
+                assertArrayEquals(message, ctrCipher.process(ciphertext, first, counter));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void callerCountersMustStayBelowPoolHalf() {
+        MagmaKeystreamPool pool = pool(true, 4);
+        try {
+            assertDoesNotThrow(() -> pool.checkCallerCounter(0, 1024));
+            assertDoesNotThrow(() -> pool.checkCallerCounter(Long.MAX_VALUE - 127, 1024));
+            assertThrows(IllegalArgumentException.class, () -> pool.checkCallerCounter(Long.MAX_VALUE - 126, 1024));
+            assertThrows(IllegalArgumentException.class, () -> pool.checkCallerCounter(Long.MIN_VALUE, 1));
+            assertThrows(IllegalArgumentException.class, () -> pool.checkCallerCounter(-1, 1));
+        } finally {
+            pool.shutdown();
+        }
+        // без пула счётчики не назначаются и пользователь может задать любой
+        assertDoesNotThrow(() -> pool(false, 4).checkCallerCounter(-1, 1024));
+    }
+
+    private MagmaKeystreamPool pool(boolean enabled, int maxKeys) {
+        return new MagmaKeystreamPool(enabled, SEGMENT_SIZE, 2, maxKeys, 1, keyScheduleCache, new SimpleMeterRegistry());
+    }
+
+    private static byte[] key(int seed) {
+        byte[] key = new byte[MagmaCipher.KEY_SIZE];
+        new Random(seed).nextBytes(key);
+        return key;
+    }
+}
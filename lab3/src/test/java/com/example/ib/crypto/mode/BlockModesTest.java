@@ -0,0 +1,129 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.KuznyechikCipher;
+import com.example.ib.crypto.MagmaBlockCipher;
+import com.example.ib.crypto.MagmaCipher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockModesTest {
+
+    // ГОСТ Р 34.13-2018, приложение А.1: ключ, открытый текст P1..P4 и синхропосылки для «Кузнечика»
+    private static final byte[] KEY = hex("8899aabbccddeeff0011223344556677fedcba98765432100123456789abcdef");
+    private static final byte[] PLAINTEXT = hex("1122334455667700ffeeddccbbaa9988"
+            + "00112233445566778899aabbcceeff0a"
+            + "112233445566778899aabbcceeff0a00"
+            + "2233445566778899aabbcceeff0a0011");
+    private static final byte[] CTR_IV = hex("1234567890abcef0");
+    private static final byte[] REGISTER_IV = hex("1234567890abcef0a1b2c3d4e5f00112");
+    // длины: пустой вход, неполный блок, ровно блок, несколько сегментов (параллельная обработка)
+    private static final int[] LENGTHS = {0, 1, 15, 16, 17, 1000, 2 * AbstractStreamMode.SEGMENT_BYTES + 5};
+
+    private final BlockModes modes = new BlockModes();
+    private final BlockCipher kuznyechik = new KuznyechikCipher(KEY);
+
+    @AfterEach
+    void shutdown() {
+        modes.shutdown();
+    }
+
+    @Test
+    void ctrMatchesStandardExample() {
+        assertEquals("f195d8bec10ed1dbd57b5fa240bda1b8"
+                        + "85eee733f6a13e5df33ce4b33c45dee4"
+                        + "a5eae88be6356ed3d5e877f13564a3a5"
+                        + "cb91fab1f20cbab6d1c6d15820bdba73",
+                HexFormat.of().formatHex(encrypt(BlockMode.CTR, kuznyechik, CTR_IV, PLAINTEXT)));
+    }
+
+    /**
+     * В примерах стандарта для CBC, CFB и OFB регистр вдвое длиннее блока, здесь он равен блоку;
+     * с первой половиной синхропосылки стандарта совпадает только первый блок шифртекста.
+     */
+    @Test
+    void registerModesMatchFirstStandardBlock() {
+        assertFirstBlock("689972d4a085fa4d90e52e3d6d7dcc27", BlockMode.CBC);
+        assertFirstBlock("81800a59b1842b24ff1f795e897abd95", BlockMode.CFB);
+        assertFirstBlock("81800a59b1842b24ff1f795e897abd95", BlockMode.OFB);
+    }
+
+    @Test
+    void modesRoundTripForBothCiphers() {
+        BlockCipher magma = new MagmaBlockCipher(new MagmaCipher().expandKey(Arrays.copyOf(KEY, MagmaCipher.KEY_SIZE)));
+        Random random = new Random(17);
+        for (BlockMode mode : new BlockMode[]{BlockMode.CTR, BlockMode.CBC, BlockMode.CFB, BlockMode.OFB}) {
+            for (BlockCipher cipher : new BlockCipher[]{kuznyechik, magma}) {
+                byte[] iv = new byte[modes.get(mode).ivLength(cipher.getBlockSize())];
+                random.nextBytes(iv);
+                for (int length : LENGTHS) {
+                    byte[] message = new byte[length];
+                    random.nextBytes(message);
+                    String label = mode + ", блок " + cipher.getBlockSize() + ", длина " + length;
+                    assertArrayEquals(message, decrypt(mode, cipher, iv, encrypt(mode, cipher, iv, message)), label);
+                    assertArrayEquals(message, decryptDirect(mode, cipher, iv, encrypt(mode, cipher, iv, message)), label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cbcFailuresAreIndistinguishable() {
+        byte[] badLength = Arrays.copyOf(encrypt(BlockMode.CBC, kuznyechik, REGISTER_IV, PLAINTEXT), 40);
+        // блок, который расшифровывается в 01 01 .. 01: маркера дополнения 80 нет
+        byte[] badPadding = new byte[KuznyechikCipher.BLOCK_SIZE];
+        for (int i = 0; i < badPadding.length; i++) {
+            badPadding[i] = (byte) (REGISTER_IV[i] ^ 1);
+        }
+        kuznyechik.encryptBlock(badPadding, 0, badPadding, 0);
+
+        String lengthError = assertThrows(IllegalArgumentException.class,
+                () -> decrypt(BlockMode.CBC, kuznyechik, REGISTER_IV, badLength)).getMessage();
+        String paddingError = assertThrows(IllegalArgumentException.class,
+                () -> decrypt(BlockMode.CBC, kuznyechik, REGISTER_IV, badPadding)).getMessage();
+        assertEquals(lengthError, paddingError);
+    }
+
+    private void assertFirstBlock(String expected, BlockMode mode) {
+        byte[] ciphertext = encrypt(mode, kuznyechik, REGISTER_IV, PLAINTEXT);
+        assertEquals(expected, HexFormat.of().formatHex(ciphertext, 0, KuznyechikCipher.BLOCK_SIZE), mode.getId());
+    }
+
+    private byte[] encrypt(BlockMode mode, BlockCipher cipher, byte[] iv, byte[] message) {
+        StreamMode streamMode = modes.get(mode);
+        ByteBuffer out = ByteBuffer.allocate(streamMode.outputLength(cipher.getBlockSize(), message.length, true));
+        streamMode.encrypt(cipher, iv, ByteBuffer.wrap(message), out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private byte[] decrypt(BlockMode mode, BlockCipher cipher, byte[] iv, byte[] ciphertext) {
+        StreamMode streamMode = modes.get(mode);
+        ByteBuffer out = ByteBuffer.allocate(streamMode.outputLength(cipher.getBlockSize(), ciphertext.length, false));
+        streamMode.decrypt(cipher, iv, ByteBuffer.wrap(ciphertext), out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /** Расшифрование из прямого буфера в прямой: ветка с временными массивами. */
+    private byte[] decryptDirect(BlockMode mode, BlockCipher cipher, byte[] iv, byte[] ciphertext) {
+        StreamMode streamMode = modes.get(mode);
+        ByteBuffer in = ByteBuffer.allocateDirect(ciphertext.length).put(ciphertext).flip();
+        ByteBuffer out = ByteBuffer.allocateDirect(streamMode.outputLength(cipher.getBlockSize(), ciphertext.length, false));
+        streamMode.decrypt(cipher, iv, in, out);
+        byte[] result = new byte[out.flip().remaining()];
+        out.get(result);
+        return result;
+    }
+
+    private static byte[] hex(String value) {
+        return HexFormat.of().parseHex(value);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.ib.crypto.mode;
+
+import com.example.ib.crypto.BlockCipher;
+import com.example.ib.crypto.KuznyechikCipher;
+import com.example.ib.crypto.MagmaBlockCipher;
+import com.example.ib.crypto.MagmaCipher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MgmModeTest {
+
+    // Р 1323565.1.026-2019, пример для «Кузнечика» (он же RFC 9058, приложение A)
+    private static final byte[] KEY = hex("8899aabbccddeeff0011223344556677fedcba98765432100123456789abcdef");
+    private static final byte[] NONCE = hex("1122334455667700ffeeddccbbaa9988");
+    private static final byte[] AAD = hex("0202020202020202010101010101010104040404040404040303030303030303"
+            + "ea0505050505050505");
+    private static final byte[] PLAINTEXT = hex("1122334455667700ffeeddccbbaa9988"
+            + "00112233445566778899aabbcceeff0a"
+            + "112233445566778899aabbcceeff0a00"
+            + "2233445566778899aabbcceeff0a0011"
+            + "aabbcc");
+    private static final String CIPHERTEXT = "a9757b8147956e9055b8a33de89f42fc"
+            + "8075d2212bf9fd5bd3f7069aadc16b39"
+            + "497ab15915a6ba85936b5d0ea9f6851c"
+            + "c60c14d4d3f883d0ab94420695c76deb"
+            + "2c7552";
+    private static final String TAG = "cf5d656f40c34f5c46e8bb0e29fcdb4c";
+    // Входные данные примера для «Магмы» из того же документа. Ожидаемые значения получены этой
+    // реализацией: MagmaCipher применяет S-блоки в обратном по отношению к ГОСТ Р 34.12-2015
+    // порядке тетрад, поэтому шифртекст и имитовставка не совпадают с опубликованными в стандарте.
+    private static final byte[] MAGMA_NONCE = hex("12def06b3c130a59");
+    private static final byte[] MAGMA_AAD = hex("0101010101010101020202020202020203030303030303030404040404040404"
+            + "0505050505050505ea");
+    private static final byte[] MAGMA_PLAINTEXT = hex("ffeeddccbbaa998811223344556677008899aabbcceeff0a"
+            + "001122334455667799aabbcceeff0a001122334455667788"
+            + "aabbcceeff0a00112233445566778899aabbcc");
+    private static final String MAGMA_CIPHERTEXT = "ccca40b44a766a588922083886f030a79870692767f711bb"
+            + "806632a84cbed7109a28e27dae0fd4fe54bd0de36d1beaab"
+            + "dc14df17877e9e1167882d320fc16a39430d01";
+    private static final String MAGMA_TAG = "719dd275e8199218";
+    // последовательный путь, гамма параллельно с имитовставкой и несколько сегментов
+    private static final int[] LENGTHS = {0, 1, 16, 67, 10_000, 2 * AbstractStreamMode.SEGMENT_BYTES + 3};
+
+    private final BlockModes modes = new BlockModes();
+    private final MgmMode mgm = modes.mgm();
+    private final BlockCipher kuznyechik = new KuznyechikCipher(KEY);
+
+    @AfterEach
+    void shutdown() {
+        modes.shutdown();
+    }
+
+    @Test
+    void encryptsStandardExample() {
+        assertEquals(CIPHERTEXT + TAG, HexFormat.of().formatHex(encrypt(kuznyechik, NONCE, AAD, PLAINTEXT)));
+    }
+
+    @Test
+    void decryptsStandardExample() {
+        assertArrayEquals(PLAINTEXT, decrypt(kuznyechik, NONCE, AAD, hex(CIPHERTEXT + TAG)));
+    }
+
+    @Test
+    void magmaMatchesPinnedExample() {
+        BlockCipher magma = new MagmaBlockCipher(new MagmaCipher().expandKey(KEY));
+        byte[] sealed = hex(MAGMA_CIPHERTEXT + MAGMA_TAG);
+
+        assertEquals(MAGMA_CIPHERTEXT + MAGMA_TAG,
+                HexFormat.of().formatHex(encrypt(magma, MAGMA_NONCE, MAGMA_AAD, MAGMA_PLAINTEXT)));
+        assertArrayEquals(MAGMA_PLAINTEXT, decrypt(magma, MAGMA_NONCE, MAGMA_AAD, sealed));
+    }
+
+    @Test
+    void roundTripsForBothCiphers() {
+        BlockCipher magma = new MagmaBlockCipher(new MagmaCipher().expandKey(KEY));
+        Random random = new Random(23);
+        for (BlockCipher cipher : new BlockCipher[]{kuznyechik, magma}) {
+            byte[] nonce = new byte[cipher.getBlockSize()];
+            random.nextBytes(nonce);
+            nonce[0] &= 0x7F;
+            for (int length : LENGTHS) {
+                byte[] message = new byte[length];
+                random.nextBytes(message);
+                assertArrayEquals(message, decrypt(cipher, nonce, AAD, encrypt(cipher, nonce, AAD, message)),
+                        "блок " + cipher.getBlockSize() + ", длина " + length);
+            }
+        }
+    }
+
+    @Test
+    void rejectsTamperingWithoutWritingPlaintext() {
+        for (int length : LENGTHS) {
+            byte[] message = new byte[length];
+            new Random(length).nextBytes(message);
+            byte[] sealed = encrypt(kuznyechik, NONCE, AAD, message);
+            // искажение шифртекста (если он есть), последнего бита имитовставки и ассоциированных данных
+            for (int position : new int[]{0, sealed.length - 1}) {
+                byte[] tampered = sealed.clone();
+                tampered[position] ^= 1;
+                assertRejected(NONCE, AAD, tampered);
+            }
+            byte[] aad = AAD.clone();
+            aad[aad.length - 1] ^= 1;
+            assertRejected(NONCE, aad, sealed);
+            assertRejected(NONCE, AAD, Arrays.copyOf(sealed, sealed.length - 1));
+        }
+    }
+
+    @Test
+    void rejectsNonceWithHighBitSet() {
+        byte[] nonce = NONCE.clone();
+        nonce[0] |= (byte) 0x80;
+        assertThrows(IllegalArgumentException.class, () -> encrypt(kuznyechik, nonce, AAD, PLAINTEXT));
+    }
+
+    private void assertRejected(byte[] nonce, byte[] aad, byte[] sealed) {
+        ByteBuffer out = ByteBuffer.allocate(sealed.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> mgm.decrypt(kuznyechik, nonce, aad, ByteBuffer.wrap(sealed), out));
+        assertEquals(0, out.position());
+        assertArrayEquals(new byte[sealed.length], out.array());
+    }
+
+    private byte[] encrypt(BlockCipher cipher, byte[] nonce, byte[] aad, byte[] message) {
+        ByteBuffer out = ByteBuffer.allocate(mgm.outputLength(cipher.getBlockSize(), message.length, true));
+        mgm.encrypt(cipher, nonce, aad, ByteBuffer.wrap(message), out);
+        return out.array();
+    }
+
+    private byte[] decrypt(BlockCipher cipher, byte[] nonce, byte[] aad, byte[] sealed) {
+        ByteBuffer out = ByteBuffer.allocate(mgm.outputLength(cipher.getBlockSize(), sealed.length, false));
+        mgm.decrypt(cipher, nonce, aad, ByteBuffer.wrap(sealed), out);
+        return out.array();
+    }
+
+    private static byte[] hex(String value) {
+        return HexFormat.of().parseHex(value);
+    }
+}
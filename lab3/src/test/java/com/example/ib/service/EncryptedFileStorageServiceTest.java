@@ -0,0 +1,99 @@
+package com.example.ib.service;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeyScheduleCache;
+import com.example.ib.service.EncryptedFileStorageService.StoredFile;
+import com.example.ib.service.EncryptedFileStorageService.StoredFileExistsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EncryptedFileStorageServiceTest {
+
+    private static final byte[] KEY = new byte[32];
+
+    @TempDir
+    Path directory;
+
+    private final MagmaCtrCipher cipher = new MagmaCtrCipher(new MagmaKeyScheduleCache(0, Duration.ZERO));
+
+    @Test
+    void existingFileIsReplacedOnlyOnRequest() throws IOException {
+        EncryptedFileStorageService storage = storage();
+        storage.store(upload(new byte[]{1, 2, 3}), "data.bin", false);
+
+        assertThrows(StoredFileExistsException.class, () -> storage.store(upload(new byte[]{4, 5}), "data.bin", false));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(directory.resolve("data.bin")));
+
+        assertEquals(new StoredFile("data.bin", 2), storage.store(upload(new byte[]{4, 5}), "data.bin", true));
+        assertArrayEquals(new byte[]{4, 5}, Files.readAllBytes(directory.resolve("data.bin")));
+        assertEquals(List.of("data.bin"), files());
+    }
+
+    @Test
+    void uploadNamedLikeTempFileIsStoredSeparately() throws IOException {
+        EncryptedFileStorageService storage = storage();
+        storage.store(upload(new byte[]{1}), "data.bin", false);
+        storage.store(upload(new byte[]{2}), "data.bin.upload", false);
+
+        assertArrayEquals(new byte[]{1}, Files.readAllBytes(directory.resolve("data.bin")));
+        assertArrayEquals(new byte[]{2}, Files.readAllBytes(directory.resolve("data.bin.upload")));
+        assertEquals(List.of("data.bin", "data.bin.upload"), files());
+    }
+
+    @Test
+    void interruptedUploadsAreRemovedOnStart() throws IOException {
+        Files.write(directory.resolve(".upload-123.tmp"), new byte[10]);
+        Files.write(directory.resolve("kept.bin"), new byte[10]);
+
+        storage();
+
+        assertEquals(List.of("kept.bin"), files());
+    }
+
+    @Test
+    void decryptedRangeMatchesSliceOfPlaintext() throws IOException {
+        byte[] plain = new byte[5000];
+        new Random(9).nextBytes(plain);
+        EncryptedFileStorageService storage = storage();
+        for (CipherAlgorithm algorithm : CipherAlgorithm.values()) {
+            String name = algorithm.getId() + ".enc";
+            storage.store(upload(cipher.process(plain, KEY, 77, 0, algorithm)), name, false);
+            for (long[] range : new long[][]{{0, 4999}, {3, 3}, {13, 4110}, {4096, 4999}}) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                storage.decryptRange(name, KEY, 77, algorithm, range[0], range[1], output);
+                assertArrayEquals(Arrays.copyOfRange(plain, (int) range[0], (int) range[1] + 1), output.toByteArray(),
+                        algorithm + " " + range[0] + "-" + range[1]);
+            }
+        }
+    }
+
+    private EncryptedFileStorageService storage() throws IOException {
+        return new EncryptedFileStorageService(directory.toString(), cipher);
+    }
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "upload.bin", "application/octet-stream", content);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ib.storage;
+
+import com.example.ib.crypto.CipherAlgorithm;
+import com.example.ib.crypto.MagmaCtrCipher;
+import com.example.ib.crypto.MagmaKeyScheduleCache;
+import com.example.ib.crypto.mode.BlockModes;
+import com.example.ib.metrics.CryptoMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncryptedObjectStoreTest {
+
+    private static final int SEGMENT_SIZE = 64;
+    private static final byte[] KEY = new byte[32];
+
+    @TempDir
+    Path directory;
+
+    private final BlockModes blockModes = new BlockModes();
+
+    @AfterEach
+    void shutdown() {
+        blockModes.shutdown();
+    }
+
+    @Test
+    void readerHoldingReplacedIndexStillReadsOldVersion() throws IOException {
+        EncryptedObjectStore store = store(Duration.ofHours(1));
+        byte[] first = payload(1, 300);
+        store.store("report", new ByteArrayInputStream(first), KEY, CipherAlgorithm.KUZNYECHIK);
+        SegmentIndex old = store.index("report");
+
+        store.store("report", new ByteArrayInputStream(payload(2, 500)), KEY, CipherAlgorithm.KUZNYECHIK);
+
+        assertArrayEquals(first, read(store, "report", old));
+        assertEquals(2, dataFiles());
+    }
+
+    @Test
+    void replacedDataIsDeletedAfterGracePeriod() throws IOException {
+        EncryptedObjectStore store = store(Duration.ZERO);
+        byte[] latest = payload(3, 100);
+        for (int i = 0; i < 3; i++) {
+            store.store("report", new ByteArrayInputStream(i == 2 ? latest : payload(i, 100)), KEY, CipherAlgorithm.MAGMA);
+        }
+        assertEquals(1, dataFiles());
+        assertArrayEquals(latest, read(store, "report", store.index("report")));
+    }
+
+    @Test
+    void concurrentStoresToOneNameLeaveSingleDataFile() throws Exception {
+        EncryptedObjectStore store = store(Duration.ZERO);
+        List<byte[]> payloads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            payloads.add(payload(10 + i, 1000 + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (byte[] payload : payloads) {
+                pending.add(executor.submit(() ->
+                        store.store("shared", new ByteArrayInputStream(payload), KEY, CipherAlgorithm.KUZNYECHIK)));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, dataFiles());
+        byte[] stored = read(store, "shared", store.index("shared"));
+        assertTrue(payloads.stream().anyMatch(payload -> Arrays.equals(payload, stored)));
+    }
+
+    @Test
+    void startupRemovesDataFilesWithoutIndex() throws IOException {
+        EncryptedObjectStore store = store(Duration.ofHours(1));
+        store.store("report", new ByteArrayInputStream(payload(4, 100)), KEY, CipherAlgorithm.MAGMA);
+        store.store("report", new ByteArrayInputStream(payload(5, 100)), KEY, CipherAlgorithm.MAGMA);
+        Files.write(directory.resolve("lost." + "ab".repeat(SegmentIndex.OBJECT_ID_LENGTH) + ".seg"), new byte[10]);
+        assertEquals(3, dataFiles());
+
+        EncryptedObjectStore restarted = store(Duration.ofHours(1));
+
+        assertEquals(1, dataFiles());
+        assertEquals(100, read(restarted, "report", restarted.index("report")).length);
+    }
+
+    private EncryptedObjectStore store(Duration retiredGrace) throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MagmaKeyScheduleCache keyScheduleCache = new MagmaKeyScheduleCache(0, Duration.ZERO);
+        return new EncryptedObjectStore(directory.toString(), SEGMENT_SIZE, retiredGrace,
+                new MagmaCtrCipher(keyScheduleCache), keyScheduleCache, blockModes,
+                new SegmentCache(DataSize.ofKilobytes(64), registry), new CryptoMetrics(registry));
+    }
+
+    private static byte[] read(EncryptedObjectStore store, String name, SegmentIndex index) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.readRange(name, index, KEY, 0, index.size() - 1, output);
+        return output.toByteArray();
+    }
+
+    private long dataFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static byte[] payload(int seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+# Сравнение холодного запуска с архивом AppCDS и без него.
+#
+#   (cd lab3 && mvn -Pcds -DskipTests package)
+#   scripts/cds-benchmark.sh lab3 [число запусков]
+#
+# Оба варианта запускают один и тот же распакованный jar из <lab>/target/cds (из этого каталога,
+# как того требует архив), отличаются только флагом -XX:SharedArchiveFile. Время запуска - от старта
+# процесса до первого HTTP-ответа /actuator/health. БД lab1 лежит во временном каталоге, ключи DES
+# фиктивные: первый запуск создаёт и при остановке шифрует БД, следующие включают её расшифровку.
+set -euo pipefail
+
+if [ $# -lt 1 ]; then
+    echo "usage: $0 lab1|lab2|lab3 [runs]" >&2
+    exit 2
+fi
+LAB=$1
+RUNS=${2:-5}
+PORT=${PORT:-18091}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+CDS_DIR="$ROOT/$LAB/target/cds"
+JAR=$(find "$CDS_DIR" -maxdepth 1 -name '*.jar' -printf '%f\n' 2>/dev/null | head -n 1)
+if [ -z "$JAR" ] || [ ! -f "$CDS_DIR/application.jsa" ]; then
+    echo "Нет $CDS_DIR/*.jar или application.jsa: соберите $LAB с профилем cds (mvn -Pcds -DskipTests package)" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+trap 'kill "${APP_PID:-}" 2>/dev/null || true; rm -rf "$WORK"' EXIT
+APP_ARGS=(--server.port="$PORT")
+if [ "$LAB" = "lab1" ]; then
+    APP_ARGS+=(--spring.datasource.url="jdbc:sqlite:$WORK/auth.db"
+               --app.db.decrypted-path="$WORK/auth.db" --app.db.encrypted-path="$WORK/auth.db.enc"
+               --app.db.des.key=0123456789ABCDEF --app.db.des.iv=0011223344556677)
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Запускает приложение с переданными флагами JVM и печатает время до первого ответа в миллисекундах.
+measure() {
+    local start elapsed
+    start=$(now_ms)
+    (cd "$CDS_DIR" && exec java "$@" -jar "$JAR" "${APP_ARGS[@]}") > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://127.0.0.1:$PORT/actuator/health")" != "000" ]; do
+        if ! kill -0 "$APP_PID" 2>/dev/null; then
+            echo "Приложение завершилось при запуске:" >&2
+            cat "$WORK/app.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+    echo "$elapsed"
+}
+
+# Прогон без замера: lab1 создаёт БД, файловый кэш прогревается одинаково для обоих вариантов.
+measure > /dev/null
+
+declare -A TOTAL=([default]=0 [cds]=0)
+for i in $(seq 1 "$RUNS"); do
+    default_ms=$(measure -Xshare:auto)
+    cds_ms=$(measure -XX:SharedArchiveFile=application.jsa)
+    TOTAL[default]=$(( TOTAL[default] + default_ms ))
+    TOTAL[cds]=$(( TOTAL[cds] + cds_ms ))
+    echo "запуск $i: без архива ${default_ms} мс, с AppCDS ${cds_ms} мс"
+done
+echo "$LAB, среднее за $RUNS запусков: без архива $(( TOTAL[default] / RUNS )) мс, с AppCDS $(( TOTAL[cds] / RUNS )) мс"
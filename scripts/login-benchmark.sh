@@ -0,0 +1,98 @@
+#!/usr/bin/env bash
+# Пропускная способность входа в lab1 при параллельных пользователях: WAL против журнала отката.
+#
+#   (cd lab1 && mvn -DskipTests package)
+#   scripts/login-benchmark.sh [параллельных клиентов] [входов на клиента]
+#
+# Приложение запускается дважды на одной и той же БД во временном каталоге: с настройками из
+# application.properties (journal_mode=WAL) и с journal_mode=DELETE, synchronous=FULL - так SQLite
+# работал до настройки пула. Каждый клиент в цикле открывает /login, берёт CSRF-токен и входит
+# как ADMIN с пустым паролем (администратор создаётся при первом запуске на новой БД).
+# Неверный пароль здесь недопустим: после трёх неудачных попыток приложение завершается.
+set -euo pipefail
+
+CLIENTS=${1:-8}
+LOGINS=${2:-50}
+PORT=${PORT:-18092}
+BASE="http://127.0.0.1:${PORT}"
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(find "$ROOT/lab1/target" -maxdepth 1 -name 'autorisation-*.jar' ! -name '*.original' 2>/dev/null | head -n 1)
+if [ -z "$JAR" ]; then
+    echo "Нет lab1/target/autorisation-*.jar: соберите lab1 (mvn -DskipTests package)" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+trap 'kill "${APP_PID:-}" 2>/dev/null || true; wait "${APP_PID:-}" 2>/dev/null || true; rm -rf "$WORK"' EXIT
+APP_ARGS=(--server.port="$PORT" --spring.jpa.show-sql=false
+          --spring.datasource.url="jdbc:sqlite:$WORK/auth.db"
+          --app.db.decrypted-path="$WORK/auth.db" --app.db.encrypted-path="$WORK/auth.db.enc"
+          --app.db.des.key=0123456789ABCDEF --app.db.des.iv=0011223344556677)
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+start_app() {
+    java -jar "$JAR" "${APP_ARGS[@]}" "$@" > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    until curl -sf -o /dev/null "$BASE/actuator/health"; do
+        if ! kill -0 "$APP_PID" 2>/dev/null; then
+            echo "Приложение завершилось при запуске:" >&2
+            cat "$WORK/app.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+# Один клиент: LOGINS входов подряд, каждый в новой сессии. Печатает число неуспешных входов.
+client() {
+    local jar="$WORK/cookies.$1" failed=0 token location
+    for _ in $(seq 1 "$LOGINS"); do
+        rm -f "$jar"
+        token=$(curl -s -c "$jar" "$BASE/login" | sed -n 's/.*name="_csrf" value="\([^"]*\)".*/\1/p' | head -n 1)
+        location=$(curl -s -b "$jar" -c "$jar" -o /dev/null -w '%{redirect_url}' \
+            --data-urlencode "username=ADMIN" --data-urlencode "password=" --data-urlencode "_csrf=$token" \
+            "$BASE/login-process")
+        case "$location" in
+            */admin/users) ;;
+            *) failed=$(( failed + 1 )) ;;
+        esac
+    done
+    echo "$failed"
+}
+
+# Прогоняет CLIENTS клиентов параллельно и печатает итог для варианта $1.
+measure() {
+    local label=$1 start elapsed failed=0 total=$(( CLIENTS * LOGINS )) pids=()
+    shift
+    start_app "$@"
+    start=$(now_ms)
+    for i in $(seq 1 "$CLIENTS"); do
+        client "$i" > "$WORK/failed.$i" &
+        pids+=($!)
+    done
+    wait "${pids[@]}"
+    elapsed=$(( $(now_ms) - start ))
+    stop_app
+    for i in $(seq 1 "$CLIENTS"); do
+        failed=$(( failed + $(cat "$WORK/failed.$i") ))
+    done
+    echo "$label: $total входов за ${elapsed} мс, $(( total * 1000 / (elapsed > 0 ? elapsed : 1) )) входов/с, неуспешных $failed"
+}
+
+# Первый запуск создаёт БД с администратором и при остановке шифрует её; замеры идут на этой БД.
+start_app
+stop_app
+
+measure "журнал отката" \
+    "--spring.datasource.hikari.data-source-properties[journal_mode]=DELETE" \
+    "--spring.datasource.hikari.data-source-properties[synchronous]=FULL"
+measure "WAL"
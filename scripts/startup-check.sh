@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+# Замер времени запуска и задержки первого запроса для lab2 (хэширование) и lab3 (шифрование).
+#
+#   scripts/startup-check.sh lab2 lab2/target/ib
+#   scripts/startup-check.sh lab3 java -Dspring.aot.enabled=true -jar lab3/target/ib-0.0.1-SNAPSHOT.jar
+#
+# Запуск - от старта процесса до первого успешного ответа /actuator/health; первый запрос -
+# POST /hash (lab2) или POST /cipher (lab3) с файлом 4 КБ. Пороги в миллисекундах задаются
+# переменными MAX_STARTUP_MS и MAX_FIRST_REQUEST_MS; если порог превышен, скрипт завершается с кодом 1.
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+    echo "usage: $0 lab2|lab3 command [args...]" >&2
+    exit 2
+fi
+LAB=$1
+shift
+PORT=${PORT:-18090}
+BASE="http://127.0.0.1:${PORT}"
+WORK=$(mktemp -d)
+trap 'kill "${APP_PID:-}" 2>/dev/null || true; wait "${APP_PID:-}" 2>/dev/null || true; rm -rf "$WORK"' EXIT
+
+head -c 4096 /dev/urandom > "$WORK/input.bin"
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+START=$(now_ms)
+"$@" --server.port="$PORT" > "$WORK/app.log" 2>&1 &
+APP_PID=$!
+
+until curl -sf -o /dev/null "$BASE/actuator/health"; do
+    if ! kill -0 "$APP_PID" 2>/dev/null; then
+        echo "Приложение завершилось при запуске:" >&2
+        cat "$WORK/app.log" >&2
+        exit 1
+    fi
+    if [ $(( $(now_ms) - START )) -gt 60000 ]; then
+        echo "Приложение не запустилось за 60 с" >&2
+        exit 1
+    fi
+    sleep 0.02
+done
+STARTUP_MS=$(( $(now_ms) - START ))
+
+case "$LAB" in
+    lab2)
+        REQUEST=(-F "file=@$WORK/input.bin" -F "algorithms=streebog-512" "$BASE/hash")
+        ;;
+    lab3)
+        REQUEST=(-F "file=@$WORK/input.bin" -F "mode=encrypt" -F "counter=0000000000000001"
+                 -F "keyHex=8899aabbccddeeff0011223344556677fedcba98765432100123456789abcdef" "$BASE/cipher")
+        ;;
+    *)
+        echo "Неизвестное приложение: $LAB" >&2
+        exit 2
+        ;;
+esac
+
+REQUEST_START=$(now_ms)
+STATUS=$(curl -s -o "$WORK/response" -w "%{http_code}" "${REQUEST[@]}")
+FIRST_REQUEST_MS=$(( $(now_ms) - REQUEST_START ))
+if [ "$STATUS" != "200" ]; then
+    echo "Первый запрос завершился с кодом $STATUS:" >&2
+    cat "$WORK/response" >&2
+    exit 1
+fi
+
+RSS_KB=$(awk '/VmRSS/ {print $2}' "/proc/$APP_PID/status" 2>/dev/null || echo "?")
+echo "$LAB: запуск ${STARTUP_MS} мс, первый запрос ${FIRST_REQUEST_MS} мс, RSS ${RSS_KB} КБ"
+grep -m1 -o "Started IbApplication in [0-9.]* seconds[^)]*)" "$WORK/app.log" || true
+
+FAILED=0
+if [ -n "${MAX_STARTUP_MS:-}" ] && [ "$STARTUP_MS" -gt "$MAX_STARTUP_MS" ]; then
+    echo "Время запуска ${STARTUP_MS} мс превышает порог ${MAX_STARTUP_MS} мс" >&2
+    FAILED=1
+fi
+if [ -n "${MAX_FIRST_REQUEST_MS:-}" ] && [ "$FIRST_REQUEST_MS" -gt "$MAX_FIRST_REQUEST_MS" ]; then
+    echo "Задержка первого запроса ${FIRST_REQUEST_MS} мс превышает порог ${MAX_FIRST_REQUEST_MS} мс" >&2
+    FAILED=1
+fi
+exit $FAILED